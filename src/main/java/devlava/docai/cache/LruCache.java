@@ -0,0 +1,119 @@
+package devlava.docai.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * LRU 캐시 (스레드 안전)
+ * - 최대 항목 수 기준으로 제거하고, 선택적으로 총 크기(weigher 합계)와 만료 시간(TTL)도 적용
+ */
+public class LruCache<K, V> {
+
+    private record Entry<V>(V value, long weight, long expiresAtNanos) {
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    private long evictions;
+    private long expirations;
+
+    public LruCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, (key, value) -> 0L, null);
+    }
+
+    /**
+     * @param maxWeight 항목 크기 합계 상한 (weigher 단위, 보통 바이트)
+     * @param ttl       항목 만료 시간 - null이면 만료 없음
+     */
+    public LruCache(int maxEntries, long maxWeight, ToLongBiFunction<K, V> weigher, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttl != null ? ttl.toNanos() : 0L;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, System.nanoTime())) {
+            removeEntry(key);
+            expirations++;
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(key, value);
+        long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0L;
+        Entry<V> previous = entries.put(key, new Entry<>(value, weight, expiresAt));
+        if (previous != null) {
+            totalWeight -= previous.weight();
+        }
+        totalWeight += weight;
+        evictIfNeeded();
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> removed = removeEntry(key);
+        return removed != null ? removed.value() : null;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long expirations() {
+        return expirations;
+    }
+
+    // 가장 오래 사용되지 않은 항목부터 제거 (만료된 항목은 만료로 집계)
+    private void evictIfNeeded() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && iterator.hasNext()) {
+            Entry<V> eldest = iterator.next().getValue();
+            iterator.remove();
+            totalWeight -= eldest.weight();
+            if (isExpired(eldest, now)) {
+                expirations++;
+            } else {
+                evictions++;
+            }
+        }
+    }
+
+    private Entry<V> removeEntry(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight();
+        }
+        return removed;
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return entry.expiresAtNanos() != 0L && now - entry.expiresAtNanos() >= 0;
+    }
+}
@@ -0,0 +1,108 @@
+package devlava.docai.cache;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키의 동시 스트림 합치기 (스레드 안전)
+ * - 진행 중인 스트림이 있으면 지금까지 나온 요소를 처음부터 재생한 뒤 이어지는 요소를 함께 받음
+ * - 원본은 한 번만 구독 (replay().autoConnect) - 끝난 뒤 늦게 구독한 합류자도 다시 실행하지 않고 재생만 받음
+ * - 원본이 끝나면(완료/오류) 종료 신호를 보내기 전에 키 제거, 이후 요청은 새 스트림 시작
+ * - 구독자가 모두 취소하면 원본 스트림도 취소하고 키 제거
+ */
+public class StreamSingleFlight<K, T> {
+
+    private final ConcurrentHashMap<K, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong joins = new AtomicLong();
+
+    public Flux<T> join(K key, Supplier<Flux<T>> source) {
+        return Flux.defer(() -> {
+            while (true) {
+                Flight flight = inFlight.get(key);
+                boolean created = false;
+                if (flight == null) {
+                    Flight mine = new Flight(key, source);
+                    flight = inFlight.putIfAbsent(key, mine);
+                    if (flight == null) {
+                        flight = mine;
+                        created = true;
+                    }
+                }
+                if (flight.acquire()) {
+                    if (!created) {
+                        joins.incrementAndGet();
+                    }
+                    return flight.subscriberView();
+                }
+                // 모든 구독자가 취소해 원본이 취소된 스트림 - 제거하고 새로 시작
+                inFlight.remove(key, flight);
+            }
+        });
+    }
+
+    /**
+     * 진행 중인 스트림에 합류한 횟수
+     */
+    public long joins() {
+        return joins.get();
+    }
+
+    // 원본 하나와 그 구독자 수 - 구독자 수와 상태는 이 객체의 락으로 보호
+    private final class Flight {
+
+        private final K key;
+        private final Flux<T> shared;
+        private volatile Disposable connection;
+        private int subscribers;
+        private boolean terminated;
+        private boolean cancelled;
+
+        Flight(K key, Supplier<Flux<T>> source) {
+            this.key = key;
+            // Flux.defer이므로 실제로 구독할 때(첫 acquire 이후)만 source 호출
+            this.shared = Flux.defer(source)
+                    .doOnTerminate(this::terminate)
+                    .replay()
+                    .autoConnect(1, disposable -> connection = disposable);
+        }
+
+        // acquire 이후 구독할 스트림 - 구독이 끝나면(완료/오류/취소) 구독자 수 감소
+        Flux<T> subscriberView() {
+            return shared.doFinally(signal -> release());
+        }
+
+        synchronized boolean acquire() {
+            if (cancelled) {
+                return false;
+            }
+            subscribers++;
+            return true;
+        }
+
+        void release() {
+            Disposable toCancel;
+            synchronized (this) {
+                if (--subscribers > 0 || terminated || cancelled) {
+                    return;
+                }
+                cancelled = true;
+                toCancel = connection;
+            }
+            inFlight.remove(key, this);
+            if (toCancel != null) {
+                toCancel.dispose();
+            }
+        }
+
+        private void terminate() {
+            synchronized (this) {
+                terminated = true;
+            }
+            inFlight.remove(key, this);
+        }
+    }
+}
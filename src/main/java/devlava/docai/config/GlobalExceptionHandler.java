@@ -1,6 +1,8 @@
 package devlava.docai.config;
 
+import devlava.docai.llm.LlmRejectedException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -29,4 +31,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body("파일 업로드 중 오류가 발생했습니다: " + exc.getMessage());
     }
+
+    @ExceptionHandler(LlmRejectedException.class)
+    public ResponseEntity<String> handleLlmRejected(LlmRejectedException exc) {
+        log.warn("LLM request rejected: {}", exc.getReason());
+        return ResponseEntity.status(exc.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exc.getRetryAfterSeconds()))
+                .body(exc.getMessage());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package devlava.docai.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 스트리밍 답변 파이프라인용 스케줄러
+ * - 임베딩 호출, JPA 조회 등 블로킹 단계와 SSE 응답 쓰기를 전용 bounded 스레드 풀에서 실행
+ *   (요청 스레드나 LLM 응답을 받는 netty 이벤트 루프를 막지 않음)
+ * - 스레드 수와 대기 작업 수에 상한이 있어 몰린 요청이 스레드를 무한히 만들지 않고, 대기열이 차면 즉시 거절
+ */
+@Configuration
+public class StreamingConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler searchScheduler(@Value("${docai.search.stream.threads:32}") int threads,
+                                     @Value("${docai.search.stream.queue-capacity:256}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "search-stream");
+    }
+}
@@ -0,0 +1,209 @@
+package devlava.docai.config;
+
+import devlava.docai.repository.VectorStoreBulkWriter;
+import devlava.docai.vector.VectorIndexType;
+import devlava.docai.vector.VectorMetric;
+import devlava.docai.vector.VectorQuantization;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * vector_stores 검색용 컬럼/인덱스 관리
+ * - category_id 비정규화 컬럼이 비어 있는 기존 행 채우기
+ * - lexical_terms(어휘 검색 tsvector)가 비어 있는 기존 청크 채우기 + GIN 인덱스 생성
+ * - 비어 있는 문서의 centroid 계산 (컬럼은 Document 엔티티 매핑으로 ddl-auto가 생성)
+ * - embedding ANN 인덱스 생성/검증
+ * - spring.ai.vectorstore.pgvector 설정은 Spring AI 자체 테이블에만 적용되므로 직접 생성
+ * - 설정된 metric/type과 다른, 이 클래스가 만든 인덱스는 제거 (사용되지 않는 인덱스 유지 비용 방지)
+ * - quantization=binary이면 embedding 대신 binary_quantize(embedding) 식에 Hamming 인덱스 생성 (크기 1/32)
+ * - CONCURRENTLY로 생성하여 빌드 중에도 청크 저장이 막히지 않음, 실패로 남은 invalid 인덱스는 재생성
+ */
+@Component
+@Slf4j
+public class VectorIndexInitializer {
+
+    private static final String INDEX_PREFIX = "idx_vector_stores_embedding_";
+    private static final String LEXICAL_INDEX = "idx_vector_stores_lexical_terms";
+    private static final int LEXICAL_BACKFILL_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorStoreBulkWriter vectorStoreBulkWriter;
+    private final VectorIndexType indexType;
+    private final VectorMetric metric;
+    private final VectorQuantization quantization;
+    private final int dimensions;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+    private final int ivfflatLists;
+
+    public VectorIndexInitializer(JdbcTemplate jdbcTemplate,
+                                  VectorStoreBulkWriter vectorStoreBulkWriter,
+                                  @Value("${docai.vector-store.index.type:hnsw}") VectorIndexType indexType,
+                                  @Value("${docai.vector-store.index.metric:cosine}") VectorMetric metric,
+                                  @Value("${docai.vector-store.index.quantization:none}") VectorQuantization quantization,
+                                  @Value("${spring.ai.vectorstore.pgvector.dimensions:768}") int dimensions,
+                                  @Value("${docai.vector-store.index.hnsw.m:16}") int hnswM,
+                                  @Value("${docai.vector-store.index.hnsw.ef-construction:64}") int hnswEfConstruction,
+                                  @Value("${docai.vector-store.index.ivfflat.lists:100}") int ivfflatLists) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vectorStoreBulkWriter = vectorStoreBulkWriter;
+        this.indexType = indexType;
+        this.metric = metric;
+        this.quantization = quantization;
+        this.dimensions = dimensions;
+        this.hnswM = hnswM;
+        this.hnswEfConstruction = hnswEfConstruction;
+        this.ivfflatLists = ivfflatLists;
+    }
+
+    // 서버가 요청을 받기 시작한 뒤 실행 (큰 테이블의 인덱스 빌드가 기동을 막지 않도록)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        backfillCategoryIds();
+        backfillCentroids();
+        backfillLexicalTerms();
+        ensureIndex();
+        ensureLexicalIndex();
+    }
+
+    // category_id 컬럼 추가 이전에 저장된 청크에 문서의 카테고리 반영 (한 번만 실제로 갱신됨)
+    private void backfillCategoryIds() {
+        try {
+            int updated = jdbcTemplate.update("""
+                    UPDATE vector_stores v SET category_id = d.category_id
+                    FROM documents d
+                    WHERE v.document_id = d.id AND v.category_id IS NULL
+                    """);
+            if (updated > 0) {
+                log.info("Backfilled category_id for {} vector rows", updated);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill vector_stores.category_id", e);
+        }
+    }
+
+    private void backfillCentroids() {
+        try {
+            int updated = jdbcTemplate.update("""
+                    UPDATE documents d SET centroid = c.centroid
+                    FROM (SELECT document_id, avg(l2_normalize(embedding)) AS centroid
+                          FROM vector_stores GROUP BY document_id) c
+                    WHERE d.id = c.document_id AND d.centroid IS NULL
+                    """);
+            if (updated > 0) {
+                log.info("Computed centroids for {} documents", updated);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill documents.centroid (requires pgvector 0.7+)", e);
+        }
+    }
+
+    // 배치마다 커밋하므로 중간에 중단돼도 다음 기동 시 남은 행부터 이어서 처리
+    private void backfillLexicalTerms() {
+        try {
+            long lastId = 0;
+            int batches = 0;
+            while ((lastId = vectorStoreBulkWriter.backfillLexicalTerms(lastId, LEXICAL_BACKFILL_BATCH)) >= 0) {
+                batches++;
+            }
+            if (batches > 0) {
+                log.info("Backfilled lexical_terms in {} batches of up to {} vector rows", batches, LEXICAL_BACKFILL_BATCH);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill vector_stores.lexical_terms", e);
+        }
+    }
+
+    private void ensureLexicalIndex() {
+        try {
+            createValidIndex("Lexical", LEXICAL_INDEX, "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + LEXICAL_INDEX +
+                    " ON vector_stores USING gin (lexical_terms)");
+        } catch (Exception e) {
+            log.error("Failed to ensure GIN index on vector_stores.lexical_terms", e);
+        }
+    }
+
+    private void ensureIndex() {
+        try {
+            String expectedName = indexType == VectorIndexType.NONE ? null : indexName();
+            dropStaleIndexes(expectedName);
+            if (expectedName == null) {
+                log.info("Vector index disabled, vector_stores searches will use sequential scans");
+                return;
+            }
+            createValidIndex("Vector", expectedName, createIndexSql(expectedName));
+        } catch (Exception e) {
+            log.error("Failed to ensure vector index on vector_stores.embedding", e);
+        }
+    }
+
+    // 인덱스가 없거나 invalid이면 (다시) 생성한 뒤 유효한지 확인
+    // CONCURRENTLY 빌드는 실패하거나 중단되어도 invalid 인덱스를 남기고, IF NOT EXISTS는 그 인덱스를 그대로 둠
+    private void createValidIndex(String kind, String name, String createSql) {
+        Boolean valid = findIndexValidity(name);
+        if (Boolean.TRUE.equals(valid)) {
+            log.info("{} index {} is present and valid", kind, name);
+            return;
+        }
+        if (valid != null) {
+            log.warn("{} index {} is invalid (interrupted build), rebuilding", kind, name);
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        }
+
+        long started = System.currentTimeMillis();
+        log.info("Creating {} index {} ...", kind.toLowerCase(Locale.ROOT), name);
+        jdbcTemplate.execute(createSql);
+
+        if (!Boolean.TRUE.equals(findIndexValidity(name))) {
+            throw new IllegalStateException(kind + " index " + name + " was not created as a valid index");
+        }
+        log.info("Created {} index {} in {} ms", kind.toLowerCase(Locale.ROOT), name,
+                System.currentTimeMillis() - started);
+    }
+
+    private String indexName() {
+        String method = indexType.name().toLowerCase(Locale.ROOT);
+        return quantization == VectorQuantization.BINARY
+                ? INDEX_PREFIX + method + "_bit" + dimensions
+                : INDEX_PREFIX + method + "_" + metric.name().toLowerCase(Locale.ROOT);
+    }
+
+    private String createIndexSql(String name) {
+        String method = indexType.name().toLowerCase(Locale.ROOT);
+        String options = indexType == VectorIndexType.HNSW
+                ? "m = " + hnswM + ", ef_construction = " + hnswEfConstruction
+                : "lists = " + ivfflatLists;
+        String column = quantization == VectorQuantization.BINARY
+                ? "(" + VectorQuantization.binaryExpression("embedding", dimensions) + ") bit_hamming_ops"
+                : "embedding " + metric.operatorClass();
+        return "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON vector_stores USING " + method +
+                " (" + column + ") WITH (" + options + ")";
+    }
+
+    // null: 인덱스 없음, false: 빌드 실패로 남은 invalid 인덱스
+    private Boolean findIndexValidity(String name) {
+        List<Boolean> result = jdbcTemplate.queryForList(
+                "SELECT i.indisvalid FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid WHERE c.relname = ?",
+                Boolean.class, name);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private void dropStaleIndexes(String expectedName) {
+        List<String> managed = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'vector_stores' AND indexname LIKE ?",
+                String.class, INDEX_PREFIX + "%");
+        for (String name : managed) {
+            if (!name.equals(expectedName)) {
+                log.info("Dropping vector index {} (type/metric/quantization changed)", name);
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+            }
+        }
+    }
+}
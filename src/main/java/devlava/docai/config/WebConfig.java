@@ -1,9 +1,15 @@
 package devlava.docai.config;
 
+import devlava.docai.service.AnswerMode;
+import devlava.docai.service.CategorySearchMode;
+import devlava.docai.service.RetrievalMode;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.Locale;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
     @Override
@@ -11,4 +17,18 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:uploads/");
     }
+
+    // 검색 옵션 파라미터는 대소문자 구분 없이 바인딩 (mode=extractive, retrieval=hybrid 등)
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        addCaseInsensitiveEnum(registry, AnswerMode.class);
+        addCaseInsensitiveEnum(registry, RetrievalMode.class);
+        addCaseInsensitiveEnum(registry, CategorySearchMode.class);
+    }
+
+    private static <E extends Enum<E>> void addCaseInsensitiveEnum(FormatterRegistry registry, Class<E> type) {
+        registry.addConverter(String.class, type, source -> source.isBlank()
+                ? null
+                : Enum.valueOf(type, source.trim().toUpperCase(Locale.ROOT)));
+    }
 }
\ No newline at end of file
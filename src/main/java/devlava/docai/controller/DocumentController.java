@@ -1,8 +1,13 @@
 package devlava.docai.controller;
 
 import devlava.docai.dto.DocumentDto;
+import devlava.docai.dto.FileUploadResult;
+import devlava.docai.dto.IngestionJobDto;
 import devlava.docai.entity.Document;
+import devlava.docai.entity.IngestionJob;
 import devlava.docai.service.DocumentService;
+import devlava.docai.service.IngestionJobService;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
@@ -28,6 +33,7 @@ import java.util.stream.Collectors;
 public class DocumentController {
 
     private final DocumentService documentService;
+    private final IngestionJobService ingestionJobService;
 
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<List<DocumentDto>> getDocumentsByCategory(@PathVariable Long categoryId) {
@@ -38,25 +44,56 @@ public class DocumentController {
         return ResponseEntity.ok(documents);
     }
 
-    // 단일 파일 업로드 (기존)
+    // 단일 파일 업로드 - 벡터화는 비동기 작업으로 처리 (202 + 작업 ID)
     @PostMapping("/upload")
-    public ResponseEntity<DocumentDto> uploadDocument(
+    public ResponseEntity<IngestionJobDto> uploadDocument(
             @RequestParam("categoryId") Long categoryId,
             @RequestParam("file") MultipartFile file) throws IOException {
-        Document document = documentService.uploadDocument(categoryId, file);
-        return ResponseEntity.ok(DocumentDto.from(document));
+        IngestionJob job = documentService.uploadDocument(categoryId, file);
+        return ResponseEntity.accepted().body(IngestionJobDto.from(job));
     }
 
-    // 멀티 파일 업로드 (기존)
+    // 멀티 파일 업로드 - 파일별 성공/실패 결과 반환 (하나라도 등록되면 202)
     @PostMapping("/upload-multiple")
-    public ResponseEntity<List<DocumentDto>> uploadMultipleDocuments(
+    public ResponseEntity<List<FileUploadResult>> uploadMultipleDocuments(
             @RequestParam("categoryId") Long categoryId,
-            @RequestParam("files") MultipartFile[] files) throws IOException {
-        List<Document> documents = documentService.uploadMultipleDocuments(categoryId, files);
-        List<DocumentDto> documentDtos = documents.stream()
-                .map(DocumentDto::from)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(documentDtos);
+            @RequestParam("files") MultipartFile[] files) {
+        List<FileUploadResult> results = documentService.uploadMultipleDocuments(categoryId, files);
+        boolean anyAccepted = results.stream().anyMatch(FileUploadResult::accepted);
+        return ResponseEntity.status(anyAccepted ? HttpStatus.ACCEPTED : HttpStatus.BAD_REQUEST).body(results);
+    }
+
+    /**
+     * 문서 파일 교체 - 바뀐 청크만 다시 임베딩 (202 + 재색인 작업 ID)
+     */
+    @PutMapping("/{id}/content")
+    public ResponseEntity<IngestionJobDto> replaceDocumentContent(
+            @PathVariable Long id,
+            @RequestParam("file") MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            IngestionJob job = documentService.replaceDocumentContent(id, file);
+            return ResponseEntity.accepted().body(IngestionJobDto.from(job));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            log.warn("Rejected content update for document {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * 벡터화 작업 상태 및 청크 진행률 조회
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<IngestionJobDto> getIngestionJob(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(IngestionJobDto.from(ingestionJobService.getJob(id)));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     /**
@@ -128,10 +165,20 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 문서 삭제 - 벡터화 작업이 대기/처리 중이면 409
+     */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDocument(@PathVariable Long id) {
-        documentService.deleteDocument(id);
-        return ResponseEntity.ok().build();
+        try {
+            documentService.deleteDocument(id);
+            return ResponseEntity.ok().build();
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            log.warn("Rejected deletion of document {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     /**
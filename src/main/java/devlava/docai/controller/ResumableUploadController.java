@@ -0,0 +1,101 @@
+package devlava.docai.controller;
+
+import devlava.docai.dto.IngestionJobDto;
+import devlava.docai.dto.UploadSessionDto;
+import devlava.docai.entity.IngestionJob;
+import devlava.docai.entity.UploadSession;
+import devlava.docai.service.ResumableUploadService;
+import devlava.docai.service.UploadOffsetMismatchException;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * 대용량 파일 이어받기 업로드 API (multipart 크기 제한 없음)
+ * 1. POST   /api/documents/uploads                 세션 생성
+ * 2. PUT    /api/documents/uploads/{id}?offset=N   본문(바이너리)을 offset 위치부터 기록
+ * 3. GET    /api/documents/uploads/{id}            현재 확인된 오프셋 조회 (재개 시)
+ * 4. POST   /api/documents/uploads/{id}/complete   해시 검증 후 문서 등록
+ */
+@RestController
+@RequestMapping("/api/documents/uploads")
+@RequiredArgsConstructor
+@CrossOrigin("*")
+@Slf4j
+public class ResumableUploadController {
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDto> createSession(
+            @RequestParam Long categoryId,
+            @RequestParam String fileName,
+            @RequestParam long fileSize,
+            @RequestParam(required = false) String contentType) {
+        UploadSession session = resumableUploadService.createSession(categoryId, fileName, contentType, fileSize);
+        return ResponseEntity.status(HttpStatus.CREATED).body(UploadSessionDto.from(session));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDto> getSession(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(UploadSessionDto.from(resumableUploadService.getSession(id)));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<UploadSessionDto> appendChunk(
+            @PathVariable String id,
+            @RequestParam long offset,
+            HttpServletRequest request) throws IOException {
+        try {
+            resumableUploadService.appendChunk(id, offset, request.getInputStream());
+            return ResponseEntity.ok(UploadSessionDto.from(resumableUploadService.getSession(id)));
+        } catch (UploadOffsetMismatchException e) {
+            // 클라이언트는 응답의 receivedBytes부터 다시 전송
+            log.warn("Upload session {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(UploadSessionDto.from(resumableUploadService.getSession(id)));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<IngestionJobDto> complete(
+            @PathVariable String id,
+            @RequestParam(required = false) String sha256) throws IOException {
+        try {
+            IngestionJob job = resumableUploadService.complete(id, sha256);
+            return ResponseEntity.accepted().body(IngestionJobDto.from(job));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 크기 초과, 해시 불일치 등
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidUpload(IllegalArgumentException e) {
+        log.warn("Invalid upload request: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    /**
+     * 이미 완료/만료된 세션, 미완료 업로드 완료 요청 등 세션 상태와 맞지 않는 요청
+     */
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> handleSessionConflict(IllegalStateException e) {
+        log.warn("Upload request conflicts with session state: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+}
@@ -1,13 +1,23 @@
 package devlava.docai.controller;
 
+import devlava.docai.dto.AnswerToken;
 import devlava.docai.dto.SearchResponse;
+import devlava.docai.llm.LlmRejectedException;
+import devlava.docai.repository.VectorSearchTuning;
+import devlava.docai.service.AnswerMode;
+import devlava.docai.service.CategorySearchMode;
+import devlava.docai.service.RetrievalMode;
 import devlava.docai.service.SearchService;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/api/search")
 @RequiredArgsConstructor
@@ -18,53 +28,114 @@ public class SearchController {
 
     /**
      * 특정 카테고리에서 질문에 대한 답변 생성 (기존 방식)
+     * categoryMode: EXACT(해당 카테고리만, 기본) 또는 SUBTREE(하위 카테고리 포함)
+     * efSearch/probes: ANN 검색 재현율-지연 조절 (생략 시 설정 기본값)
+     * documents: 문서 centroid로 먼저 고를 문서 수 (기본 0: 청크 전체 ANN 검색, 양수면 고른 문서 안에서 정확 정렬)
+     *   (search.backend=hnsw에서는 probes를 무시하고, documents가 양수면 pgvector 2단계 검색으로 처리)
+     * retrieval: VECTOR(임베딩 검색, 기본) 또는 HYBRID(어휘 검색과 RRF 병합 - 코드/번호 검색에 유리)
+     * mode: GENERATIVE(LLM 답변, 기본) 또는 EXTRACTIVE(LLM 없이 관련 문장과 출처만 즉시 반환)
      */
     @PostMapping("/category/{categoryId}/answer")
     public ResponseEntity<SearchResponse> answerQuestionInCategory(
             @PathVariable Long categoryId,
             @RequestParam String query,
-            @RequestParam(defaultValue = "5") int topK) {
+            @RequestParam(defaultValue = "5") int topK,
+            @RequestParam(defaultValue = "VECTOR") RetrievalMode retrieval,
+            @RequestParam(defaultValue = "EXACT") CategorySearchMode categoryMode,
+            @RequestParam(required = false) Integer efSearch,
+            @RequestParam(required = false) Integer probes,
+            @RequestParam(required = false) Integer documents,
+            @RequestParam(defaultValue = "GENERATIVE") AnswerMode mode) {
 
-        SearchResponse response = searchService.answerQuestionInCategory(query, categoryId, topK);
+        SearchResponse response = searchService.answerQuestionInCategory(query, categoryId, topK, categoryMode,
+                retrieval, mode, new VectorSearchTuning(efSearch, probes, documents));
         return ResponseEntity.ok(response);
     }
 
     /**
      * 특정 문서에서 질문에 대한 답변 생성 (기존 방식)
+     * retrieval: VECTOR(기본) 또는 HYBRID
+     * mode: GENERATIVE(기본) 또는 EXTRACTIVE
      */
     @PostMapping("/document/{documentId}/answer")
     public ResponseEntity<SearchResponse> answerQuestionInDocument(
             @PathVariable Long documentId,
             @RequestParam String query,
-            @RequestParam(defaultValue = "5") int topK) {
+            @RequestParam(defaultValue = "5") int topK,
+            @RequestParam(defaultValue = "VECTOR") RetrievalMode retrieval,
+            @RequestParam(defaultValue = "GENERATIVE") AnswerMode mode) {
 
-        SearchResponse response = searchService.answerQuestionInDocument(query, documentId, topK);
-        return ResponseEntity.ok(response);
+        try {
+            SearchResponse response = searchService.answerQuestionInDocument(query, documentId, topK, retrieval, mode);
+            return ResponseEntity.ok(response);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     /**
-     * 특정 카테고리에서 질문에 대한 답변 생성 (Stream 방식)
+     * 특정 카테고리에서 질문에 대한 답변 생성 (Stream 방식, SSE)
+     * - token 이벤트마다 {"text": ...}, 정상 종료 시 done 이벤트
+     * - LLM 대기열이 가득 차 거절되면 rejected 이벤트 (retry = 재시도 대기 시간)
+     * - 클라이언트가 연결을 끊으면 답변 생성도 중단
+     * - mode=EXTRACTIVE면 LLM 없이 추출한 답변 전체를 token 이벤트 하나로 보낸 뒤 done
      */
     @PostMapping(value = "/category/{categoryId}/answer/stream",
-            produces = MediaType.TEXT_PLAIN_VALUE)
-    public Flux<String> answerQuestionInCategoryStream(
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AnswerToken>> answerQuestionInCategoryStream(
             @PathVariable Long categoryId,
             @RequestParam String query,
-            @RequestParam(defaultValue = "5") int topK) {
+            @RequestParam(defaultValue = "5") int topK,
+            @RequestParam(defaultValue = "VECTOR") RetrievalMode retrieval,
+            @RequestParam(defaultValue = "EXACT") CategorySearchMode categoryMode,
+            @RequestParam(required = false) Integer efSearch,
+            @RequestParam(required = false) Integer probes,
+            @RequestParam(required = false) Integer documents,
+            @RequestParam(defaultValue = "GENERATIVE") AnswerMode mode) {
 
-        return searchService.answerQuestionInCategoryStream(query, categoryId, topK);
+        VectorSearchTuning tuning = new VectorSearchTuning(efSearch, probes, documents);
+        if (mode == AnswerMode.EXTRACTIVE) {
+            return toEvents(searchService.extractiveAnswerInCategoryStream(query, categoryId, topK, categoryMode,
+                    retrieval, tuning));
+        }
+        return toEvents(searchService.answerQuestionInCategoryStream(query, categoryId, topK, categoryMode,
+                retrieval, tuning));
     }
 
     /**
-     * 특정 문서에서 질문에 대한 답변 생성 (Stream 방식)
+     * 특정 문서에서 질문에 대한 답변 생성 (Stream 방식, SSE)
+     * - 문서가 없으면 스트림을 열기 전에 404
+     * - mode=EXTRACTIVE면 추출한 답변 전체를 token 이벤트 하나로 보낸 뒤 done
      */
     @PostMapping(value = "/document/{documentId}/answer/stream",
-            produces = MediaType.TEXT_PLAIN_VALUE)
-    public Flux<String> answerQuestionInDocumentStream(
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<AnswerToken>>> answerQuestionInDocumentStream(
             @PathVariable Long documentId,
             @RequestParam String query,
-            @RequestParam(defaultValue = "5") int topK) {
+            @RequestParam(defaultValue = "5") int topK,
+            @RequestParam(defaultValue = "VECTOR") RetrievalMode retrieval,
+            @RequestParam(defaultValue = "GENERATIVE") AnswerMode mode) {
+
+        try {
+            Flux<String> answer = mode == AnswerMode.EXTRACTIVE
+                    ? searchService.extractiveAnswerInDocumentStream(query, documentId, topK, retrieval)
+                    : searchService.answerQuestionInDocumentStream(query, documentId, topK, retrieval);
+            return ResponseEntity.ok(toEvents(answer));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 
-        return searchService.answerQuestionInDocumentStream(query, documentId, topK);
+    // 이벤트는 클라이언트로 하나씩 쓰일 때마다 다음 토큰을 요청 (느린 클라이언트에 맞춰 LLM 스트림 수신도 조절)
+    private Flux<ServerSentEvent<AnswerToken>> toEvents(Flux<String> answer) {
+        return answer
+                .map(text -> ServerSentEvent.builder(new AnswerToken(text)).event("token").build())
+                .concatWithValues(ServerSentEvent.builder(new AnswerToken("")).event("done").build())
+                // 응답 헤더가 이미 전송된 뒤라 429/503 상태 대신 이벤트로 알림
+                .onErrorResume(LlmRejectedException.class, e -> Flux.just(
+                        ServerSentEvent.builder(new AnswerToken(e.getMessage()))
+                                .event("rejected")
+                                .retry(Duration.ofSeconds(e.getRetryAfterSeconds()))
+                                .build()));
     }
 }
\ No newline at end of file
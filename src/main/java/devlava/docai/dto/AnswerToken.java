@@ -0,0 +1,7 @@
+package devlava.docai.dto;
+
+/**
+ * 스트리밍 답변 SSE 이벤트 데이터 - 토큰 앞뒤 공백/줄바꿈이 SSE 파싱에서 사라지지 않도록 JSON으로 전송
+ */
+public record AnswerToken(String text) {
+}
@@ -0,0 +1,22 @@
+package devlava.docai.dto;
+
+import devlava.docai.entity.IngestionJob;
+
+/**
+ * 멀티 파일 업로드의 파일별 결과
+ */
+public record FileUploadResult(
+        String fileName,
+        boolean accepted,       // 저장 및 벡터화 작업 등록 성공 여부
+        Long documentId,
+        Long jobId,
+        String errorMessage
+) {
+    public static FileUploadResult accepted(String fileName, IngestionJob job) {
+        return new FileUploadResult(fileName, true, job.getDocumentId(), job.getId(), null);
+    }
+
+    public static FileUploadResult failed(String fileName, String errorMessage) {
+        return new FileUploadResult(fileName, false, null, null, errorMessage);
+    }
+}
@@ -0,0 +1,43 @@
+package devlava.docai.dto;
+
+import devlava.docai.entity.IngestionJob;
+import devlava.docai.entity.IngestionJobStatus;
+import devlava.docai.entity.IngestionJobType;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+public class IngestionJobDto {
+    private Long jobId;
+    private Long documentId;
+    private IngestionJobType type;
+    private IngestionJobStatus status;
+    private int attempts;
+    private int totalChunks;
+    private int processedChunks;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime nextAttemptAt;
+
+    public static IngestionJobDto from(IngestionJob job) {
+        IngestionJobDto dto = new IngestionJobDto();
+        dto.setJobId(job.getId());
+        dto.setDocumentId(job.getDocumentId());
+        dto.setType(job.getType());
+        dto.setStatus(job.getStatus());
+        dto.setAttempts(job.getAttempts());
+        dto.setTotalChunks(job.getTotalChunks());
+        dto.setProcessedChunks(job.getProcessedChunks());
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setNextAttemptAt(job.getNextAttemptAt());
+        return dto;
+    }
+}
@@ -13,5 +13,6 @@ public class SearchResponse {
     private String documentName;    // 주요 참조 문서명
     private int confidence;         // 신뢰도 퍼센트 (0 ~ 100)
     private String downloadUrl;     // 다운로드 URL
+    private List<SourceInfo> sources;   // 답변 근거 문장과 출처 (extractive 모드)
 
 }
\ No newline at end of file
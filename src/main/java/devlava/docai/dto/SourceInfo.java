@@ -10,4 +10,5 @@ public class SourceInfo {
     private String fileName;    // 파일명
     private Integer chunkIndex; // 청크 인덱스
     private String content;     // 청크 내용 (일부)
+    private String downloadUrl; // 문서 다운로드 URL
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package devlava.docai.dto;
+
+import devlava.docai.entity.UploadSession;
+import devlava.docai.entity.UploadSessionStatus;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class UploadSessionDto {
+    private String sessionId;
+    private String fileName;
+    private long totalSize;
+    private long receivedBytes;     // 다음 청크를 보낼 오프셋
+    private UploadSessionStatus status;
+    private String sha256;
+    private Long documentId;
+    private Long jobId;
+
+    public static UploadSessionDto from(UploadSession session) {
+        UploadSessionDto dto = new UploadSessionDto();
+        dto.setSessionId(session.getId());
+        dto.setFileName(session.getFileName());
+        dto.setTotalSize(session.getTotalSize());
+        dto.setReceivedBytes(session.getReceivedBytes());
+        dto.setStatus(session.getStatus());
+        dto.setSha256(session.getSha256());
+        dto.setDocumentId(session.getDocumentId());
+        dto.setJobId(session.getJobId());
+        return dto;
+    }
+}
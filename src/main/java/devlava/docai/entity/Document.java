@@ -1,11 +1,14 @@
 package devlava.docai.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import devlava.docai.vector.PgVectorType;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Type;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -30,6 +33,12 @@ public class Document {
     private String contentType;
     private long fileSize;
 
+    // 카테고리 2단계 검색용 정규화 청크 임베딩 평균 - VectorStoreBulkWriter가 SQL로만 갱신 (엔티티로는 쓰지 않음)
+    @Column(name = "centroid", columnDefinition = "vector(768)", insertable = false, updatable = false)
+    @Type(PgVectorType.class)
+    @JsonIgnore
+    private float[] centroid;
+
     // VectorStore와의 관계 추가
     @OneToMany(mappedBy = "document", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
@@ -0,0 +1,37 @@
+package devlava.docai.entity;
+
+import devlava.docai.vector.PgVectorType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Type;
+
+import java.time.LocalDateTime;
+
+/**
+ * 청크 임베딩 캐시 - (모델명 + 청크 텍스트) 해시 기준
+ */
+@Entity
+@Table(name = "embedding_cache")
+@Getter
+@Setter
+@NoArgsConstructor
+public class EmbeddingCacheEntry {
+
+    // SHA-256(모델명 + 텍스트) hex
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+
+    @Column(nullable = false)
+    private String model;
+
+    // 모델마다 차원이 다를 수 있어 차원 제한 없는 vector
+    @Column(nullable = false, columnDefinition = "vector")
+    @Type(PgVectorType.class)
+    private float[] embedding;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
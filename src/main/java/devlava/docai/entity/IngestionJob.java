@@ -0,0 +1,96 @@
+package devlava.docai.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 문서 벡터화 작업 큐 (DB 기반)
+ */
+@Entity
+@Table(name = "ingestion_jobs",
+        indexes = @Index(name = "idx_ingestion_jobs_status", columnList = "status, id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class IngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 문서 삭제 시 작업 이력과 독립적으로 지울 수 있도록 FK 없이 ID만 보관
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    // 기존 행이 있는 테이블에 추가된 컬럼이라 nullable (null은 INDEX로 취급)
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private IngestionJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IngestionJobStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "total_chunks", nullable = false)
+    private int totalChunks;
+
+    @Column(name = "processed_chunks", nullable = false)
+    private int processedChunks;
+
+    // 재색인 작업의 교체 전 파일 정보 - 성공하면 이전 파일 삭제, 끝내 실패하면 문서를 이전 파일로 되돌림
+    @Column(name = "previous_file_path")
+    private String previousFilePath;
+
+    @Column(name = "previous_file_name")
+    private String previousFileName;
+
+    @Column(name = "previous_content_type")
+    private String previousContentType;
+
+    @Column(name = "previous_file_size")
+    private Long previousFileSize;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // 재시도 대기 중이면 이 시각 이후에만 선점 (null이면 즉시)
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public boolean isReindex() {
+        return type == IngestionJobType.REINDEX;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (type == null) {
+            type = IngestionJobType.INDEX;
+        }
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
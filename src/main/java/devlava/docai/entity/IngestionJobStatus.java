@@ -0,0 +1,8 @@
+package devlava.docai.entity;
+
+public enum IngestionJobStatus {
+    PENDING,    // 대기 중 (워커 선점 전)
+    RUNNING,    // 벡터 처리 중
+    COMPLETED,  // 처리 완료
+    FAILED      // 재시도 횟수 초과로 실패
+}
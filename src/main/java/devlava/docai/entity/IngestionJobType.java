@@ -0,0 +1,6 @@
+package devlava.docai.entity;
+
+public enum IngestionJobType {
+    INDEX,      // 기존 벡터를 모두 지우고 새로 임베딩
+    REINDEX     // 파일 교체 - 청크 내용을 비교하여 바뀐 청크만 임베딩
+}
@@ -0,0 +1,7 @@
+package devlava.docai.entity;
+
+public enum UploadSessionStatus {
+    IN_PROGRESS,    // 청크 수신 중
+    COMPLETED,      // 문서 등록 완료
+    EXPIRED         // 오래 갱신되지 않아 정리됨 (기록 중이던 파일 삭제)
+}
@@ -1,16 +1,20 @@
 package devlava.docai.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import devlava.docai.vector.PgVectorType;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
+import org.hibernate.annotations.Type;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "vector_stores")
+@Table(name = "vector_stores",
+        indexes = {
+                @Index(name = "idx_vector_stores_document", columnList = "document_id, chunk_index"),
+                @Index(name = "idx_vector_stores_category", columnList = "category_id")
+        })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,16 +29,25 @@ public class VectorStore {
     @JsonBackReference
     private Document document;
 
+    // 카테고리 필터 검색용 비정규화 컬럼 (documents 조인 없이 필터링)
+    // 기존 행이 있는 테이블에 추가된 컬럼이라 nullable, 기동 시 VectorIndexInitializer가 채움
+    @Column(name = "category_id")
+    private Long categoryId;
+
     @Column(name = "chunk_index", nullable = false)
     private Integer chunkIndex;
 
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
-    // PostgreSQL pgvector 타입을 byte array로 처리
+    // 어휘 검색용 bigram tsvector - VectorStoreBulkWriter가 저장 시 직접 기록 (엔티티로는 쓰지 않음)
+    @Column(name = "lexical_terms", columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String lexicalTerms;
+
+    // PostgreSQL pgvector 타입을 float[]로 직접 매핑 (바이너리 송수신)
     @Column(name = "embedding", columnDefinition = "vector(768)")
-    @JdbcTypeCode(SqlTypes.VARBINARY)  // SqlTypes.OTHER → SqlTypes.VARBINARY
-    private byte[] embedding;  // String → byte[]
+    @Type(PgVectorType.class)
+    private float[] embedding;
 
     @Column(columnDefinition = "jsonb")
     private String metadata;
@@ -0,0 +1,84 @@
+package devlava.docai.lexical;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 형태소 분석 없이 쓰는 한국어용 어휘 토큰화
+ * - 한글/한자/가나 구간은 2글자씩 겹치는 bigram (한 글자 구간은 그대로)
+ * - 그 외 문자/숫자 구간(서식 번호, 제품 코드 등)은 소문자로 통째로 사용, 한 글자 영문은 제외
+ * - 문장부호와 공백은 구분자
+ */
+public final class BigramTokenizer {
+
+    // 너무 긴 영숫자 구간(해시, base64 등)은 검색어로 쓰이지 않으므로 잘라냄
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private BigramTokenizer() {
+    }
+
+    /**
+     * 본문 순서대로의 토큰 목록 (중복 포함)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+
+            boolean cjk = isCjk(codePoint);
+            int start = i;
+            while (i < length) {
+                int next = text.codePointAt(i);
+                if (!Character.isLetterOrDigit(next) || isCjk(next) != cjk) {
+                    break;
+                }
+                i += Character.charCount(next);
+            }
+            String run = text.substring(start, i);
+            if (cjk) {
+                addBigrams(run, tokens);
+            } else {
+                addWord(run, tokens);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addBigrams(String run, List<String> tokens) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokens.add(run);
+            return;
+        }
+        for (int j = 0; j + 1 < codePoints.length; j++) {
+            tokens.add(new String(codePoints, j, 2));
+        }
+    }
+
+    private static void addWord(String run, List<String> tokens) {
+        if (run.length() == 1 && !Character.isDigit(run.charAt(0))) {
+            return;
+        }
+        String word = run.toLowerCase(Locale.ROOT);
+        tokens.add(word.length() > MAX_TOKEN_LENGTH ? word.substring(0, MAX_TOKEN_LENGTH) : word);
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HANGUL
+                || script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA;
+    }
+}
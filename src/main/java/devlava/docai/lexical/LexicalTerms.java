@@ -0,0 +1,160 @@
+package devlava.docai.lexical;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 청크 본문의 어휘 토큰을 PostgreSQL tsvector 값으로 변환 (vector_stores.lexical_terms)
+ * - 토큰화는 BigramTokenizer로 Java에서 하고, DB는 토큰을 그대로 lexeme으로 저장 (to_tsvector 재분석 없음)
+ * - GIN 인덱스가 lexeme별 압축 posting list를 유지하므로 별도 역색인은 두지 않음
+ * - 바이너리 포맷(COPY용): lexeme 수(int32) + [UTF-8 lexeme + NUL + 위치 수(int16) + 위치(int16) * n]
+ */
+public final class LexicalTerms {
+
+    // tsvector 위치 최대값 (14비트), lexeme당 최대 위치 수
+    private static final int MAX_POSITION = (1 << 14) - 1;
+    private static final int MAX_POSITIONS_PER_LEXEME = 256;
+
+    // 질문에서 제외할 bigram - 어미/조사/질문 상투어에서 생겨 거의 모든 청크에 있는 토큰
+    // (OR 검색이라 하나만 맞아도 후보가 되므로 이런 토큰이 있으면 어휘 검색 후보가 무의미해짐)
+    // 저장하는 tsvector에는 그대로 두어 목록을 바꿔도 다시 색인할 필요 없음
+    private static final Set<String> QUERY_STOP_TERMS = Set.of(
+            "니다", "입니", "습니", "합니", "됩니", "있습", "없습", "했습",
+            "하는", "있는", "없는", "되는", "하고", "하여", "해서", "에서", "으로", "에게", "에는", "에도",
+            "이다", "한다", "있다", "된다", "것이", "것은", "것을", "대한", "대해", "관한",
+            "그리", "리고", "하지", "지만", "또는", "그러", "러나",
+            "알려", "려주", "주세", "세요", "해주", "무엇", "인가", "인지", "어떻", "떻게", "어떤",
+            "나요", "가요", "까요", "할까", "어디", "언제", "뭐야", "뭔가");
+
+    private record Lexeme(byte[] bytes, String text, int[] positions) {
+    }
+
+    // 토큰의 등장 위치 (오름차순, 최대 MAX_POSITIONS_PER_LEXEME개)
+    private static final class Positions {
+        private int[] values = new int[4];
+        private int count;
+
+        void add(int position) {
+            if (count == MAX_POSITIONS_PER_LEXEME) {
+                return;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(count * 2, MAX_POSITIONS_PER_LEXEME));
+            }
+            values[count++] = position;
+        }
+    }
+
+    // lexeme은 tsvector 정렬 순서(UTF-8 바이트 사전순)
+    private final List<Lexeme> lexemes;
+
+    private LexicalTerms(List<Lexeme> lexemes) {
+        this.lexemes = lexemes;
+    }
+
+    public static LexicalTerms of(String text) {
+        Map<String, Positions> positions = new HashMap<>();
+        int position = 0;
+        for (String token : BigramTokenizer.tokenize(text)) {
+            position++;
+            Positions list = positions.computeIfAbsent(token, key -> new Positions());
+            if (position <= MAX_POSITION) {
+                list.add(position);
+            }
+        }
+
+        List<Lexeme> lexemes = new ArrayList<>(positions.size());
+        positions.forEach((token, list) -> lexemes.add(new Lexeme(token.getBytes(StandardCharsets.UTF_8), token,
+                Arrays.copyOf(list.values, list.count))));
+        lexemes.sort((a, b) -> Arrays.compareUnsigned(a.bytes(), b.bytes()));
+        return new LexicalTerms(lexemes);
+    }
+
+    /**
+     * 질문을 같은 방식으로 토큰화한 tsquery 리터럴 ('a' | 'b' ...) - 불용 bigram을 빼고 남은 토큰이 없으면 null
+     */
+    public static String toTsquery(String query, int maxTerms) {
+        Set<String> terms = new LinkedHashSet<>(BigramTokenizer.tokenize(query));
+        terms.removeAll(QUERY_STOP_TERMS);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        int added = 0;
+        for (String term : terms) {
+            if (added == maxTerms) {
+                break;
+            }
+            if (added > 0) {
+                sb.append(" | ");
+            }
+            appendQuoted(sb, term);
+            added++;
+        }
+        return sb.toString();
+    }
+
+    public int size() {
+        return lexemes.size();
+    }
+
+    public int binaryLength() {
+        int length = 4;
+        for (Lexeme lexeme : lexemes) {
+            length += lexeme.bytes().length + 1 + 2 + lexeme.positions().length * 2;
+        }
+        return length;
+    }
+
+    /**
+     * tsvector 바이너리 포맷으로 기록 (COPY BINARY)
+     */
+    public void writeBinary(ByteBuffer buffer) {
+        buffer.putInt(lexemes.size());
+        for (Lexeme lexeme : lexemes) {
+            buffer.put(lexeme.bytes());
+            buffer.put((byte) 0);
+            buffer.putShort((short) lexeme.positions().length);
+            for (int position : lexeme.positions()) {
+                buffer.putShort((short) position);
+            }
+        }
+    }
+
+    /**
+     * tsvector 텍스트 포맷 ('lexeme':1,3 ...) - CAST(? AS tsvector)로 바인딩
+     */
+    public String toLiteral() {
+        StringBuilder sb = new StringBuilder();
+        for (Lexeme lexeme : lexemes) {
+            if (!sb.isEmpty()) {
+                sb.append(' ');
+            }
+            appendQuoted(sb, lexeme.text());
+            int[] positions = lexeme.positions();
+            for (int i = 0; i < positions.length; i++) {
+                sb.append(i == 0 ? ':' : ',').append(positions[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendQuoted(StringBuilder sb, String text) {
+        sb.append('\'');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\'' || c == '\\') {
+                sb.append(c);
+            }
+            sb.append(c);
+        }
+        sb.append('\'');
+    }
+}
@@ -0,0 +1,279 @@
+package devlava.docai.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * LLM 호출 입장 제어 - SearchService와 chat model 사이에서 동시 생성 수를 제한
+ * - 동시에 생성할 수 있는 slot 수만큼만 Ollama에 요청하고, 나머지는 제한된 대기열에서 대기
+ * - 대기열은 카테고리(테넌트)별 가중 공정 큐(WFQ): 요청마다 가상 종료 시각 = max(가상 시각, 카테고리의 마지막 종료 시각) + 1/가중치,
+ *   종료 시각이 가장 이른 요청부터 slot 배정 - 한 카테고리가 요청을 몰아 보내도 다른 카테고리가 밀리지 않음
+ * - 대기열 전체가 차면 503, 카테고리 하나가 max-queue-per-category를 넘으면 429로 즉시 거절
+ * - 요청마다 max-wait 안에 slot을 받지 못하면 503 (Retry-After 포함)
+ */
+@Component
+@Slf4j
+public class LlmGateway {
+
+    private enum State {
+        WAITING, GRANTED, DONE
+    }
+
+    // 대기/실행 중인 요청 하나
+    private static final class Ticket {
+        private final Long categoryId;
+        private final long sequence;
+        private final double startTag;
+        private final double finishTag;
+        private final long enqueuedAt = System.nanoTime();
+        private final long deadline;
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+        private State state = State.WAITING;
+
+        private Ticket(Long categoryId, long sequence, double startTag, double finishTag, long deadline) {
+            this.categoryId = categoryId;
+            this.sequence = sequence;
+            this.startTag = startTag;
+            this.finishTag = finishTag;
+            this.deadline = deadline;
+        }
+    }
+
+    // 카테고리별 대기 상태
+    private static final class Lane {
+        private double lastFinish;
+        private int queued;
+    }
+
+    private final OllamaChatModel chatModel;
+    private final int slots;
+    private final int maxQueue;
+    private final int maxQueuePerCategory;
+    private final Duration maxWait;
+    private final long retryAfterSeconds;
+    private final Map<Long, Double> categoryWeights;
+
+    private final Object lock = new Object();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>(
+            Comparator.comparingDouble((Ticket ticket) -> ticket.finishTag).thenComparingLong(ticket -> ticket.sequence));
+    private final Map<Long, Lane> lanes = new HashMap<>();
+    private double virtualTime;
+    private long sequence;
+    private int active;
+
+    private final Timer waitTimer;
+    private final MeterRegistry meterRegistry;
+
+    public LlmGateway(OllamaChatModel chatModel,
+                      MeterRegistry meterRegistry,
+                      @Value("${docai.llm.gateway.slots:2}") int slots,
+                      @Value("${docai.llm.gateway.max-queue:64}") int maxQueue,
+                      @Value("${docai.llm.gateway.max-queue-per-category:16}") int maxQueuePerCategory,
+                      @Value("${docai.llm.gateway.max-wait:30s}") Duration maxWait,
+                      @Value("${docai.llm.gateway.retry-after:5s}") Duration retryAfter,
+                      @Value("${docai.llm.gateway.category-weights:}") String categoryWeights) {
+        this.chatModel = chatModel;
+        this.meterRegistry = meterRegistry;
+        this.slots = Math.max(slots, 1);
+        this.maxQueue = Math.max(maxQueue, 0);
+        this.maxQueuePerCategory = Math.max(maxQueuePerCategory, 1);
+        this.maxWait = maxWait;
+        this.retryAfterSeconds = Math.max(retryAfter.toSeconds(), 1);
+        this.categoryWeights = parseWeights(categoryWeights);
+
+        this.waitTimer = Timer.builder("docai.llm.gateway.wait")
+                .description("Time spent waiting for an LLM generation slot")
+                .register(meterRegistry);
+        Gauge.builder("docai.llm.gateway.queue.depth", this, LlmGateway::queueDepth)
+                .register(meterRegistry);
+        Gauge.builder("docai.llm.gateway.active", this, LlmGateway::activeSlots)
+                .register(meterRegistry);
+    }
+
+    /**
+     * slot을 받을 때까지 대기한 뒤 동기 호출
+     */
+    public String call(Long categoryId, String prompt) {
+        Ticket ticket = enqueue(categoryId);
+        try {
+            await(ticket);
+            return chatModel.call(prompt);
+        } finally {
+            finish(ticket);
+        }
+    }
+
+    /**
+     * slot을 받으면 스트림 시작 - 스트림이 끝나거나 취소되면 slot 반환, 대기 중 취소되면 대기열에서 제거
+     */
+    public Flux<String> stream(Long categoryId, String prompt) {
+        return Flux.defer(() -> {
+            Ticket ticket = enqueue(categoryId);
+            return Mono.fromFuture(ticket.granted, true)
+                    .timeout(remaining(ticket))
+                    .onErrorMap(TimeoutException.class, e -> timedOut(ticket))
+                    .thenMany(Flux.defer(() -> chatModel.stream(prompt)))
+                    .doFinally(signal -> finish(ticket));
+        });
+    }
+
+    public int queueDepth() {
+        synchronized (lock) {
+            return waiting.size();
+        }
+    }
+
+    public int activeSlots() {
+        synchronized (lock) {
+            return active;
+        }
+    }
+
+    private Ticket enqueue(Long categoryId) {
+        List<Ticket> grants;
+        Ticket ticket;
+        synchronized (lock) {
+            Lane lane = lanes.computeIfAbsent(categoryId, id -> new Lane());
+            if (active >= slots) {
+                if (waiting.size() >= maxQueue) {
+                    throw reject(HttpStatus.SERVICE_UNAVAILABLE, "queue_full",
+                            "답변 생성 요청이 많아 잠시 후 다시 시도해주세요.");
+                }
+                if (lane.queued >= maxQueuePerCategory) {
+                    throw reject(HttpStatus.TOO_MANY_REQUESTS, "category_queue_full",
+                            "해당 카테고리의 답변 생성 요청이 너무 많습니다. 잠시 후 다시 시도해주세요.");
+                }
+            }
+
+            double startTag = Math.max(virtualTime, lane.lastFinish);
+            double finishTag = startTag + 1.0 / categoryWeights.getOrDefault(categoryId, 1.0);
+            ticket = new Ticket(categoryId, sequence++, startTag, finishTag, System.nanoTime() + maxWait.toNanos());
+            lane.lastFinish = finishTag;
+            lane.queued++;
+            waiting.add(ticket);
+            grants = dispatch();
+        }
+        grants.forEach(granted -> granted.granted.complete(null));
+        return ticket;
+    }
+
+    private void await(Ticket ticket) {
+        try {
+            ticket.granted.get(remaining(ticket).toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw timedOut(ticket);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an LLM slot", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("LLM slot wait failed", e.getCause());
+        }
+    }
+
+    // 대기 중이면 대기열에서 제거, 실행 중이면 slot 반환 (여러 번 호출해도 한 번만 반영)
+    private void finish(Ticket ticket) {
+        List<Ticket> grants;
+        synchronized (lock) {
+            switch (ticket.state) {
+                case WAITING -> {
+                    waiting.remove(ticket);
+                    Lane lane = lanes.get(ticket.categoryId);
+                    lane.queued--;
+                    // 마지막으로 넣은 요청이 빠지면 그 몫만큼 카테고리 종료 시각을 되돌림
+                    if (lane.lastFinish == ticket.finishTag) {
+                        lane.lastFinish = ticket.startTag;
+                    }
+                }
+                case GRANTED -> active--;
+                case DONE -> {
+                    return;
+                }
+            }
+            ticket.state = State.DONE;
+            grants = dispatch();
+            pruneIdleLanes();
+        }
+        grants.forEach(granted -> granted.granted.complete(null));
+    }
+
+    // lock 안에서 호출 - 빈 slot만큼 종료 시각이 가장 이른 요청에 배정 (future 완료는 lock 밖에서)
+    private List<Ticket> dispatch() {
+        List<Ticket> grants = new ArrayList<>();
+        while (active < slots && !waiting.isEmpty()) {
+            Ticket next = waiting.poll();
+            next.state = State.GRANTED;
+            active++;
+            lanes.get(next.categoryId).queued--;
+            virtualTime = Math.max(virtualTime, next.startTag);
+            waitTimer.record(System.nanoTime() - next.enqueuedAt, TimeUnit.NANOSECONDS);
+            grants.add(next);
+        }
+        return grants;
+    }
+
+    // 대기 요청이 없고 가상 시각이 이미 지난 카테고리는 상태를 유지할 필요 없음
+    private void pruneIdleLanes() {
+        if (lanes.size() > 1024) {
+            lanes.values().removeIf(lane -> lane.queued == 0 && lane.lastFinish <= virtualTime);
+        }
+    }
+
+    private Duration remaining(Ticket ticket) {
+        return Duration.ofNanos(Math.max(ticket.deadline - System.nanoTime(), 0));
+    }
+
+    private LlmRejectedException timedOut(Ticket ticket) {
+        log.warn("LLM slot wait timed out after {} for category {}", maxWait, ticket.categoryId);
+        return reject(HttpStatus.SERVICE_UNAVAILABLE, "wait_timeout",
+                "답변 생성 대기 시간이 초과되었습니다. 잠시 후 다시 시도해주세요.");
+    }
+
+    private LlmRejectedException reject(HttpStatus status, String reason, String message) {
+        Counter.builder("docai.llm.gateway.rejections")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new LlmRejectedException(status, reason, retryAfterSeconds, message);
+    }
+
+    // "카테고리ID=가중치,..." (예: "1=2,7=0.5"), 지정하지 않은 카테고리는 1
+    private static Map<Long, Double> parseWeights(String value) {
+        Map<Long, Double> weights = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return weights;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid category weight entry: " + entry);
+            }
+            double weight = Double.parseDouble(parts[1].trim());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Category weight must be positive: " + entry);
+            }
+            weights.put(Long.valueOf(parts[0].trim()), weight);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,22 @@
+package devlava.docai.llm;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * LLM 게이트웨이가 요청을 받지 않음 - 대기열 포화(503), 카테고리 몫 초과(429), 대기 시간 초과(503)
+ */
+@Getter
+public class LlmRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final String reason;
+    private final long retryAfterSeconds;
+
+    public LlmRejectedException(HttpStatus status, String reason, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
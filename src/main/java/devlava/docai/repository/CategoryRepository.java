@@ -32,4 +32,20 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
             "LEFT JOIN FETCH c.documents " +
             "WHERE c.id = :id")
     Optional<Category> findByIdWithDocuments(@Param("id") Long id);
+
+    // 자신과 모든 하위 카테고리 ID (깊이 제한 없음)
+    @Query(value = "WITH RECURSIVE subtree AS (" +
+            "SELECT id FROM categories WHERE id = :id " +
+            "UNION ALL " +
+            "SELECT c.id FROM categories c JOIN subtree s ON c.parent_id = s.id" +
+            ") SELECT id FROM subtree", nativeQuery = true)
+    List<Long> findSubtreeIds(@Param("id") Long id);
+
+    // 자신과 모든 상위 카테고리 ID
+    @Query(value = "WITH RECURSIVE path AS (" +
+            "SELECT id, parent_id FROM categories WHERE id = :id " +
+            "UNION ALL " +
+            "SELECT c.id, c.parent_id FROM categories c JOIN path p ON c.id = p.parent_id" +
+            ") SELECT id FROM path", nativeQuery = true)
+    List<Long> findAncestorIds(@Param("id") Long id);
 }
\ No newline at end of file
@@ -1,10 +1,23 @@
 package devlava.docai.repository;
 
 import devlava.docai.entity.Document;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findByCategoryId(Long categoryId);
+
+    @Query("SELECT d FROM Document d LEFT JOIN FETCH d.category WHERE d.id = :id")
+    Optional<Document> findByIdWithCategory(@Param("id") Long id);
+
+    // 문서 행 잠금 (SELECT ... FOR UPDATE) - 진행 중 작업 확인과 작업 등록/삭제를 문서 단위로 직렬화
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM Document d LEFT JOIN FETCH d.category WHERE d.id = :id")
+    Optional<Document> findByIdForUpdate(@Param("id") Long id);
 }
\ No newline at end of file
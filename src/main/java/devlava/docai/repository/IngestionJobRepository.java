@@ -0,0 +1,50 @@
+package devlava.docai.repository;
+
+import devlava.docai.entity.IngestionJob;
+import devlava.docai.entity.IngestionJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    // 다음 대기 작업 선점 - 다른 워커가 잠근 행과 재시도 대기 시각이 지나지 않은 행은 건너뜀
+    @Query(value = """
+        SELECT * FROM ingestion_jobs
+        WHERE status = 'PENDING'
+          AND (next_attempt_at IS NULL OR next_attempt_at <= :now)
+        ORDER BY id
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<IngestionJob> findNextPendingForUpdate(@Param("now") LocalDateTime now);
+
+    // 진행률 갱신
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.processedChunks = :processed, j.totalChunks = :total, " +
+            "j.updatedAt = :now WHERE j.id = :id")
+    int updateProgress(@Param("id") Long id,
+                       @Param("processed") int processed,
+                       @Param("total") int total,
+                       @Param("now") LocalDateTime now);
+
+    // 중단된 작업을 다시 대기 상태로 (서버 재시작 시)
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.status = :to WHERE j.status = :from")
+    int updateStatus(@Param("from") IngestionJobStatus from, @Param("to") IngestionJobStatus to);
+
+    // 문서에 대기 중이거나 처리 중인 작업이 있는지
+    boolean existsByDocumentIdAndStatusIn(Long documentId, Collection<IngestionJobStatus> statuses);
+
+    // 문서별 작업 삭제
+    @Modifying
+    @Query("DELETE FROM IngestionJob j WHERE j.documentId = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+}
@@ -0,0 +1,14 @@
+package devlava.docai.repository;
+
+/**
+ * 유사도 검색 결과 프로젝션 - 답변 생성에 필요한 컬럼만 (임베딩 제외, 문서명은 조인으로 함께 조회)
+ * distance는 쿼리 벡터와의 코사인 거리 (0 = 동일, 값이 작을수록 유사)
+ */
+public record SimilarChunk(Long id, Long documentId, String fileName, int chunkIndex, String content,
+                           double distance) {
+
+    // 코사인 유사도 (1 - 거리)
+    public double similarity() {
+        return 1.0 - distance;
+    }
+}
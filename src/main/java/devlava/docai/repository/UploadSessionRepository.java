@@ -0,0 +1,16 @@
+package devlava.docai.repository;
+
+import devlava.docai.entity.UploadSession;
+import devlava.docai.entity.UploadSessionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    // 마지막 갱신 이후 오래 방치된 세션 (만료 정리용)
+    List<UploadSession> findByStatusAndUpdatedAtBefore(UploadSessionStatus status, LocalDateTime cutoff);
+}
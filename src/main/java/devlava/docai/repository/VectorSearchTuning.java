@@ -0,0 +1,11 @@
+package devlava.docai.repository;
+
+/**
+ * 요청별 ANN 검색 파라미터 - null이면 설정 기본값 사용
+ * efSearch: hnsw.ef_search (클수록 재현율↑ 지연↑), probes: ivfflat.probes
+ * documentLimit: 2단계 검색에서 centroid로 먼저 고를 문서 수 (0이면 청크 전체 ANN 검색, 양수면 ANN 대신 정확 정렬)
+ */
+public record VectorSearchTuning(Integer efSearch, Integer probes, Integer documentLimit) {
+
+    public static final VectorSearchTuning DEFAULT = new VectorSearchTuning(null, null, null);
+}
@@ -0,0 +1,340 @@
+package devlava.docai.repository;
+
+import devlava.docai.lexical.LexicalTerms;
+import devlava.docai.vector.PgVector;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * vector_stores 대량 저장
+ * - 배치 하나를 PostgreSQL COPY (FORMAT BINARY) 한 번으로 전송하고 배치마다 커밋
+ * - COPY를 쓸 수 없거나 실패하면 해당 배치만 JDBC batch INSERT로 다시 저장
+ * - 본문의 어휘 검색용 tsvector(lexical_terms)도 함께 기록
+ * - 재색인의 새 청크는 대기 테이블(vector_stores_pending)에 쌓았다가 applyReindex에서 한 트랜잭션으로 교체
+ *   (검색에는 교체 전까지 기존 청크만 보임)
+ */
+@Repository
+@Slf4j
+public class VectorStoreBulkWriter {
+
+    private static final String TABLE = "vector_stores";
+    private static final String PENDING_TABLE = "vector_stores_pending";
+
+    private static final String COLUMNS =
+            "document_id, category_id, chunk_index, content, lexical_terms, embedding, metadata, created_at, updated_at";
+
+    private static final String COPY_SQL = "COPY %s (" + COLUMNS + ") FROM STDIN (FORMAT BINARY)";
+
+    // 문서 삭제 시 남은 대기 청크도 함께 삭제되도록 FK만 추가 (인덱스는 복사하지 않음)
+    private static final String CREATE_PENDING_SQL = "CREATE TABLE IF NOT EXISTS " + PENDING_TABLE +
+            " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING IDENTITY, " +
+            "FOREIGN KEY (document_id) REFERENCES documents (id) ON DELETE CASCADE)";
+
+    private static final String PROMOTE_PENDING_SQL = "INSERT INTO " + TABLE + " (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM " + PENDING_TABLE + " WHERE document_id = ?";
+
+    private static final String STORED_CHUNKS_SQL = "SELECT id, chunk_index, " +
+            "encode(sha256(convert_to(content, 'UTF8')), 'hex') AS content_hash " +
+            "FROM vector_stores WHERE document_id = ? ORDER BY chunk_index";
+
+    private static final String RENUMBER_SQL = "UPDATE vector_stores " +
+            "SET chunk_index = ?, metadata = CAST(? AS jsonb), updated_at = ? WHERE id = ?";
+
+    // 정규화한 청크 임베딩의 평균 (코사인 검색이므로 크기는 무관, 방향만 사용)
+    private static final String CENTROID_SQL = "UPDATE documents SET centroid = " +
+            "(SELECT avg(l2_normalize(embedding)) FROM vector_stores WHERE document_id = ?) WHERE id = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO %s (" + COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, CAST(? AS tsvector), ?, CAST(? AS jsonb), ?, ?)";
+
+    private static final String LEXICAL_TERMS_SQL = "UPDATE vector_stores SET lexical_terms = CAST(? AS tsvector) WHERE id = ?";
+
+    // COPY BINARY 헤더: 시그니처 + flags(0) + 헤더 확장 길이(0)
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final int FIELD_COUNT = 9;
+    private static final byte JSONB_VERSION = 1;
+
+    /**
+     * 저장할 청크 한 건
+     */
+    public record ChunkRow(Long documentId, Long categoryId, int chunkIndex, String content, float[] embedding,
+                           String metadata) {
+    }
+
+    /**
+     * 이미 저장된 청크 (재색인 비교용) - contentHash는 content의 SHA-256 hex
+     */
+    public record StoredChunk(Long id, int chunkIndex, String contentHash) {
+    }
+
+    /**
+     * 재색인 시 유지되는 청크의 새 순번과 메타데이터
+     */
+    public record ChunkRenumber(Long id, int chunkIndex, String metadata) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean copyEnabled;
+    private volatile boolean copySupported = true;
+    private volatile boolean pendingTableReady;
+
+    public VectorStoreBulkWriter(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${docai.vector-store.copy-enabled:true}") boolean copyEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.copyEnabled = copyEnabled;
+    }
+
+    /**
+     * 배치 하나를 독립 트랜잭션으로 저장 (성공 시 즉시 커밋)
+     */
+    public int writeBatch(List<ChunkRow> rows) {
+        return writeBatch(TABLE, rows);
+    }
+
+    /**
+     * 재색인의 새 청크를 대기 테이블에 저장 (applyReindex 전까지 검색되지 않음)
+     */
+    public int writePendingBatch(List<ChunkRow> rows) {
+        return writeBatch(PENDING_TABLE, rows);
+    }
+
+    /**
+     * 문서의 기존 벡터 삭제 (독립 트랜잭션)
+     */
+    public int deleteByDocumentId(Long documentId) {
+        Integer deleted = transactionTemplate.execute(status ->
+                jdbcTemplate.update("DELETE FROM vector_stores WHERE document_id = ?", documentId));
+        return deleted != null ? deleted : 0;
+    }
+
+    /**
+     * 대기 테이블 준비 후 문서의 대기 청크 삭제 (이전 시도에서 남은 청크 정리, 독립 트랜잭션)
+     */
+    public int deletePendingByDocumentId(Long documentId) {
+        ensurePendingTable();
+        Integer deleted = transactionTemplate.execute(status ->
+                jdbcTemplate.update("DELETE FROM " + PENDING_TABLE + " WHERE document_id = ?", documentId));
+        return deleted != null ? deleted : 0;
+    }
+
+    /**
+     * 문서에 저장된 청크의 내용 해시 목록 (내용은 DB에서 해시만 계산하여 전송량 최소화)
+     */
+    public List<StoredChunk> findStoredChunks(Long documentId) {
+        return jdbcTemplate.query(STORED_CHUNKS_SQL,
+                (rs, rowNum) -> new StoredChunk(rs.getLong("id"), rs.getInt("chunk_index"), rs.getString("content_hash")),
+                documentId);
+    }
+
+    /**
+     * 재색인 마무리 - 사라진 청크 삭제, 유지된 청크 순번 갱신, 대기 청크 이동을 한 트랜잭션으로 반영
+     * (검색은 교체 전 또는 후의 청크만 보며 두 버전이 섞이지 않음)
+     */
+    public void applyReindex(Long documentId, List<Long> removedIds, List<ChunkRenumber> renumbers) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!removedIds.isEmpty()) {
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement("DELETE FROM vector_stores WHERE id = ANY (?)");
+                    ps.setArray(1, connection.createArrayOf("bigint", removedIds.toArray()));
+                    return ps;
+                });
+            }
+            jdbcTemplate.batchUpdate(RENUMBER_SQL, renumbers, 1000, (ps, renumber) -> {
+                ps.setInt(1, renumber.chunkIndex());
+                ps.setString(2, renumber.metadata());
+                ps.setTimestamp(3, now);
+                ps.setLong(4, renumber.id());
+            });
+            jdbcTemplate.update(PROMOTE_PENDING_SQL, documentId);
+            jdbcTemplate.update("DELETE FROM " + PENDING_TABLE + " WHERE document_id = ?", documentId);
+        });
+    }
+
+    /**
+     * 문서 centroid를 현재 저장된 청크 기준으로 다시 계산 (독립 트랜잭션)
+     */
+    public void refreshCentroid(Long documentId) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(CENTROID_SQL, documentId, documentId));
+    }
+
+    /**
+     * id 순서로 afterId 다음의 lexical_terms가 비어 있는 청크를 최대 limit개 채움 (어휘 검색 도입 이전 데이터용)
+     * 마지막으로 처리한 id 반환, 더 없으면 -1
+     */
+    public long backfillLexicalTerms(long afterId, int limit) {
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT id, content FROM vector_stores WHERE id > ? AND lexical_terms IS NULL ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new Object[]{rs.getLong("id"), rs.getString("content")}, afterId, limit);
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(LEXICAL_TERMS_SQL, rows, rows.size(), (ps, row) -> {
+                    ps.setString(1, LexicalTerms.of((String) row[1]).toLiteral());
+                    ps.setLong(2, (Long) row[0]);
+                }));
+        return (Long) rows.get(rows.size() - 1)[0];
+    }
+
+    private int writeBatch(String table, List<ChunkRow> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (copyEnabled && copySupported) {
+            try {
+                Long copied = transactionTemplate.execute(status -> copyIn(table, rows, now));
+                return copied != null ? copied.intValue() : 0;
+            } catch (Exception e) {
+                log.warn("COPY of {} vector rows failed, falling back to batch INSERT: {}", rows.size(), e.getMessage());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> batchInsert(table, rows, now));
+        return rows.size();
+    }
+
+    // vector_stores 구조를 따라 만들므로 ddl-auto가 테이블을 만든 뒤 처음 사용할 때 생성
+    private void ensurePendingTable() {
+        if (!pendingTableReady) {
+            jdbcTemplate.execute(CREATE_PENDING_SQL);
+            pendingTableReady = true;
+        }
+    }
+
+    private Long copyIn(String table, List<ChunkRow> rows, LocalDateTime now) {
+        byte[] payload = encodeBinaryCopy(rows, now);
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            PGConnection pgConnection;
+            try {
+                pgConnection = connection.unwrap(PGConnection.class);
+            } catch (SQLException e) {
+                copySupported = false;
+                throw e;
+            }
+            try {
+                return pgConnection.getCopyAPI().copyIn(String.format(COPY_SQL, table), new ByteArrayInputStream(payload));
+            } catch (IOException e) {
+                throw new SQLException("COPY stream failed", e);
+            }
+        });
+    }
+
+    private void batchInsert(String table, List<ChunkRow> rows, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(String.format(INSERT_SQL, table), rows, rows.size(), (ps, row) -> {
+            PgVector.register(ps.getConnection());
+            ps.setLong(1, row.documentId());
+            ps.setObject(2, row.categoryId(), Types.BIGINT);
+            ps.setInt(3, row.chunkIndex());
+            ps.setString(4, row.content());
+            ps.setString(5, LexicalTerms.of(row.content()).toLiteral());
+            ps.setObject(6, new PgVector(row.embedding()));
+            ps.setString(7, row.metadata());
+            ps.setTimestamp(8, timestamp);
+            ps.setTimestamp(9, timestamp);
+        });
+    }
+
+    static byte[] encodeBinaryCopy(List<ChunkRow> rows, LocalDateTime now) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(rows.size() * 8192);
+            DataOutputStream out = new DataOutputStream(buffer);
+
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            long micros = ChronoUnit.MICROS.between(PG_EPOCH, now);
+            for (ChunkRow row : rows) {
+                out.writeShort(FIELD_COUNT);
+
+                // document_id (int8)
+                out.writeInt(8);
+                out.writeLong(row.documentId());
+
+                // category_id (int8, 검색 필터용 비정규화 컬럼 - nullable)
+                if (row.categoryId() == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(8);
+                    out.writeLong(row.categoryId());
+                }
+
+                // chunk_index (int4)
+                out.writeInt(4);
+                out.writeInt(row.chunkIndex());
+
+                // content (text)
+                writeBytes(out, row.content().getBytes(StandardCharsets.UTF_8));
+
+                // lexical_terms (tsvector 바이너리 포맷)
+                LexicalTerms terms = LexicalTerms.of(row.content());
+                ByteBuffer lexical = ByteBuffer.allocate(terms.binaryLength());
+                terms.writeBinary(lexical);
+                writeBytes(out, lexical.array());
+
+                // embedding (pgvector 바이너리 포맷)
+                float[] embedding = row.embedding();
+                ByteBuffer vector = ByteBuffer.allocate(PgVector.binaryLength(embedding));
+                PgVector.writeBinary(embedding, vector);
+                writeBytes(out, vector.array());
+
+                // metadata (jsonb: version byte + text, nullable)
+                if (row.metadata() == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] metadata = row.metadata().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(metadata.length + 1);
+                    out.writeByte(JSONB_VERSION);
+                    out.write(metadata);
+                }
+
+                // created_at, updated_at (timestamp: 2000-01-01 기준 마이크로초)
+                out.writeInt(8);
+                out.writeLong(micros);
+                out.writeInt(8);
+                out.writeLong(micros);
+            }
+
+            out.writeShort(-1);
+            out.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode COPY payload", e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,24 @@
+package devlava.docai.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 벡터 유사도 검색 - 쿼리 벡터를 float[] 그대로 바인딩, 결과는 코사인 거리를 포함한 프로젝션
+ */
+public interface VectorStoreRepositoryCustom {
+
+    // 카테고리(들) 내 벡터 유사도 검색 (ANN 인덱스 사용, tuning으로 재현율/지연 조절)
+    List<SimilarChunk> findSimilarVectorsByCategories(float[] queryVector, Collection<Long> categoryIds, int limit,
+                                                      VectorSearchTuning tuning);
+
+    // 특정 문서 내에서 유사도 검색 (ANN 인덱스 없이 정확 검색)
+    List<SimilarChunk> findSimilarVectorsByDocument(float[] queryVector, Long documentId, int topK);
+
+    // 카테고리(들) 내 어휘(bigram) 검색 - tsquery와 맞는 청크를 ts_rank 순으로, distance는 쿼리 벡터와의 코사인 거리
+    List<SimilarChunk> findLexicalMatchesByCategories(String tsquery, float[] queryVector,
+                                                      Collection<Long> categoryIds, int limit);
+
+    // 특정 문서 내 어휘(bigram) 검색
+    List<SimilarChunk> findLexicalMatchesByDocument(String tsquery, float[] queryVector, Long documentId, int limit);
+}
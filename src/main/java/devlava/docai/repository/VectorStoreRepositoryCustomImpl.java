@@ -0,0 +1,308 @@
+package devlava.docai.repository;
+
+import devlava.docai.vector.PgVectorType;
+import devlava.docai.vector.VectorIndexType;
+import devlava.docai.vector.VectorMetric;
+import devlava.docai.vector.VectorQuantization;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.CustomType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Transactional(readOnly = true)
+public class VectorStoreRepositoryCustomImpl implements VectorStoreRepositoryCustom {
+
+    // 임베딩 컬럼은 전송하지 않고, 문서명은 조인으로 함께 조회 (청크마다 문서 지연 로딩 방지)
+    // ORDER BY는 인덱스와 같은 metric 연산자(%1$s)로 정렬하고, 점수는 상위 결과에 대해서만 코사인 거리로 계산
+    // 카테고리 필터는 vector_stores.category_id로 걸고 top-K를 먼저 뽑은 뒤 문서명 조인
+    // (필터에 조인이 끼지 않아 planner가 ANN 인덱스 또는 category_id 인덱스 + 정확 정렬 중 선택 가능)
+    private static final String CATEGORY_SQL = """
+        SELECT t.id, t.document_id, d.file_name, t.chunk_index, t.content, t.distance
+        FROM (
+            SELECT v.id, v.document_id, v.chunk_index, v.content,
+                   v.embedding <=> :queryVector AS distance,
+                   v.embedding %1$s :queryVector AS ord
+            FROM vector_stores v
+            WHERE v.category_id IN (:categoryIds)
+            ORDER BY v.embedding %1$s :queryVector
+            LIMIT :limit
+        ) t
+        JOIN documents d ON t.document_id = d.id
+        ORDER BY t.ord
+        """;
+
+    // quantization=binary: Hamming 인덱스로 후보(limit * oversample)를 뽑고 전체 벡터로 다시 정렬
+    // 후보 단계에서는 id와 임베딩만 읽고, 본문과 문서명은 최종 top-K에 대해서만 조회
+    private static final String BINARY_CATEGORY_SQL = """
+        SELECT v.id, v.document_id, d.file_name, v.chunk_index, v.content, t.distance
+        FROM (
+            SELECT c.id,
+                   c.embedding <=> :queryVector AS distance,
+                   c.embedding %1$s :queryVector AS ord
+            FROM (
+                SELECT v.id, v.embedding
+                FROM vector_stores v
+                WHERE v.category_id IN (:categoryIds)
+                ORDER BY %2$s <~> %3$s
+                LIMIT :candidates
+            ) c
+            ORDER BY ord
+            LIMIT :limit
+        ) t
+        JOIN vector_stores v ON v.id = t.id
+        JOIN documents d ON v.document_id = d.id
+        ORDER BY t.ord
+        """;
+
+    // 2단계 검색: centroid가 가까운 문서 documentLimit개(+ centroid가 아직 없는 문서)를 고른 뒤
+    // 그 문서들의 청크만 정확히 정렬 - 문서 수에 비례하는 비용으로 청크 수와 무관
+    // ANN 인덱스와 binary 재정렬 경로를 대체하므로 efSearch/probes 튜닝은 적용되지 않음 (opt-in)
+    private static final String TWO_STAGE_CATEGORY_SQL = """
+        WITH candidate_documents AS (
+            SELECT ranked.id FROM (
+                SELECT d.id
+                FROM documents d
+                WHERE d.category_id IN (:categoryIds) AND d.centroid IS NOT NULL
+                ORDER BY d.centroid %1$s :queryVector
+                LIMIT :documentLimit
+            ) ranked
+            UNION ALL
+            SELECT d.id
+            FROM documents d
+            WHERE d.category_id IN (:categoryIds) AND d.centroid IS NULL
+        )
+        SELECT v.id, v.document_id, d.file_name, v.chunk_index, v.content,
+               v.embedding <=> :queryVector AS distance
+        FROM vector_stores v
+        JOIN documents d ON v.document_id = d.id
+        WHERE v.document_id IN (SELECT id FROM candidate_documents)
+        ORDER BY v.embedding %1$s :queryVector
+        LIMIT :limit
+        """;
+
+    private static final String DOCUMENT_SQL = """
+        SELECT v.id, v.document_id, d.file_name, v.chunk_index, v.content,
+               v.embedding <=> :queryVector AS distance
+        FROM vector_stores v
+        JOIN documents d ON v.document_id = d.id
+        WHERE v.document_id = :documentId
+        ORDER BY v.embedding %1$s :queryVector
+        LIMIT :topK
+        """;
+
+    // 어휘 검색: lexical_terms GIN 인덱스로 tsquery에 맞는 청크를 찾아 ts_rank(길이 정규화) 순 상위 limit개
+    // 정렬 단계에서는 id와 점수만 다루고, 본문/임베딩은 최종 결과에 대해서만 읽음
+    private static final String LEXICAL_SQL = """
+        SELECT v.id, v.document_id, d.file_name, v.chunk_index, v.content,
+               v.embedding <=> :queryVector AS distance
+        FROM (
+            SELECT v.id, ts_rank(v.lexical_terms, q.terms, 1) AS rank
+            FROM vector_stores v
+            CROSS JOIN (SELECT CAST(:terms AS tsquery) AS terms) q
+            WHERE %1$s AND v.lexical_terms @@ q.terms
+            ORDER BY rank DESC, v.id
+            LIMIT :limit
+        ) t
+        JOIN vector_stores v ON v.id = t.id
+        JOIN documents d ON v.document_id = d.id
+        ORDER BY t.rank DESC, t.id
+        """;
+
+    // pgvector의 hnsw.ef_search 최대값
+    private static final int MAX_EF_SEARCH = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${docai.vector-store.index.type:hnsw}")
+    private VectorIndexType indexType;
+
+    @Value("${docai.vector-store.index.metric:cosine}")
+    private VectorMetric metric;
+
+    @Value("${docai.vector-store.index.quantization:none}")
+    private VectorQuantization quantization;
+
+    @Value("${docai.vector-store.index.rescore-oversample:8}")
+    private int rescoreOversample;
+
+    @Value("${spring.ai.vectorstore.pgvector.dimensions:768}")
+    private int dimensions;
+
+    @Value("${docai.search.two-stage.document-limit:0}")
+    private int defaultDocumentLimit;
+
+    @Value("${docai.vector-store.index.hnsw.ef-search:40}")
+    private int defaultEfSearch;
+
+    @Value("${docai.vector-store.index.ivfflat.probes:10}")
+    private int defaultProbes;
+
+    private volatile BasicType<float[]> vectorType;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SimilarChunk> findSimilarVectorsByCategories(float[] queryVector, Collection<Long> categoryIds,
+                                                             int limit, VectorSearchTuning tuning) {
+        if (categoryIds.isEmpty()) {
+            return List.of();
+        }
+        int documentLimit = tuning.documentLimit() != null ? tuning.documentLimit() : defaultDocumentLimit;
+        if (documentLimit > 0) {
+            List<SimilarChunk> chunks = findByCategoriesTwoStage(queryVector, categoryIds, limit, documentLimit);
+            // 고른 문서의 청크가 limit보다 적으면 (centroid 미계산 등) 평면 검색으로 대체
+            if (chunks.size() >= limit) {
+                return chunks;
+            }
+        }
+        if (quantization == VectorQuantization.BINARY) {
+            return findByCategoriesWithRescore(queryVector, categoryIds, limit, tuning);
+        }
+        applyTuning(tuning, limit);
+        List<Object[]> rows = entityManager.createNativeQuery(CATEGORY_SQL.formatted(metric.operator()))
+                .unwrap(NativeQuery.class)
+                .setParameter("queryVector", queryVector, vectorType())
+                .setParameterList("categoryIds", categoryIds)
+                .setParameter("limit", limit)
+                .getResultList();
+        return toSimilarChunks(rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SimilarChunk> findByCategoriesTwoStage(float[] queryVector, Collection<Long> categoryIds,
+                                                        int limit, int documentLimit) {
+        // 고른 문서 안에서는 ANN 인덱스 대신 정확 정렬 (인덱스 탐색 후 필터링하면 결과가 모자랄 수 있음)
+        // set_config(..., true)는 트랜잭션 범위라 실패 시에는 롤백과 함께 복구되므로 성공한 경우에만 되돌림
+        // (평면 검색으로 대체될 때 같은 트랜잭션에서 ANN 인덱스를 다시 쓸 수 있도록)
+        setLocal("enable_indexscan", "off");
+        List<Object[]> rows = entityManager.createNativeQuery(TWO_STAGE_CATEGORY_SQL.formatted(metric.operator()))
+                .unwrap(NativeQuery.class)
+                .setParameter("queryVector", queryVector, vectorType())
+                .setParameterList("categoryIds", categoryIds)
+                .setParameter("documentLimit", documentLimit)
+                .setParameter("limit", limit)
+                .getResultList();
+        setLocal("enable_indexscan", "on");
+        return toSimilarChunks(rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SimilarChunk> findByCategoriesWithRescore(float[] queryVector, Collection<Long> categoryIds,
+                                                           int limit, VectorSearchTuning tuning) {
+        int candidates = limit * Math.max(rescoreOversample, 1);
+        applyTuning(tuning, candidates);
+        String sql = BINARY_CATEGORY_SQL.formatted(metric.operator(),
+                VectorQuantization.binaryExpression("v.embedding", dimensions),
+                VectorQuantization.binaryExpression(":queryVector", dimensions));
+        List<Object[]> rows = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .setParameter("queryVector", queryVector, vectorType())
+                .setParameterList("categoryIds", categoryIds)
+                .setParameter("candidates", candidates)
+                .setParameter("limit", limit)
+                .getResultList();
+        return toSimilarChunks(rows);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SimilarChunk> findSimilarVectorsByDocument(float[] queryVector, Long documentId, int topK) {
+        // 문서 하나의 청크는 많지 않으므로 ANN 인덱스 대신 document_id 인덱스로 읽어 정확히 정렬
+        // (ANN 탐색 후 문서로 필터링하면 후보가 부족해 topK보다 적게 반환될 수 있음)
+        setLocal("enable_indexscan", "off");
+        List<Object[]> rows = entityManager.createNativeQuery(DOCUMENT_SQL.formatted(metric.operator()))
+                .unwrap(NativeQuery.class)
+                .setParameter("queryVector", queryVector, vectorType())
+                .setParameter("documentId", documentId)
+                .setParameter("topK", topK)
+                .getResultList();
+        return toSimilarChunks(rows);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SimilarChunk> findLexicalMatchesByCategories(String tsquery, float[] queryVector,
+                                                             Collection<Long> categoryIds, int limit) {
+        if (categoryIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> rows = entityManager.createNativeQuery(LEXICAL_SQL.formatted("v.category_id IN (:categoryIds)"))
+                .unwrap(NativeQuery.class)
+                .setParameter("terms", tsquery)
+                .setParameter("queryVector", queryVector, vectorType())
+                .setParameterList("categoryIds", categoryIds)
+                .setParameter("limit", limit)
+                .getResultList();
+        return toSimilarChunks(rows);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SimilarChunk> findLexicalMatchesByDocument(String tsquery, float[] queryVector, Long documentId,
+                                                           int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(LEXICAL_SQL.formatted("v.document_id = :documentId"))
+                .unwrap(NativeQuery.class)
+                .setParameter("terms", tsquery)
+                .setParameter("queryVector", queryVector, vectorType())
+                .setParameter("documentId", documentId)
+                .setParameter("limit", limit)
+                .getResultList();
+        return toSimilarChunks(rows);
+    }
+
+    // 현재 트랜잭션에만 적용되는 ANN 검색 파라미터 설정 (SET LOCAL과 동일)
+    private void applyTuning(VectorSearchTuning tuning, int limit) {
+        switch (indexType) {
+            case HNSW -> {
+                // ef_search가 LIMIT보다 작으면 결과가 모자라게 반환됨
+                int efSearch = tuning.efSearch() != null ? tuning.efSearch() : defaultEfSearch;
+                setLocal("hnsw.ef_search", String.valueOf(Math.min(Math.max(efSearch, limit), MAX_EF_SEARCH)));
+            }
+            case IVFFLAT -> {
+                int probes = tuning.probes() != null ? tuning.probes() : defaultProbes;
+                setLocal("ivfflat.probes", String.valueOf(Math.max(probes, 1)));
+            }
+            case NONE -> {
+            }
+        }
+    }
+
+    private void setLocal(String name, String value) {
+        entityManager.createNativeQuery("SELECT set_config(:name, :value, true)")
+                .setParameter("name", name)
+                .setParameter("value", value)
+                .getSingleResult();
+    }
+
+    private List<SimilarChunk> toSimilarChunks(List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> new SimilarChunk(
+                        ((Number) row[0]).longValue(),
+                        ((Number) row[1]).longValue(),
+                        (String) row[2],
+                        ((Number) row[3]).intValue(),
+                        (String) row[4],
+                        ((Number) row[5]).doubleValue()))
+                .collect(Collectors.toList());
+    }
+
+    // 쿼리 파라미터를 pgvector로 바인딩하기 위한 Hibernate 타입
+    private BasicType<float[]> vectorType() {
+        BasicType<float[]> type = vectorType;
+        if (type == null) {
+            SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class);
+            type = new CustomType<>(new PgVectorType(), sessionFactory.getTypeConfiguration());
+            vectorType = type;
+        }
+        return type;
+    }
+}
@@ -0,0 +1,105 @@
+package devlava.docai.repository;
+
+import devlava.docai.vector.PgVector;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 메모리 내 검색 인덱스/문서 임베딩 캐시 적재용 vector_stores 조회
+ * - 임베딩은 pgvector 바이너리로 수신
+ */
+@Repository
+public class VectorStoreScanner {
+
+    private static final String SELECT_SQL = """
+        SELECT v.id, v.document_id, COALESCE(v.category_id, d.category_id) AS category_id, d.file_name,
+               v.chunk_index, v.content, v.embedding
+        FROM vector_stores v
+        JOIN documents d ON v.document_id = d.id
+        """;
+
+    private static final String FINGERPRINT_SQL = """
+        SELECT v.document_id, d.file_name, count(*) AS chunk_count,
+               sum(v.id) AS id_sum, sum(v.chunk_index) AS chunk_index_sum
+        FROM vector_stores v
+        JOIN documents d ON v.document_id = d.id
+        GROUP BY v.document_id, d.file_name
+        """;
+
+    /**
+     * 저장된 청크 한 건 (임베딩 포함)
+     */
+    public record StoredVector(long id, long documentId, long categoryId, String fileName, int chunkIndex,
+                               String content, float[] embedding) {
+    }
+
+    /**
+     * 문서의 저장 상태 요약 - 인덱스 스냅샷과 DB가 같은지 문서 단위로 비교
+     */
+    public record DocumentFingerprint(long documentId, String fileName, long chunkCount, long idSum,
+                                      long chunkIndexSum) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VectorStoreScanner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * id 순서로 afterId 다음 청크부터 limit개 (전체 빌드용 - 페이지마다 짧은 쿼리로 끝나 긴 트랜잭션을 만들지 않음)
+     */
+    public List<StoredVector> findPage(long afterId, int limit) {
+        return query(SELECT_SQL + "WHERE v.id > ? ORDER BY v.id LIMIT ?", afterId, limit);
+    }
+
+    public List<StoredVector> findByDocumentId(long documentId) {
+        return query(SELECT_SQL + "WHERE v.document_id = ? ORDER BY v.chunk_index", documentId);
+    }
+
+    public int countByDocumentId(long documentId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM vector_stores WHERE document_id = ?", Integer.class, documentId);
+        return count != null ? count : 0;
+    }
+
+    public List<DocumentFingerprint> findFingerprints() {
+        return jdbcTemplate.query(FINGERPRINT_SQL, (rs, rowNum) -> new DocumentFingerprint(
+                rs.getLong("document_id"),
+                rs.getString("file_name"),
+                rs.getLong("chunk_count"),
+                rs.getLong("id_sum"),
+                rs.getLong("chunk_index_sum")));
+    }
+
+    private List<StoredVector> query(String sql, Object... params) {
+        List<StoredVector> rows = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PgVector.register(connection);
+            PreparedStatement ps = connection.prepareStatement(sql);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> rows.add(toStoredVector(rs)));
+        return rows;
+    }
+
+    private StoredVector toStoredVector(ResultSet rs) throws SQLException {
+        return new StoredVector(
+                rs.getLong("id"),
+                rs.getLong("document_id"),
+                rs.getLong("category_id"),
+                rs.getString("file_name"),
+                rs.getInt("chunk_index"),
+                rs.getString("content"),
+                PgVector.toFloatArray(rs.getObject("embedding")));
+    }
+}
@@ -0,0 +1,395 @@
+package devlava.docai.search;
+
+import devlava.docai.cache.LruCache;
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorStoreScanner;
+import devlava.docai.repository.VectorStoreScanner.StoredVector;
+import devlava.docai.service.DocumentChangedEvent;
+import devlava.docai.vector.VectorQuantizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 문서 단위 임베딩 캐시 + 전수 비교 검색 (문서 범위 질문용)
+ * - 문서의 청크 임베딩을 정규화하여 float[] 하나에 연속 저장, 모든 청크와 내적(SIMD)하여 정확한 top-K 반환
+ * - 문서 수/총 바이트로 제한하는 LRU, 청크가 너무 많은 문서는 캐시하지 않음 (DB 검색 사용)
+ * - quantization=int8/binary이면 힙에는 int8(1/4) 또는 binary(1/32) 코드만 보관
+ *   코드로 전체 청크를 훑어 topK * oversample 후보를 고른 뒤 원본 벡터로 정확히 다시 정렬
+ *   원본 벡터는 힙 밖 memory-mapped 파일에 두어 후보 페이지만 읽음 (검색 중 DB 조회 없음)
+ * - 문서 변경 이벤트마다 제거, 벡터화 완료 이벤트면 별도 스레드에서 미리 적재 (커밋한 요청 스레드를 붙잡지 않음)
+ */
+@Component
+@Slf4j
+public class DocumentEmbeddingCache {
+
+    private static final int WARM_UP_QUEUE_CAPACITY = 64;
+
+    private static final Comparator<ScoredIndex> BY_DISTANCE = Comparator.comparingDouble(ScoredIndex::distance);
+
+    private static final String VECTORS_FILE_PREFIX = "document-";
+    private static final String VECTORS_FILE_SUFFIX = ".vectors";
+
+    public enum Quantization {
+        NONE,       // 정규화한 float 블록을 힙에 보관
+        INT8,       // int8 내적으로 후보 선택
+        BINARY      // binary Hamming 거리로 후보 선택
+    }
+
+    private record ScoredIndex(int index, float distance) {
+    }
+
+    // 정규화한 임베딩 - block(float) 또는 quantized 중 하나만 있음
+    private record Entry(long documentId, String fileName, long[] ids, int[] chunkIndexes, String[] contents,
+                         float[] block, QuantizedBlock quantized, int dimensions) {
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    // 1차 검색용 코드(bits 또는 codes/scales 중 하나)와 재정렬용 원본 벡터(힙 밖)
+    private record QuantizedBlock(long[] bits, int words, byte[] codes, float[] scales, FloatBuffer vectors) {
+    }
+
+    private final VectorStoreScanner vectorStoreScanner;
+    private final int maxChunksPerDocument;
+    private final Quantization quantization;
+    private final int rescoreOversample;
+    private final Path directory;
+    private final LruCache<Long, Entry> cache;
+    // 미리 적재는 최선 노력 - 대기열이 가득 차면 버리고 첫 검색 때 적재
+    private final ThreadPoolExecutor warmUpExecutor;
+    // 적재 중에 그 문서가 바뀌었으면 읽은 내용을 캐시에 넣지 않기 위한 문서별 세대 번호
+    // (다른 문서의 변경은 적재를 버리지 않음, 한 번도 바뀌지 않은 문서는 항목 없음)
+    private final ConcurrentHashMap<Long, Long> generations = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public DocumentEmbeddingCache(VectorStoreScanner vectorStoreScanner,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${docai.search.document-embedding-cache.max-documents:200}") int maxDocuments,
+                                  @Value("${docai.search.document-embedding-cache.max-size:256MB}") DataSize maxSize,
+                                  @Value("${docai.search.document-embedding-cache.max-chunks-per-document:5000}") int maxChunksPerDocument,
+                                  @Value("${docai.search.document-embedding-cache.quantization:none}") Quantization quantization,
+                                  @Value("${docai.search.document-embedding-cache.rescore-oversample:8}") int rescoreOversample,
+                                  @Value("${docai.search.document-embedding-cache.directory:./data/document-embedding-cache}") String directory) {
+        this.vectorStoreScanner = vectorStoreScanner;
+        this.maxChunksPerDocument = maxChunksPerDocument;
+        this.quantization = quantization;
+        this.rescoreOversample = Math.max(rescoreOversample, 1);
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        if (quantization != Quantization.NONE) {
+            deleteStaleVectorFiles();
+        }
+        this.cache = new LruCache<>(maxDocuments, maxSize.toBytes(), DocumentEmbeddingCache::weigh, null);
+        this.warmUpExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WARM_UP_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "document-embedding-warmup");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+
+        this.hits = Counter.builder("docai.document.embedding.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docai.document.embedding.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("docai.document.embedding.cache.evictions", cache, LruCache::evictions)
+                .register(meterRegistry);
+        Gauge.builder("docai.document.embedding.cache.size", cache, LruCache::size)
+                .register(meterRegistry);
+        Gauge.builder("docai.document.embedding.cache.bytes", cache, LruCache::weight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 문서 내 정확한 top-K - 문서가 캐시 대상이 아니면(청크가 너무 많음) empty
+     */
+    public Optional<List<SimilarChunk>> search(float[] queryVector, Long documentId, int topK) {
+        Entry entry = cache.get(documentId);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            if (vectorStoreScanner.countByDocumentId(documentId) > maxChunksPerDocument) {
+                return Optional.empty();
+            }
+            entry = load(documentId);
+            if (entry == null) {
+                return Optional.of(List.of());
+            }
+        }
+        if (entry.dimensions() != queryVector.length) {
+            return Optional.empty();
+        }
+        return Optional.of(score(entry, queryVector, topK));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmUpExecutor.shutdownNow();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        // 적재 결과 저장과 같은 키 락 안에서 세대 증가 + 제거
+        generations.compute(event.documentId(), (id, current) -> {
+            cache.remove(id);
+            return current != null ? current + 1 : 1L;
+        });
+        // 등록/교체 시점에는 새 벡터가 아직 없으므로 벡터화 완료 이벤트에서만 적재
+        if (event.vectorsReady()) {
+            warmUpExecutor.execute(() -> warmUp(event.documentId()));
+        }
+    }
+
+    private void warmUp(Long documentId) {
+        try {
+            if (vectorStoreScanner.countByDocumentId(documentId) <= maxChunksPerDocument) {
+                load(documentId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to warm embedding cache for document {}: {}", documentId, e.getMessage());
+        }
+    }
+
+    // 문서의 청크를 읽어 캐시에 저장 (청크가 없으면 null)
+    private Entry load(Long documentId) {
+        Long loadGeneration = generations.get(documentId);
+        List<StoredVector> rows = vectorStoreScanner.findByDocumentId(documentId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        int dimensions = rows.get(0).embedding().length;
+        int size = rows.size();
+        long[] ids = new long[size];
+        int[] chunkIndexes = new int[size];
+        String[] contents = new String[size];
+        for (int i = 0; i < size; i++) {
+            StoredVector row = rows.get(i);
+            ids[i] = row.id();
+            chunkIndexes[i] = row.chunkIndex();
+            contents[i] = row.content();
+        }
+
+        float[] block = null;
+        QuantizedBlock quantizedBlock = null;
+        if (quantization != Quantization.NONE) {
+            quantizedBlock = quantize(rows, dimensions);
+        } else {
+            block = new float[size * dimensions];
+            for (int i = 0; i < size; i++) {
+                normalizeInto(rows.get(i).embedding(), block, i * dimensions, dimensions);
+            }
+        }
+
+        Entry entry = new Entry(documentId, rows.get(0).fileName(), ids, chunkIndexes, contents, block,
+                quantizedBlock, dimensions);
+        generations.compute(documentId, (id, current) -> {
+            if (Objects.equals(current, loadGeneration)) {
+                cache.put(id, entry);
+            }
+            return current;
+        });
+        log.debug("Cached {} chunk embeddings for document {}", size, documentId);
+        return entry;
+    }
+
+    private QuantizedBlock quantize(List<StoredVector> rows, int dimensions) {
+        int size = rows.size();
+        FloatBuffer vectors = mapVectors(size * dimensions);
+        boolean binary = quantization == Quantization.BINARY;
+        int words = binary ? VectorQuantizer.binaryWords(dimensions) : 0;
+        long[] bits = binary ? new long[size * words] : null;
+        byte[] codes = binary ? null : new byte[size * dimensions];
+        float[] scales = binary ? null : new float[size];
+        float[] unit = new float[dimensions];
+        for (int i = 0; i < size; i++) {
+            Arrays.fill(unit, 0f);
+            normalizeInto(rows.get(i).embedding(), unit, 0, dimensions);
+            vectors.put(i * dimensions, unit);
+            if (binary) {
+                VectorQuantizer.binaryInto(unit, bits, i * words);
+            } else {
+                scales[i] = VectorQuantizer.int8Into(unit, codes, i * dimensions);
+            }
+        }
+        return new QuantizedBlock(bits, words, codes, scales, vectors);
+    }
+
+    // 원본 벡터용 매핑 - 매핑은 채널/파일과 무관하게 유지되므로 바로 파일을 지우고,
+    // 항목이 캐시에서 빠져 버퍼가 GC되면 디스크 공간도 반환됨
+    private FloatBuffer mapVectors(int floats) {
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, VECTORS_FILE_PREFIX, VECTORS_FILE_SUFFIX);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, floats * 4L)
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+            } finally {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // 매핑 중인 파일을 지울 수 없는 OS - 다음 기동 때 정리
+                    file.toFile().deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map document embedding vectors", e);
+        }
+    }
+
+    private void deleteStaleVectorFiles() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                VECTORS_FILE_PREFIX + "*" + VECTORS_FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean document embedding cache directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private List<SimilarChunk> score(Entry entry, float[] queryVector, int topK) {
+        float[] unit = new float[queryVector.length];
+        normalizeInto(queryVector, unit, 0, queryVector.length);
+
+        int dimensions = entry.dimensions();
+        List<ScoredIndex> sorted;
+        if (entry.quantized() != null) {
+            sorted = scoreQuantized(entry, unit, topK);
+        } else {
+            PriorityQueue<ScoredIndex> best = new PriorityQueue<>(BY_DISTANCE.reversed());
+            for (int i = 0; i < entry.size(); i++) {
+                offer(best, topK, i, 1f - DotProducts.dot(entry.block(), i * dimensions, unit, dimensions));
+            }
+            sorted = sortedAscending(best);
+        }
+
+        List<SimilarChunk> chunks = new ArrayList<>(sorted.size());
+        for (ScoredIndex scored : sorted) {
+            int i = scored.index();
+            chunks.add(new SimilarChunk(entry.ids()[i], entry.documentId(), entry.fileName(),
+                    entry.chunkIndexes()[i], entry.contents()[i], scored.distance()));
+        }
+        return chunks;
+    }
+
+    // 1차: binary Hamming 거리 또는 int8 내적으로 후보 선택, 2차: 후보의 원본 벡터로 코사인 거리 정렬
+    private List<ScoredIndex> scoreQuantized(Entry entry, float[] unit, int topK) {
+        QuantizedBlock block = entry.quantized();
+        int dimensions = entry.dimensions();
+        PriorityQueue<ScoredIndex> candidates = new PriorityQueue<>(BY_DISTANCE.reversed());
+        int candidateCount = topK * rescoreOversample;
+        if (block.bits() != null) {
+            long[] queryBits = new long[block.words()];
+            VectorQuantizer.binaryInto(unit, queryBits, 0);
+            for (int i = 0; i < entry.size(); i++) {
+                offer(candidates, candidateCount, i,
+                        VectorQuantizer.hamming(block.bits(), i * block.words(), queryBits, block.words()));
+            }
+        } else {
+            for (int i = 0; i < entry.size(); i++) {
+                offer(candidates, candidateCount, i,
+                        1f - VectorQuantizer.int8Dot(block.codes(), i * dimensions, block.scales()[i], unit));
+            }
+        }
+
+        FloatBuffer vectors = block.vectors();
+        PriorityQueue<ScoredIndex> best = new PriorityQueue<>(BY_DISTANCE.reversed());
+        for (ScoredIndex candidate : candidates) {
+            int base = candidate.index() * dimensions;
+            float dot = 0f;
+            for (int d = 0; d < dimensions; d++) {
+                dot += vectors.get(base + d) * unit[d];
+            }
+            offer(best, topK, candidate.index(), 1f - dot);
+        }
+        return sortedAscending(best);
+    }
+
+    // 거리가 먼 것이 맨 앞인 힙에 limit개까지 유지
+    private static void offer(PriorityQueue<ScoredIndex> heap, int limit, int index, float distance) {
+        if (heap.size() < limit) {
+            heap.add(new ScoredIndex(index, distance));
+        } else if (distance < heap.peek().distance()) {
+            heap.poll();
+            heap.add(new ScoredIndex(index, distance));
+        }
+    }
+
+    private static List<ScoredIndex> sortedAscending(PriorityQueue<ScoredIndex> heap) {
+        List<ScoredIndex> sorted = new ArrayList<>(heap);
+        sorted.sort(BY_DISTANCE);
+        return sorted;
+    }
+
+    private static void normalizeInto(float[] vector, float[] target, int offset, int dimensions) {
+        double norm = Math.sqrt(DotProducts.dot(vector, 0, vector, dimensions));
+        if (norm == 0) {
+            return;
+        }
+        for (int i = 0; i < dimensions; i++) {
+            target[offset + i] = (float) (vector[i] / norm);
+        }
+    }
+
+    // 대략적인 힙 크기: 임베딩 블록(또는 양자화 코드) + ID/순번 배열 + 본문 문자열
+    // (양자화 시 원본 벡터는 힙 밖 매핑이라 OS 페이지 캐시가 관리 - 합계에 넣지 않음)
+    private static long weigh(Long documentId, Entry entry) {
+        long bytes = 64L + entry.size() * 12L;
+        if (entry.quantized() != null) {
+            QuantizedBlock block = entry.quantized();
+            bytes += block.bits() != null
+                    ? block.bits().length * 8L
+                    : block.codes().length + block.scales().length * 4L;
+        } else {
+            bytes += entry.block().length * 4L;
+        }
+        for (String content : entry.contents()) {
+            bytes += 40L + content.length() * 2L;
+        }
+        return bytes;
+    }
+}
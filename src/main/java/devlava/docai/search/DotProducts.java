@@ -0,0 +1,71 @@
+package devlava.docai.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * float 내적 - JVM에 jdk.incubator.vector 모듈이 추가되어 있으면 SIMD, 아니면 스칼라 루프
+ * (실행 시 --add-modules jdk.incubator.vector 필요, bootRun/test에는 설정되어 있음)
+ * SIMD 구현(SimdDotProduct)은 simd 소스 세트에 있어 컴파일 시 의존하지 않고 MethodHandle로 불러옴
+ */
+@Slf4j
+public final class DotProducts {
+
+    private static final String SIMD_CLASS = "devlava.docai.search.SimdDotProduct";
+    // static final이므로 JIT가 직접 호출로 인라인
+    private static final MethodHandle SIMD_DOT = findSimd();
+
+    private DotProducts() {
+    }
+
+    /**
+     * block[offset .. offset+length)와 query[0 .. length)의 내적
+     */
+    public static float dot(float[] block, int offset, float[] query, int length) {
+        if (SIMD_DOT == null) {
+            return scalarDot(block, offset, query, length);
+        }
+        try {
+            return (float) SIMD_DOT.invokeExact(block, offset, query, length);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static boolean simdEnabled() {
+        return SIMD_DOT != null;
+    }
+
+    static float scalarDot(float[] block, int offset, float[] query, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += block[offset + i] * query[i];
+        }
+        return sum;
+    }
+
+    private static MethodHandle findSimd() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("jdk.incubator.vector not enabled, using scalar dot product");
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.findStatic(Class.forName(SIMD_CLASS), "dot",
+                    MethodType.methodType(float.class, float[].class, int.class, float[].class, int.class));
+            float check = (float) handle.invokeExact(new float[]{2f}, 0, new float[]{3f}, 1);
+            if (check != 6f) {
+                throw new IllegalStateException("unexpected SIMD result " + check);
+            }
+            return handle;
+        } catch (Throwable e) {
+            log.warn("Vector API unavailable, using scalar dot product: {}", e.toString());
+            return null;
+        }
+    }
+}
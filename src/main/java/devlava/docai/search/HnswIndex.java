@@ -0,0 +1,739 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorStoreScanner.DocumentFingerprint;
+import devlava.docai.repository.VectorStoreScanner.StoredVector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 메모리 내 HNSW 그래프 인덱스 (코사인 거리)
+ * - 정규화한 벡터는 vectors.f32(memory-mapped), 청크 본문은 contents.bin에 추가만 함
+ * - 그래프와 청크 메타데이터는 힙에 두고 graph.bin 스냅샷으로 저장 (스냅샷 이후 추가분은 다시 열 때 버림)
+ * - 삭제는 표시만 하고 그래프 탐색 경로로는 계속 사용 (검색 결과에서만 제외)
+ * - 변경은 한 스레드에서만 호출, 검색은 여러 스레드에서 동시에 가능 (읽기/쓰기 락)
+ */
+final class HnswIndex implements Closeable {
+
+    private static final String GRAPH_FILE = "graph.bin";
+    private static final String VECTORS_FILE = "vectors.f32";
+    private static final String CONTENTS_FILE = "contents.bin";
+    private static final int MAGIC = 0x484E5357;
+    private static final int FORMAT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 1024;
+    // 필터 검색 방문 예산 = 예상 방문 수(ef / 필터 통과 비율) x 이 배수
+    private static final int VISIT_BUDGET_FACTOR = 4;
+    private static final Comparator<Hit> BY_DISTANCE = Comparator.comparingDouble(Hit::distance);
+
+    /**
+     * 검색 결과 한 건 (노드 번호 + 코사인 거리)
+     */
+    record Hit(int node, float distance) {
+    }
+
+    /**
+     * 문서 동기화 결과 - 새로 추가, 순번만 갱신, 삭제 표시된 청크 수
+     */
+    record SyncResult(int added, int kept, int removed) {
+    }
+
+    private final Path directory;
+    private final int dimensions;
+    private final int m;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final MappedVectorStorage vectors;
+    private final FileChannel contents;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SplittableRandom random = new SplittableRandom();
+
+    private int size;
+    private long contentEnd;
+    private long[] chunkIds = new long[INITIAL_CAPACITY];
+    private long[] documentIds = new long[INITIAL_CAPACITY];
+    private long[] categoryIds = new long[INITIAL_CAPACITY];
+    private int[] chunkIndexes = new int[INITIAL_CAPACITY];
+    private long[] contentOffsets = new long[INITIAL_CAPACITY];
+    private int[] contentLengths = new int[INITIAL_CAPACITY];
+    // links[node][level] = [이웃 수, 이웃1, 이웃2, ...]
+    private int[][][] links = new int[INITIAL_CAPACITY][][];
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    // 살아 있는 노드만 관리 (필터 검색 대상 산정, 문서 동기화용)
+    private final Map<Long, List<Integer>> nodesByDocument = new HashMap<>();
+    private final Map<Long, Set<Long>> documentsByCategory = new HashMap<>();
+    private final Map<Long, String> fileNames = new HashMap<>();
+
+    private HnswIndex(Path directory, int dimensions, int m, int efConstruction, boolean truncate) throws IOException {
+        this.directory = directory;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxConnections0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.vectors = new MappedVectorStorage(directory.resolve(VECTORS_FILE), dimensions, truncate);
+        this.contents = FileChannel.open(directory.resolve(CONTENTS_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (truncate) {
+            contents.truncate(0);
+        }
+    }
+
+    /**
+     * 빈 인덱스 생성 (디렉터리의 기존 파일은 비움)
+     */
+    static HnswIndex create(Path directory, int dimensions, int m, int efConstruction) throws IOException {
+        Files.createDirectories(directory);
+        return new HnswIndex(directory, dimensions, m, efConstruction, true);
+    }
+
+    /**
+     * 스냅샷에서 불러오기 - 그래프 파라미터가 설정과 다르면 IllegalStateException (다시 빌드 필요)
+     */
+    static HnswIndex open(Path directory, int m, int efConstruction) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(GRAPH_FILE)), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported HNSW snapshot format in " + directory);
+            }
+            int dimensions = in.readInt();
+            int storedM = in.readInt();
+            int storedEfConstruction = in.readInt();
+            if (storedM != m || storedEfConstruction != efConstruction) {
+                throw new IllegalStateException("HNSW parameters changed (m " + storedM + " -> " + m +
+                        ", ef-construction " + storedEfConstruction + " -> " + efConstruction + ")");
+            }
+
+            HnswIndex index = new HnswIndex(directory, dimensions, m, efConstruction, false);
+            try {
+                index.readGraph(in);
+            } catch (IOException | RuntimeException e) {
+                index.close();
+                throw e;
+            }
+            return index;
+        }
+    }
+
+    static boolean exists(Path directory) {
+        return Files.isRegularFile(directory.resolve(GRAPH_FILE));
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return size == 0 ? 0.0 : (double) deletedCount / size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 청크 하나 추가 (DB 전체 빌드용 - 같은 청크가 이미 있는지 확인하지 않음)
+     */
+    void add(StoredVector row) throws IOException {
+        float[] unit = normalize(row.embedding());
+        byte[] text = row.content().getBytes(StandardCharsets.UTF_8);
+
+        lock.writeLock().lock();
+        try {
+            insert(row, unit, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 문서 하나를 DB 상태(rows)에 맞춤
+     * - 같은 청크 ID가 있으면 순번만 갱신 (재색인으로 유지된 청크는 임베딩이 같음)
+     * - DB에 없는 청크는 삭제 표시, 새 청크만 그래프에 추가
+     */
+    SyncResult syncDocument(long documentId, List<StoredVector> rows) throws IOException {
+        Map<Long, StoredVector> incoming = new HashMap<>();
+        rows.forEach(row -> incoming.put(row.id(), row));
+        int kept = 0;
+        int removed = 0;
+
+        // 삭제 표시와 새 청크 추가를 한 번의 쓰기 락 안에서 처리
+        // (중간에 검색이 끼어들면 기존 청크는 빠지고 새 청크는 아직 없는 빈 문서가 보임)
+        lock.writeLock().lock();
+        try {
+            List<Integer> nodes = nodesByDocument.remove(documentId);
+            if (nodes != null) {
+                List<Integer> survivors = new ArrayList<>(nodes.size());
+                for (int node : nodes) {
+                    StoredVector row = incoming.remove(chunkIds[node]);
+                    if (row == null) {
+                        deleted.set(node);
+                        deletedCount++;
+                        removed++;
+                    } else {
+                        chunkIndexes[node] = row.chunkIndex();
+                        survivors.add(node);
+                        kept++;
+                    }
+                }
+                if (survivors.isEmpty()) {
+                    Set<Long> documents = documentsByCategory.get(categoryIds[nodes.get(0)]);
+                    if (documents != null) {
+                        documents.remove(documentId);
+                    }
+                    fileNames.remove(documentId);
+                } else {
+                    nodesByDocument.put(documentId, survivors);
+                }
+            }
+            if (!rows.isEmpty()) {
+                fileNames.put(documentId, rows.get(0).fileName());
+            }
+
+            List<StoredVector> added = new ArrayList<>(incoming.values());
+            added.sort(Comparator.comparingInt(StoredVector::chunkIndex));
+            for (StoredVector row : added) {
+                insert(row, normalize(row.embedding()), row.content().getBytes(StandardCharsets.UTF_8));
+            }
+            return new SyncResult(added.size(), kept, removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 살아 있는 청크 기준 문서별 상태 요약 (DB의 같은 요약과 비교)
+     */
+    Map<Long, DocumentFingerprint> fingerprints() {
+        lock.readLock().lock();
+        try {
+            Map<Long, DocumentFingerprint> result = new HashMap<>();
+            nodesByDocument.forEach((documentId, nodes) -> {
+                long idSum = 0;
+                long chunkIndexSum = 0;
+                for (int node : nodes) {
+                    idSum += chunkIds[node];
+                    chunkIndexSum += chunkIndexes[node];
+                }
+                result.put(documentId, new DocumentFingerprint(documentId, fileNames.get(documentId),
+                        nodes.size(), idSum, chunkIndexSum));
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 카테고리(들) 내 top-K
+     * - 대상 청크가 exactThreshold 이하이거나 전체 대비 비율이 minSelectivity 미만이면 전부 비교
+     *   (필터를 통과하는 노드가 드물면 그래프 탐색이 결과를 채우지 못한 채 그래프 대부분을 방문함)
+     * - 그 외에는 필터를 건 그래프 탐색, 방문 노드 수는 필터 비율에 맞춘 예산으로 제한
+     *   (예산 안에 k개를 채우지 못하면 전부 비교로 다시 검색)
+     */
+    List<SimilarChunk> searchCategories(float[] query, Collection<Long> categories, int k, int ef, int exactThreshold,
+                                        double minSelectivity) {
+        float[] unit = normalize(query);
+        Set<Long> categorySet = Set.copyOf(categories);
+
+        lock.readLock().lock();
+        try {
+            List<List<Integer>> scoped = new ArrayList<>();
+            int candidates = 0;
+            for (Long categoryId : categorySet) {
+                for (Long documentId : documentsByCategory.getOrDefault(categoryId, Set.of())) {
+                    List<Integer> nodes = nodesByDocument.get(documentId);
+                    if (nodes != null) {
+                        scoped.add(nodes);
+                        candidates += nodes.size();
+                    }
+                }
+            }
+            if (candidates == 0) {
+                return List.of();
+            }
+
+            double selectivity = (double) candidates / (size - deletedCount);
+            if (candidates <= exactThreshold || selectivity < minSelectivity) {
+                return toChunks(exactSearch(unit, k, scoped));
+            }
+
+            // 통과 비율이 p이면 ef개를 모으는 데 대략 ef / p개를 방문 - 그 몇 배까지만 탐색
+            int visitBudget = (int) Math.min(size, Math.ceil(Math.max(ef, k) / selectivity) * VISIT_BUDGET_FACTOR);
+            List<Hit> hits = graphSearch(unit, k, ef, visitBudget,
+                    node -> !deleted.get(node) && categorySet.contains(categoryIds[node]));
+            if (hits.size() < Math.min(k, candidates)) {
+                hits = exactSearch(unit, k, scoped);
+            }
+            return toChunks(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 문서 하나의 top-K (문서 청크 수가 적으므로 항상 전부 비교)
+     */
+    List<SimilarChunk> searchDocument(float[] query, long documentId, int k) {
+        float[] unit = normalize(query);
+        lock.readLock().lock();
+        try {
+            List<Integer> nodes = nodesByDocument.get(documentId);
+            if (nodes == null) {
+                return List.of();
+            }
+            return toChunks(exactSearch(unit, k, List.of(nodes)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 스냅샷 저장 - 벡터/본문 파일을 먼저 디스크에 반영한 뒤 graph.bin을 원자적으로 교체
+     */
+    void save() throws IOException {
+        lock.readLock().lock();
+        try {
+            vectors.force();
+            contents.force(true);
+
+            Path temp = directory.resolve(GRAPH_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp), 1 << 16))) {
+                writeGraph(out);
+            }
+            Files.move(temp, directory.resolve(GRAPH_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            vectors.close();
+            contents.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 노드 하나를 저장하고 그래프에 연결 (쓰기 락을 잡은 상태에서 호출)
+    private void insert(StoredVector row, float[] unit, byte[] text) throws IOException {
+        int node = size;
+        ensureCapacity(node + 1);
+        vectors.set(node, unit);
+        writeFully(ByteBuffer.wrap(text), contentEnd);
+
+        chunkIds[node] = row.id();
+        documentIds[node] = row.documentId();
+        categoryIds[node] = row.categoryId();
+        chunkIndexes[node] = row.chunkIndex();
+        contentOffsets[node] = contentEnd;
+        contentLengths[node] = text.length;
+        contentEnd += text.length;
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + (l == 0 ? maxConnections0 : m)];
+        }
+        size++;
+
+        nodesByDocument.computeIfAbsent(row.documentId(), key -> new ArrayList<>()).add(node);
+        documentsByCategory.computeIfAbsent(row.categoryId(), key -> new HashSet<>()).add(row.documentId());
+        fileNames.put(row.documentId(), row.fileName());
+        connect(node, unit, level);
+    }
+
+    // 새 노드를 각 층에서 가까운 이웃과 양방향 연결 (HNSW 삽입)
+    private void connect(int node, float[] unit, int level) {
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(unit, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Hit> candidates = searchLayer(unit, current, efConstruction, l, Integer.MAX_VALUE, null);
+            int[] nodeLinks = links[node][l];
+            for (int neighbor : selectNeighbors(candidates, m)) {
+                nodeLinks[++nodeLinks[0]] = neighbor;
+                addLink(neighbor, node, l);
+            }
+            current = candidates.get(0).node();
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    // 이웃 목록이 가득 차면 기존 이웃 + 새 노드 중에서 다시 선택
+    private void addLink(int from, int to, int level) {
+        int[] fromLinks = links[from][level];
+        int capacity = fromLinks.length - 1;
+        if (fromLinks[0] < capacity) {
+            fromLinks[++fromLinks[0]] = to;
+            return;
+        }
+
+        List<Hit> candidates = new ArrayList<>(capacity + 1);
+        for (int i = 1; i <= capacity; i++) {
+            candidates.add(new Hit(fromLinks[i], distance(from, fromLinks[i])));
+        }
+        candidates.add(new Hit(to, distance(from, to)));
+        candidates.sort(BY_DISTANCE);
+
+        int[] selected = selectNeighbors(candidates, capacity);
+        fromLinks[0] = selected.length;
+        System.arraycopy(selected, 0, fromLinks, 1, selected.length);
+    }
+
+    // 이웃 선택 휴리스틱 - 이미 고른 이웃보다 기준점에 더 가까운 후보만 선택하여 방향을 분산
+    // 그렇게 고른 수가 부족하면 가까운 순으로 채움 (candidates는 거리 오름차순)
+    private int[] selectNeighbors(List<Hit> candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.size())];
+        int count = 0;
+        for (Hit candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (distance(candidate.node(), selected[i]) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate.node();
+            }
+        }
+        for (Hit candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            if (!contains(selected, count, candidate.node())) {
+                selected[count++] = candidate.node();
+            }
+        }
+        return selected;
+    }
+
+    private List<Hit> graphSearch(float[] unit, int k, int ef, int visitBudget, IntPredicate accept) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(unit, current, l);
+        }
+        List<Hit> hits = searchLayer(unit, current, Math.max(ef, k), 0, visitBudget, accept);
+        return hits.size() > k ? hits.subList(0, k) : hits;
+    }
+
+    private int greedyClosest(float[] unit, int start, int level) {
+        int current = start;
+        float currentDistance = distance(unit, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] nodeLinks = links[current][level];
+            for (int i = 1; i <= nodeLinks[0]; i++) {
+                float d = distance(unit, nodeLinks[i]);
+                if (d < currentDistance) {
+                    current = nodeLinks[i];
+                    currentDistance = d;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // 한 층에서 ef개 후보를 유지하며 탐색, accept를 통과한 노드만 결과에 포함 (거리 오름차순)
+    // 방문한 노드가 visitBudget개에 이르면 그때까지 모은 결과로 종료
+    private List<Hit> searchLayer(float[] unit, int start, int ef, int level, int visitBudget, IntPredicate accept) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Hit> candidates = new PriorityQueue<>(BY_DISTANCE);
+        PriorityQueue<Hit> results = new PriorityQueue<>(BY_DISTANCE.reversed());
+
+        Hit first = new Hit(start, distance(unit, start));
+        visited.set(start);
+        int visits = 1;
+        candidates.add(first);
+        if (accept == null || accept.test(start)) {
+            results.add(first);
+        }
+
+        while (!candidates.isEmpty() && visits < visitBudget) {
+            Hit closest = candidates.poll();
+            if (results.size() >= ef && closest.distance() > results.peek().distance()) {
+                break;
+            }
+            int[] nodeLinks = links[closest.node()][level];
+            for (int i = 1; i <= nodeLinks[0]; i++) {
+                int neighbor = nodeLinks[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                visits++;
+                float d = distance(unit, neighbor);
+                if (results.size() < ef || d < results.peek().distance()) {
+                    candidates.add(new Hit(neighbor, d));
+                    if (accept == null || accept.test(neighbor)) {
+                        results.add(new Hit(neighbor, d));
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Hit> sorted = new ArrayList<>(results);
+        sorted.sort(BY_DISTANCE);
+        return sorted;
+    }
+
+    private List<Hit> exactSearch(float[] unit, int k, List<List<Integer>> nodeLists) {
+        PriorityQueue<Hit> results = new PriorityQueue<>(BY_DISTANCE.reversed());
+        for (List<Integer> nodes : nodeLists) {
+            for (int node : nodes) {
+                float d = distance(unit, node);
+                if (results.size() < k) {
+                    results.add(new Hit(node, d));
+                } else if (d < results.peek().distance()) {
+                    results.poll();
+                    results.add(new Hit(node, d));
+                }
+            }
+        }
+        List<Hit> sorted = new ArrayList<>(results);
+        sorted.sort(BY_DISTANCE);
+        return sorted;
+    }
+
+    private List<SimilarChunk> toChunks(List<Hit> hits) {
+        List<SimilarChunk> chunks = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            int node = hit.node();
+            chunks.add(new SimilarChunk(chunkIds[node], documentIds[node], fileNames.get(documentIds[node]),
+                    chunkIndexes[node], readContent(node), hit.distance()));
+        }
+        return chunks;
+    }
+
+    private String readContent(int node) {
+        ByteBuffer buffer = ByteBuffer.allocate(contentLengths[node]);
+        long position = contentOffsets[node];
+        try {
+            while (buffer.hasRemaining()) {
+                int read = contents.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + CONTENTS_FILE);
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read chunk content from HNSW index", e);
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += contents.write(buffer, position);
+        }
+    }
+
+    private float distance(float[] unit, int node) {
+        return 1f - vectors.dot(node, unit);
+    }
+
+    private float distance(int a, int b) {
+        return 1f - vectors.dot(a, b);
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Vector dimension " + vector.length + " does not match index dimension " + dimensions);
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= chunkIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, chunkIds.length + (chunkIds.length >> 1));
+        chunkIds = Arrays.copyOf(chunkIds, newCapacity);
+        documentIds = Arrays.copyOf(documentIds, newCapacity);
+        categoryIds = Arrays.copyOf(categoryIds, newCapacity);
+        chunkIndexes = Arrays.copyOf(chunkIndexes, newCapacity);
+        contentOffsets = Arrays.copyOf(contentOffsets, newCapacity);
+        contentLengths = Arrays.copyOf(contentLengths, newCapacity);
+        links = Arrays.copyOf(links, newCapacity);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeGraph(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(dimensions);
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(size);
+        out.writeLong(contentEnd);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+
+        for (int node = 0; node < size; node++) {
+            out.writeLong(chunkIds[node]);
+            out.writeLong(documentIds[node]);
+            out.writeLong(categoryIds[node]);
+            out.writeInt(chunkIndexes[node]);
+            out.writeLong(contentOffsets[node]);
+            out.writeInt(contentLengths[node]);
+            out.writeBoolean(deleted.get(node));
+            out.writeByte(links[node].length);
+            for (int[] levelLinks : links[node]) {
+                out.writeShort(levelLinks[0]);
+                for (int i = 1; i <= levelLinks[0]; i++) {
+                    out.writeInt(levelLinks[i]);
+                }
+            }
+        }
+
+        out.writeInt(fileNames.size());
+        for (Map.Entry<Long, String> entry : fileNames.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+
+    private void readGraph(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        long storedContentEnd = in.readLong();
+        int storedEntryPoint = in.readInt();
+        int storedMaxLevel = in.readInt();
+
+        ensureCapacity(count);
+        vectors.ensureSlots(count);
+        for (int node = 0; node < count; node++) {
+            chunkIds[node] = in.readLong();
+            documentIds[node] = in.readLong();
+            categoryIds[node] = in.readLong();
+            chunkIndexes[node] = in.readInt();
+            contentOffsets[node] = in.readLong();
+            contentLengths[node] = in.readInt();
+            boolean isDeleted = in.readBoolean();
+
+            int levels = in.readUnsignedByte();
+            links[node] = new int[levels][];
+            for (int l = 0; l < levels; l++) {
+                int[] levelLinks = new int[1 + (l == 0 ? maxConnections0 : m)];
+                int linkCount = in.readUnsignedShort();
+                levelLinks[0] = linkCount;
+                for (int i = 1; i <= linkCount; i++) {
+                    levelLinks[i] = in.readInt();
+                }
+                links[node][l] = levelLinks;
+            }
+
+            if (isDeleted) {
+                deleted.set(node);
+                deletedCount++;
+            } else {
+                nodesByDocument.computeIfAbsent(documentIds[node], key -> new ArrayList<>()).add(node);
+                documentsByCategory.computeIfAbsent(categoryIds[node], key -> new HashSet<>()).add(documentIds[node]);
+            }
+        }
+
+        int fileNameCount = in.readInt();
+        for (int i = 0; i < fileNameCount; i++) {
+            fileNames.put(in.readLong(), in.readUTF());
+        }
+
+        size = count;
+        contentEnd = storedContentEnd;
+        entryPoint = storedEntryPoint;
+        maxLevel = storedMaxLevel;
+        // 스냅샷 이후에 추가되었던 본문은 버림
+        contents.truncate(contentEnd);
+    }
+}
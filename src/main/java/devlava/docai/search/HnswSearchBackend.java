@@ -0,0 +1,367 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorSearchTuning;
+import devlava.docai.repository.VectorStoreScanner;
+import devlava.docai.repository.VectorStoreScanner.DocumentFingerprint;
+import devlava.docai.repository.VectorStoreScanner.StoredVector;
+import devlava.docai.service.DocumentChangedEvent;
+import devlava.docai.vector.VectorMetric;
+import devlava.docai.vector.VectorQuantization;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 메모리 내 HNSW 인덱스 검색 백엔드 (docai.search.backend=hnsw)
+ * - 기동 시 디스크 스냅샷을 불러와 DB와 문서 단위로 비교하고 달라진 문서만 다시 반영
+ * - 스냅샷이 없거나 그래프 설정이 바뀌었으면 DB에서 새로 빌드 (준비될 때까지는 pgvector로 검색)
+ * - 문서 변경 이벤트마다 해당 문서의 벡터를 DB에서 다시 읽어 반영, 주기적으로 스냅샷 저장
+ * - 인덱스 변경은 전용 스레드 하나에서만 수행
+ * - 그래프는 항상 전체 float 벡터의 cosine 거리로 구성 (vector-store.index.metric/quantization은 pgvector 경로에만 적용)
+ * - centroid 2단계 검색(documentLimit > 0)은 pgvector 백엔드로 위임, ivfflat probes는 사용하지 않음
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "docai.search.backend", havingValue = "hnsw")
+@Slf4j
+public class HnswSearchBackend implements VectorSearchBackend {
+
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final int BUILD_PAGE_SIZE = 1000;
+
+    private final VectorStoreScanner vectorStoreScanner;
+    private final PgVectorSearchBackend fallback;
+    private final Path directory;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int defaultEfSearch;
+    private final int exactSearchThreshold;
+    private final double minFilterSelectivity;
+    private final Duration snapshotInterval;
+    private final double rebuildDeletedRatio;
+    private final int defaultDocumentLimit;
+
+    private final ScheduledExecutorService syncExecutor;
+    // 반영 대기 중인 문서 (같은 문서의 연속 이벤트는 한 번만 반영)
+    private final Set<Long> pendingDocuments = ConcurrentHashMap.newKeySet();
+    private volatile HnswIndex index;
+    private volatile boolean dirty;
+
+    public HnswSearchBackend(VectorStoreScanner vectorStoreScanner,
+                             PgVectorSearchBackend fallback,
+                             @Value("${docai.search.hnsw.directory:./data/hnsw}") String directory,
+                             @Value("${spring.ai.vectorstore.pgvector.dimensions:768}") int dimensions,
+                             @Value("${docai.search.hnsw.m:16}") int m,
+                             @Value("${docai.search.hnsw.ef-construction:100}") int efConstruction,
+                             @Value("${docai.search.hnsw.ef-search:64}") int defaultEfSearch,
+                             @Value("${docai.search.hnsw.exact-search-threshold:5000}") int exactSearchThreshold,
+                             @Value("${docai.search.hnsw.min-filter-selectivity:0.05}") double minFilterSelectivity,
+                             @Value("${docai.search.hnsw.snapshot-interval:5m}") Duration snapshotInterval,
+                             @Value("${docai.search.hnsw.rebuild-deleted-ratio:0.3}") double rebuildDeletedRatio,
+                             @Value("${docai.search.two-stage.document-limit:0}") int defaultDocumentLimit,
+                             @Value("${docai.vector-store.index.metric:cosine}") VectorMetric metric,
+                             @Value("${docai.vector-store.index.quantization:none}") VectorQuantization quantization) {
+        this.vectorStoreScanner = vectorStoreScanner;
+        this.fallback = fallback;
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.defaultEfSearch = defaultEfSearch;
+        this.exactSearchThreshold = exactSearchThreshold;
+        this.minFilterSelectivity = minFilterSelectivity;
+        this.snapshotInterval = snapshotInterval;
+        this.rebuildDeletedRatio = rebuildDeletedRatio;
+        this.defaultDocumentLimit = defaultDocumentLimit;
+        if (metric != VectorMetric.COSINE || quantization != VectorQuantization.NONE) {
+            log.warn("HNSW backend always searches full vectors by cosine distance; metric={} and quantization={} "
+                    + "apply only to pgvector searches (fallback and two-stage)", metric, quantization);
+        }
+        this.syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hnsw-index-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        syncExecutor.execute(this::loadOrBuild);
+        long intervalMs = snapshotInterval.toMillis();
+        syncExecutor.scheduleWithFixedDelay(this::saveIfDirty, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        syncExecutor.shutdownNow();
+        syncExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        saveIfDirty();
+        HnswIndex current = index;
+        index = null;
+        closeQuietly(current);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (pendingDocuments.add(event.documentId())) {
+            try {
+                syncExecutor.execute(() -> syncDocument(event.documentId()));
+            } catch (RejectedExecutionException e) {
+                log.debug("HNSW index sync stopped, skipping document {}", event.documentId());
+            }
+        }
+    }
+
+    @Override
+    public List<SimilarChunk> searchByCategories(float[] queryVector, Collection<Long> categoryIds, int limit,
+                                                 VectorSearchTuning tuning) {
+        // centroid 2단계 검색은 고른 문서 안에서 정확 정렬하는 pgvector 경로로 처리
+        int documentLimit = tuning.documentLimit() != null ? tuning.documentLimit() : defaultDocumentLimit;
+        if (documentLimit > 0) {
+            return fallback.searchByCategories(queryVector, categoryIds, limit, tuning);
+        }
+        HnswIndex current = index;
+        if (current == null || queryVector.length != current.dimensions()) {
+            return fallback.searchByCategories(queryVector, categoryIds, limit, tuning);
+        }
+        if (tuning.probes() != null) {
+            log.debug("probes={} ignored by HNSW backend", tuning.probes());
+        }
+        int efSearch = tuning.efSearch() != null ? tuning.efSearch() : defaultEfSearch;
+        try {
+            return current.searchCategories(queryVector, categoryIds, limit, efSearch, exactSearchThreshold,
+                    minFilterSelectivity);
+        } catch (RuntimeException e) {
+            log.warn("HNSW category search failed, falling back to pgvector: {}", e.getMessage());
+            return fallback.searchByCategories(queryVector, categoryIds, limit, tuning);
+        }
+    }
+
+    @Override
+    public List<SimilarChunk> searchByDocument(float[] queryVector, Long documentId, int topK) {
+        HnswIndex current = index;
+        if (current == null || queryVector.length != current.dimensions()) {
+            return fallback.searchByDocument(queryVector, documentId, topK);
+        }
+        try {
+            return current.searchDocument(queryVector, documentId, topK);
+        } catch (RuntimeException e) {
+            log.warn("HNSW document search failed, falling back to pgvector: {}", e.getMessage());
+            return fallback.searchByDocument(queryVector, documentId, topK);
+        }
+    }
+
+    private void loadOrBuild() {
+        try {
+            HnswIndex loaded = load();
+            if (loaded != null) {
+                reconcile(loaded);
+                index = loaded;
+                log.info("HNSW index ready with {} chunks", loaded.size());
+
+                // 삭제 표시가 많으면 기존 인덱스로 검색하면서 새로 빌드 후 교체
+                if (loaded.deletedRatio() > rebuildDeletedRatio) {
+                    log.info("HNSW index has {}% deleted nodes, rebuilding", Math.round(loaded.deletedRatio() * 100));
+                    index = build();
+                    closeQuietly(loaded);
+                }
+            } else {
+                index = build();
+            }
+            dirty = false;
+        } catch (Exception e) {
+            log.error("Failed to prepare HNSW index, searches will use pgvector", e);
+            return;
+        }
+
+        // 준비 중에 들어온 문서 변경 반영
+        pendingDocuments.forEach(documentId -> syncExecutor.execute(() -> syncDocument(documentId)));
+    }
+
+    private HnswIndex load() {
+        Path current = currentIndexDirectory();
+        if (current == null || !HnswIndex.exists(current)) {
+            return null;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            HnswIndex loaded = HnswIndex.open(current, m, efConstruction);
+            log.info("Loaded HNSW index snapshot from {} in {} ms", current, System.currentTimeMillis() - started);
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Discarding HNSW index snapshot in {}: {}", current, e.getMessage());
+            return null;
+        }
+    }
+
+    // 스냅샷 이후 DB에서 바뀐 문서(청크 구성, 순번, 파일명)만 다시 반영
+    private void reconcile(HnswIndex target) throws IOException {
+        Map<Long, DocumentFingerprint> indexed = target.fingerprints();
+        Set<Long> changed = new HashSet<>();
+        for (DocumentFingerprint fingerprint : vectorStoreScanner.findFingerprints()) {
+            if (!fingerprint.equals(indexed.remove(fingerprint.documentId()))) {
+                changed.add(fingerprint.documentId());
+            }
+        }
+        // 인덱스에만 남아 있는 문서 (스냅샷 이후 삭제됨)
+        changed.addAll(indexed.keySet());
+
+        for (Long documentId : changed) {
+            target.syncDocument(documentId, vectorStoreScanner.findByDocumentId(documentId));
+        }
+        if (!changed.isEmpty()) {
+            log.info("Reconciled {} documents changed since the HNSW snapshot", changed.size());
+            target.save();
+        }
+    }
+
+    // 새 세대 디렉터리에 DB 전체를 id 순으로 읽어 빌드한 뒤 CURRENT를 교체
+    private HnswIndex build() throws IOException {
+        Path target = directory.resolve("index-" + System.currentTimeMillis());
+        long started = System.currentTimeMillis();
+        log.info("Building HNSW index in {} ...", target);
+
+        HnswIndex built = HnswIndex.create(target, dimensions, m, efConstruction);
+        try {
+            long afterId = 0;
+            long count = 0;
+            List<StoredVector> page;
+            while (!(page = vectorStoreScanner.findPage(afterId, BUILD_PAGE_SIZE)).isEmpty()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IOException("HNSW index build interrupted");
+                }
+                for (StoredVector row : page) {
+                    built.add(row);
+                }
+                afterId = page.get(page.size() - 1).id();
+                count += page.size();
+                if (count % (BUILD_PAGE_SIZE * 100L) == 0) {
+                    log.info("HNSW index build progress: {} chunks", count);
+                }
+            }
+            built.save();
+            switchCurrent(target);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(built);
+            deleteDirectory(target);
+            throw e;
+        }
+
+        log.info("Built HNSW index with {} chunks in {} ms", built.size(), System.currentTimeMillis() - started);
+        return built;
+    }
+
+    private void syncDocument(long documentId) {
+        HnswIndex current = index;
+        if (current == null) {
+            // 준비가 끝나면 loadOrBuild에서 다시 반영
+            return;
+        }
+        pendingDocuments.remove(documentId);
+        try {
+            HnswIndex.SyncResult result = current.syncDocument(documentId,
+                    vectorStoreScanner.findByDocumentId(documentId));
+            dirty = true;
+            log.debug("Synced document {} into HNSW index ({} added, {} kept, {} removed)",
+                    documentId, result.added(), result.kept(), result.removed());
+        } catch (Exception e) {
+            log.error("Failed to sync document {} into HNSW index", documentId, e);
+        }
+    }
+
+    private void saveIfDirty() {
+        HnswIndex current = index;
+        if (current == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            current.save();
+            log.debug("Saved HNSW index snapshot ({} chunks)", current.size());
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            log.error("Failed to save HNSW index snapshot", e);
+        }
+    }
+
+    private Path currentIndexDirectory() {
+        Path pointer = directory.resolve(CURRENT_FILE);
+        if (!Files.isRegularFile(pointer)) {
+            return null;
+        }
+        try {
+            return directory.resolve(Files.readString(pointer, StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            log.warn("Failed to read {}: {}", pointer, e.getMessage());
+            return null;
+        }
+    }
+
+    // CURRENT를 원자적으로 교체하고 이전 세대 디렉터리 삭제
+    private void switchCurrent(Path target) throws IOException {
+        Path temp = directory.resolve(CURRENT_FILE + ".tmp");
+        Files.writeString(temp, target.getFileName().toString(), StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(CURRENT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.filter(Files::isDirectory)
+                    .filter(path -> !path.equals(target))
+                    .forEach(this::deleteDirectory);
+        }
+    }
+
+    private void deleteDirectory(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to delete {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void closeQuietly(HnswIndex target) {
+        if (target == null) {
+            return;
+        }
+        try {
+            target.close();
+        } catch (IOException e) {
+            log.warn("Failed to close HNSW index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package devlava.docai.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 고정 차원 float 벡터 배열을 memory-mapped 파일에 저장 (힙 밖, OS 페이지 캐시 사용)
+ * - 파일을 최대 1GB 구간으로 나누어 매핑 (MappedByteBuffer 하나는 2GB 미만만 가능)
+ * - 슬롯 번호로 접근, 쓰기와 읽기의 가시성은 호출 측 락으로 보장
+ */
+final class MappedVectorStorage implements Closeable {
+
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int dimensions;
+    private final int vectorsPerSegment;
+    private final List<MappedByteBuffer> mapped = new ArrayList<>();
+    private final List<FloatBuffer> segments = new ArrayList<>();
+
+    MappedVectorStorage(Path file, int dimensions, boolean truncate) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (truncate) {
+            channel.truncate(0);
+        }
+        this.dimensions = dimensions;
+        this.vectorsPerSegment = (int) Math.max(1, SEGMENT_BYTES / (dimensions * 4L));
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 슬롯 수만큼 구간 매핑 (스냅샷에서 불러온 벡터 읽기 전 호출)
+     */
+    void ensureSlots(int count) throws IOException {
+        if (count > 0) {
+            segmentFor(count - 1);
+        }
+    }
+
+    void set(int slot, float[] vector) throws IOException {
+        segmentFor(slot).put(offset(slot), vector);
+    }
+
+    float dot(int slot, float[] query) {
+        FloatBuffer segment = segments.get(slot / vectorsPerSegment);
+        int base = offset(slot);
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += segment.get(base + i) * query[i];
+        }
+        return sum;
+    }
+
+    float dot(int a, int b) {
+        FloatBuffer segmentA = segments.get(a / vectorsPerSegment);
+        FloatBuffer segmentB = segments.get(b / vectorsPerSegment);
+        int baseA = offset(a);
+        int baseB = offset(b);
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += segmentA.get(baseA + i) * segmentB.get(baseB + i);
+        }
+        return sum;
+    }
+
+    void force() {
+        mapped.forEach(MappedByteBuffer::force);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int offset(int slot) {
+        return (slot % vectorsPerSegment) * dimensions;
+    }
+
+    private FloatBuffer segmentFor(int slot) throws IOException {
+        int index = slot / vectorsPerSegment;
+        long segmentBytes = (long) vectorsPerSegment * dimensions * 4L;
+        while (segments.size() <= index) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                    segments.size() * segmentBytes, segmentBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            mapped.add(buffer);
+            segments.add(buffer.asFloatBuffer());
+        }
+        return segments.get(index);
+    }
+}
@@ -0,0 +1,35 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorSearchTuning;
+import devlava.docai.repository.VectorStoreRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * pgvector 검색 백엔드 - 기본 백엔드이자 메모리 인덱스 준비 전 대체 경로
+ * - 문서 범위 검색은 DocumentEmbeddingCache로 DB 왕복 없이 처리
+ */
+@Component
+@RequiredArgsConstructor
+public class PgVectorSearchBackend implements VectorSearchBackend {
+
+    private final VectorStoreRepository vectorStoreRepository;
+    private final DocumentEmbeddingCache documentEmbeddingCache;
+
+    @Override
+    public List<SimilarChunk> searchByCategories(float[] queryVector, Collection<Long> categoryIds, int limit,
+                                                 VectorSearchTuning tuning) {
+        return vectorStoreRepository.findSimilarVectorsByCategories(queryVector, categoryIds, limit, tuning);
+    }
+
+    @Override
+    public List<SimilarChunk> searchByDocument(float[] queryVector, Long documentId, int topK) {
+        // 문서 임베딩을 메모리에서 전수 비교, 캐시 대상이 아닌 큰 문서만 DB 검색
+        return documentEmbeddingCache.search(queryVector, documentId, topK)
+                .orElseGet(() -> vectorStoreRepository.findSimilarVectorsByDocument(queryVector, documentId, topK));
+    }
+}
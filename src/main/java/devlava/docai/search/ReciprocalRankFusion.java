@@ -0,0 +1,39 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 여러 검색 결과 순위를 Reciprocal Rank Fusion으로 병합
+ * - 청크 점수 = 각 결과에서의 1 / (k + 순위) 합 (순위는 1부터), 점수가 같으면 먼저 나온 결과 순서
+ * - 점수 단위가 다른 검색(ts_rank, 코사인 거리)을 정규화 없이 순위만으로 합칠 수 있음
+ */
+public final class ReciprocalRankFusion {
+
+    private ReciprocalRankFusion() {
+    }
+
+    public static List<SimilarChunk> fuse(List<List<SimilarChunk>> rankings, int k, int limit) {
+        Map<Long, SimilarChunk> chunks = new LinkedHashMap<>();
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (List<SimilarChunk> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                SimilarChunk chunk = ranking.get(rank);
+                chunks.putIfAbsent(chunk.id(), chunk);
+                scores.merge(chunk.id(), 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed());
+        List<SimilarChunk> fused = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Map.Entry<Long, Double> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            fused.add(chunks.get(entry.getKey()));
+        }
+        return fused;
+    }
+}
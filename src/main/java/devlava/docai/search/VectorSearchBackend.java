@@ -0,0 +1,22 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorSearchTuning;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 벡터 유사도 검색 백엔드 - docai.search.backend로 선택
+ * - pgvector (기본): vector_stores 테이블에서 직접 검색
+ * - hnsw: 메모리 내 HNSW 인덱스에서 검색 (DB 왕복 없음)
+ */
+public interface VectorSearchBackend {
+
+    // 카테고리(들) 내 유사 청크 검색 (유사도 순)
+    List<SimilarChunk> searchByCategories(float[] queryVector, Collection<Long> categoryIds, int limit,
+                                          VectorSearchTuning tuning);
+
+    // 특정 문서 내 유사 청크 검색 (유사도 순)
+    List<SimilarChunk> searchByDocument(float[] queryVector, Long documentId, int topK);
+}
@@ -0,0 +1,6 @@
+package devlava.docai.service;
+
+public enum AnswerMode {
+    GENERATIVE,     // 검색된 청크를 바탕으로 LLM이 답변 생성
+    EXTRACTIVE      // LLM 없이 검색된 청크에서 질문과 가장 맞는 문장을 그대로 반환
+}
@@ -0,0 +1,6 @@
+package devlava.docai.service;
+
+public enum CategorySearchMode {
+    EXACT,      // 지정한 카테고리의 문서만 검색
+    SUBTREE     // 지정한 카테고리와 모든 하위 카테고리의 문서 검색
+}
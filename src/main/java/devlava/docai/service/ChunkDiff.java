@@ -0,0 +1,77 @@
+package devlava.docai.service;
+
+import devlava.docai.repository.VectorStoreBulkWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 재색인 시 새 청크와 기존 청크를 내용 해시로 대응
+ * - 내용이 같은 기존 청크는 임베딩 없이 새 순번으로 유지
+ * - 같은 내용이 여러 번 나오면 앞 순번부터 차례로 대응
+ * - 끝까지 대응되지 않은 기존 청크는 삭제 대상
+ * - 스레드 안전하지 않음 (임베딩 스레드 하나에서만 사용)
+ */
+public class ChunkDiff {
+
+    private final Map<String, ArrayDeque<VectorStoreBulkWriter.StoredChunk>> storedByHash = new HashMap<>();
+    private final Map<Long, Integer> keptIndexes = new LinkedHashMap<>();
+    private final int storedCount;
+
+    public ChunkDiff(List<VectorStoreBulkWriter.StoredChunk> storedChunks) {
+        for (VectorStoreBulkWriter.StoredChunk chunk : storedChunks) {
+            storedByHash.computeIfAbsent(chunk.contentHash(), hash -> new ArrayDeque<>()).add(chunk);
+        }
+        this.storedCount = storedChunks.size();
+    }
+
+    /**
+     * 같은 내용의 기존 청크가 남아 있으면 새 순번으로 유지하고 true
+     */
+    public boolean keep(String content, int chunkIndex) {
+        ArrayDeque<VectorStoreBulkWriter.StoredChunk> candidates = storedByHash.get(contentHash(content));
+        if (candidates == null || candidates.isEmpty()) {
+            return false;
+        }
+        keptIndexes.put(candidates.poll().id(), chunkIndex);
+        return true;
+    }
+
+    /**
+     * 유지되는 기존 청크 ID → 새 순번
+     */
+    public Map<Long, Integer> keptIndexes() {
+        return keptIndexes;
+    }
+
+    /**
+     * 새 문서에 더 이상 없는 기존 청크 ID
+     */
+    public List<Long> removedIds() {
+        List<Long> removed = new ArrayList<>();
+        storedByHash.values().forEach(chunks -> chunks.forEach(chunk -> removed.add(chunk.id())));
+        return removed;
+    }
+
+    public int storedCount() {
+        return storedCount;
+    }
+
+    // vector_stores 조회 시 DB에서 계산하는 해시와 같은 방식 (UTF-8 SHA-256 hex)
+    static String contentHash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
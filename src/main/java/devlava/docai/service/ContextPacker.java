@@ -0,0 +1,153 @@
+package devlava.docai.service;
+
+import com.knuddels.jtokkit.api.IntArrayList;
+import devlava.docai.repository.SimilarChunk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 검색된 청크로 LLM 컨텍스트 구성 - 토큰 예산 안에서 쓸모 있는 본문만 전달
+ * - 같은 문서에서 chunk_index가 연속인 청크는 하나의 구절로 합치고, 앞 청크 끝과 겹치는 부분은 제거
+ * - chunk_index가 같아도 본문이 다른 청크(재색인 전후 행 등)는 버리지 않음
+ * - 다른 구절에 이미 포함된 본문은 제외
+ * - 구절을 점수(구성 청크 중 최고 유사도) 순으로 max-tokens까지 채움 (청크 분할과 같은 토크나이저로 계산)
+ * - 예산보다 큰 구절은 건너뛰고 더 작은 구절로 남은 예산을 채움, 첫 구절조차 크면 앞부분만 잘라 사용
+ */
+@Component
+@Slf4j
+public class ContextPacker {
+
+    private static final String SEPARATOR = "\n\n";
+    // 이보다 짧은 일치는 우연일 수 있어 겹침으로 보지 않음
+    private static final int MIN_OVERLAP_CHARS = 8;
+
+    // 같은 문서의 연속된 청크를 합친 본문
+    private record Passage(Long documentId, int firstIndex, int lastIndex, String text, double score) {
+    }
+
+    private final int maxTokens;
+    private final int maxOverlapChars;
+    private final int separatorTokens;
+
+    public ContextPacker(@Value("${docai.search.context.max-tokens:3000}") int maxTokens,
+                         @Value("${docai.search.context.max-overlap-chars:300}") int maxOverlapChars) {
+        this.maxTokens = maxTokens;
+        this.maxOverlapChars = maxOverlapChars;
+        this.separatorTokens = StreamingTokenTextSplitter.ENCODING.countTokens(SEPARATOR);
+    }
+
+    /**
+     * 검색 결과(유사도 순)를 컨텍스트 문자열로 구성
+     */
+    public String pack(List<SimilarChunk> chunks) {
+        List<Passage> passages = mergeAdjacent(chunks);
+        passages.sort(Comparator.comparingDouble(Passage::score).reversed());
+
+        StringBuilder context = new StringBuilder();
+        int usedTokens = 0;
+        int packed = 0;
+        for (Passage passage : passages) {
+            if (containsText(context, passage.text())) {
+                continue;
+            }
+            int tokens = StreamingTokenTextSplitter.ENCODING.countTokens(passage.text());
+            int cost = tokens + (context.isEmpty() ? 0 : separatorTokens);
+            if (maxTokens > 0 && usedTokens + cost > maxTokens) {
+                if (context.isEmpty()) {
+                    context.append(truncate(passage.text(), maxTokens));
+                    usedTokens = maxTokens;
+                    packed++;
+                }
+                continue;
+            }
+            if (!context.isEmpty()) {
+                context.append(SEPARATOR);
+            }
+            context.append(passage.text());
+            usedTokens += cost;
+            packed++;
+        }
+
+        log.debug("Packed {} chunks into {} of {} passages ({} tokens, budget {})",
+                chunks.size(), packed, passages.size(), usedTokens, maxTokens);
+        return context.toString();
+    }
+
+    // 문서별로 chunk_index 순 정렬 후 연속 구간을 하나로 합침
+    private List<Passage> mergeAdjacent(List<SimilarChunk> chunks) {
+        Map<Long, List<SimilarChunk>> byDocument = new LinkedHashMap<>();
+        for (SimilarChunk chunk : chunks) {
+            byDocument.computeIfAbsent(chunk.documentId(), id -> new ArrayList<>()).add(chunk);
+        }
+
+        List<Passage> passages = new ArrayList<>();
+        for (List<SimilarChunk> documentChunks : byDocument.values()) {
+            documentChunks.sort(Comparator.comparingInt(SimilarChunk::chunkIndex));
+            Passage current = null;
+            for (SimilarChunk chunk : documentChunks) {
+                if (current != null && chunk.chunkIndex() == current.lastIndex()
+                        && current.text().contains(chunk.content())) {
+                    // 같은 청크가 중복 검색된 경우 (같은 index라도 본문이 다르면 아래에서 별도 구절로 유지)
+                    current = new Passage(current.documentId(), current.firstIndex(), current.lastIndex(),
+                            current.text(), Math.max(current.score(), chunk.similarity()));
+                } else if (current != null && chunk.chunkIndex() == current.lastIndex() + 1) {
+                    current = new Passage(current.documentId(), current.firstIndex(), chunk.chunkIndex(),
+                            join(current.text(), chunk.content()), Math.max(current.score(), chunk.similarity()));
+                } else {
+                    if (current != null) {
+                        passages.add(current);
+                    }
+                    current = new Passage(chunk.documentId(), chunk.chunkIndex(), chunk.chunkIndex(),
+                            chunk.content(), chunk.similarity());
+                }
+            }
+            if (current != null) {
+                passages.add(current);
+            }
+        }
+        return passages;
+    }
+
+    // 앞 본문의 끝과 뒷 본문의 시작이 겹치면 겹친 부분을 한 번만 남김
+    private String join(String previous, String next) {
+        int overlap = overlapLength(previous, next);
+        if (overlap > 0) {
+            return previous + next.substring(overlap);
+        }
+        return previous + "\n" + next;
+    }
+
+    // previous의 접미사이면서 next의 접두사인 가장 긴 문자열 길이 (MIN_OVERLAP_CHARS ~ maxOverlapChars)
+    private int overlapLength(String previous, String next) {
+        int limit = Math.min(maxOverlapChars, Math.min(previous.length(), next.length()));
+        for (int length = limit; length >= MIN_OVERLAP_CHARS; length--) {
+            if (previous.regionMatches(previous.length() - length, next, 0, length)) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean containsText(StringBuilder context, String text) {
+        return !context.isEmpty() && context.indexOf(text) >= 0;
+    }
+
+    private static String truncate(String text, int tokens) {
+        IntArrayList encoded = StreamingTokenTextSplitter.ENCODING.encode(text);
+        if (encoded.size() <= tokens) {
+            return text;
+        }
+        IntArrayList head = new IntArrayList(tokens);
+        for (int i = 0; i < tokens; i++) {
+            head.add(encoded.get(i));
+        }
+        return StreamingTokenTextSplitter.ENCODING.decode(head);
+    }
+}
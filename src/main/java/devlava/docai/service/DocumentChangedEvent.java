@@ -0,0 +1,12 @@
+package devlava.docai.service;
+
+/**
+ * 문서 등록/교체/삭제 및 벡터화 완료 이벤트 - 검색 결과 캐시 무효화 용도
+ * vectorsReady: 벡터화가 끝나 새 벡터가 모두 저장된 경우에만 true (캐시 미리 적재 대상)
+ */
+public record DocumentChangedEvent(Long documentId, Long categoryId, boolean vectorsReady) {
+
+    public DocumentChangedEvent(Long documentId, Long categoryId) {
+        this(documentId, categoryId, false);
+    }
+}
@@ -1,25 +1,29 @@
 package devlava.docai.service;
 
+import devlava.docai.dto.FileUploadResult;
 import devlava.docai.entity.Category;
 import devlava.docai.entity.Document;
+import devlava.docai.entity.IngestionJob;
+import devlava.docai.entity.IngestionJobType;
 import devlava.docai.repository.CategoryRepository;
 import devlava.docai.repository.DocumentRepository;
 import devlava.docai.repository.VectorStoreRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.document.DocumentReader;
-import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -28,7 +32,6 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -37,19 +40,23 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final CategoryRepository categoryRepository;
     private final VectorStoreRepository vectorStoreRepository;
-    private final EmbeddingModel embeddingModel; // 직접 임베딩 모델 사용
-    private final ObjectMapper objectMapper;
+    private final IngestionJobService ingestionJobService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     private final Path fileStorageLocation;
 
     public DocumentService(DocumentRepository documentRepository,
                            CategoryRepository categoryRepository,
                            VectorStoreRepository vectorStoreRepository,
-                           EmbeddingModel embeddingModel) {
+                           IngestionJobService ingestionJobService,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher eventPublisher) {
         this.documentRepository = documentRepository;
         this.categoryRepository = categoryRepository;
         this.vectorStoreRepository = vectorStoreRepository;
-        this.embeddingModel = embeddingModel;
-        this.objectMapper = new ObjectMapper();
+        this.ingestionJobService = ingestionJobService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
         this.fileStorageLocation = Paths.get("uploads");
 
         try {
@@ -68,200 +75,189 @@ public class DocumentService {
                 .orElseThrow(() -> new EntityNotFoundException("Document not found with id: " + id));
     }
 
-    // 단일 파일 업로드 (벡터 처리 포함)
+    // 교체/삭제용 - 트랜잭션이 끝날 때까지 문서 행을 잠가 동시 요청이 모두 진행 중 작업 확인을 통과하지 않도록 함
+    private Document getDocumentForUpdate(Long id) {
+        return documentRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new EntityNotFoundException("Document not found with id: " + id));
+    }
+
+    // 단일 파일 업로드 - 파일과 문서 정보만 저장하고 벡터 처리는 작업 큐에 등록
     @Transactional
-    public Document uploadDocument(Long categoryId, MultipartFile file) throws IOException {
+    public IngestionJob uploadDocument(Long categoryId, MultipartFile file) throws IOException {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + categoryId));
 
         Document document = saveFile(category, file);
-
-        // 벡터 처리
-        try {
-            processDocumentToVector(document);
-            log.info("Document vectorized successfully: {}", document.getFileName());
-        } catch (Exception e) {
-            log.error("Failed to vectorize document: {}", document.getFileName(), e);
-            // 벡터 처리 실패해도 문서는 저장된 상태로 유지
-        }
-
-        return document;
+        return ingestionJobService.enqueue(document);
     }
 
-    // 멀티 파일 업로드 (벡터 처리 포함)
-    @Transactional
-    public List<Document> uploadMultipleDocuments(Long categoryId, MultipartFile[] files) throws IOException {
+    // 멀티 파일 업로드 - 파일마다 독립 트랜잭션으로 저장하고 파일별 결과 반환
+    public List<FileUploadResult> uploadMultipleDocuments(Long categoryId, MultipartFile[] files) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + categoryId));
 
-        List<Document> documents = new ArrayList<>();
-        List<String> failedFiles = new ArrayList<>();
-        List<String> vectorFailedFiles = new ArrayList<>();
-
+        List<FileUploadResult> results = new ArrayList<>();
         for (MultipartFile file : files) {
-            try {
-                if (!file.isEmpty()) {
-                    Document document = saveFile(category, file);
-                    documents.add(document);
+            if (file.isEmpty()) {
+                results.add(FileUploadResult.failed(file.getOriginalFilename(), "빈 파일입니다."));
+                continue;
+            }
 
-                    // 각 파일별로 벡터 처리
+            try {
+                IngestionJob job = transactionTemplate.execute(status -> {
                     try {
-                        processDocumentToVector(document);
-                        log.info("Document vectorized successfully: {}", document.getFileName());
-                    } catch (Exception e) {
-                        vectorFailedFiles.add(file.getOriginalFilename());
-                        log.error("Failed to vectorize document: {}", document.getFileName(), e);
+                        return ingestionJobService.enqueue(saveFile(category, file));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
-                }
-            } catch (IOException e) {
-                failedFiles.add(file.getOriginalFilename());
+                });
+                results.add(FileUploadResult.accepted(file.getOriginalFilename(), job));
+            } catch (Exception e) {
                 log.error("Failed to upload file: {}", file.getOriginalFilename(), e);
+                results.add(FileUploadResult.failed(file.getOriginalFilename(), e.getMessage()));
             }
         }
 
-        if (!failedFiles.isEmpty()) {
-            throw new RuntimeException("일부 파일 업로드 실패: " + String.join(", ", failedFiles));
+        long failedCount = results.stream().filter(result -> !result.accepted()).count();
+        if (failedCount > 0) {
+            log.warn("일부 파일 업로드 실패: {}/{}", failedCount, results.size());
         }
+        return results;
+    }
 
-        if (!vectorFailedFiles.isEmpty()) {
-            log.warn("일부 파일 벡터화 실패 (파일은 저장됨): {}", String.join(", ", vectorFailedFiles));
-        }
+    /**
+     * 이미 저장소에 기록된 파일로 문서 생성 및 벡터화 작업 등록 (이어받기 업로드 완료 시)
+     */
+    @Transactional
+    public IngestionJob registerStoredFile(Long categoryId, String originalFileName, Path storedFile,
+                                           String contentType, long fileSize) throws IOException {
+        Category category = categoryRepository.findById(categoryId)
+                .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + categoryId));
+
+        // 같은 파일 시스템 안에서 이름만 변경 (데이터 재복사 없음)
+        Path targetLocation = resolveStorageLocation(originalFileName);
+        Files.move(storedFile, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+
+        // 롤백되면 세션을 이어서 완료할 수 있도록 파일을 원래 위치로 되돌림
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    Files.move(targetLocation, storedFile, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    log.error("Failed to restore upload file: {} -> {}", targetLocation, storedFile, e);
+                }
+            }
+        });
 
-        return documents;
+        Document document = createDocument(category, originalFileName, targetLocation, contentType, fileSize);
+        return ingestionJobService.enqueue(document);
     }
 
-    // 벡터 처리 메서드 - 직접 우리 DB에 저장
-    private void processDocumentToVector(Document document) {
-        try {
-            log.info("Starting vector processing for document: {}", document.getFileName());
+    /**
+     * 문서 파일 교체 - 문서 ID와 기존 벡터는 유지하고 바뀐 청크만 다시 임베딩하는 재색인 작업 등록
+     */
+    @Transactional
+    public IngestionJob replaceDocumentContent(Long id, MultipartFile file) throws IOException {
+        Document document = getDocumentForUpdate(id);
+        if (ingestionJobService.hasActiveJob(id)) {
+            throw new IllegalStateException("Document is already being processed: " + id);
+        }
 
-            // 1. 파일을 Resource로 변환
-            Resource fileResource = loadFileAsResource(document.getFilePath());
-            log.info("File resource loaded: {}", fileResource.exists());
+        // 1. 새 파일 저장
+        String originalFileName = file.getOriginalFilename();
+        Path targetLocation = resolveStorageLocation(originalFileName);
+        file.transferTo(targetLocation.toAbsolutePath().toFile());
 
-            // 2. Tika로 문서 읽기
-            DocumentReader documentReader = new TikaDocumentReader(fileResource);
-            List<org.springframework.ai.document.Document> aiDocuments = documentReader.get();
-            log.info("Tika extracted {} documents", aiDocuments.size());
+        // 2. 롤백되면 새 파일 삭제 (이전 파일은 재색인이 끝날 때까지 유지 - 작업 완료/최종 실패 시 정리)
+        deleteOnRollback(targetLocation);
 
-            if (aiDocuments.isEmpty()) {
-                log.warn("No content extracted from file: {}", document.getFileName());
-                return;
-            }
+        // 3. 이전 파일 정보를 작업에 남기고 문서 정보 갱신 및 재색인 작업 등록
+        IngestionJob job = ingestionJobService.enqueue(document, IngestionJobType.REINDEX);
+        job.setPreviousFilePath(document.getFilePath());
+        job.setPreviousFileName(document.getFileName());
+        job.setPreviousContentType(document.getContentType());
+        job.setPreviousFileSize(document.getFileSize());
 
-            // 첫 번째 문서의 내용 일부 로깅
-            if (!aiDocuments.isEmpty()) {
-                String content = aiDocuments.get(0).getContent();
-                log.info("First document content preview ({}chars): {}",
-                        content.length(),
-                        content.substring(0, Math.min(200, content.length())));
-            }
+        document.setFileName(originalFileName);
+        document.setFilePath(targetLocation.toString());
+        document.setContentType(file.getContentType());
+        document.setFileSize(file.getSize());
 
-            // 3. 텍스트 분할 (청킹)
-            TokenTextSplitter splitter = new TokenTextSplitter(500, 50, 5, 10000, true);
-            List<org.springframework.ai.document.Document> chunks = splitter.apply(aiDocuments);
-            log.info("Text splitter created {} chunks", chunks.size());
+        eventPublisher.publishEvent(new DocumentChangedEvent(document.getId(), document.getCategory().getId()));
+        return job;
+    }
 
-            if (chunks.isEmpty()) {
-                log.warn("No chunks created from documents");
-                return;
-            }
+    // 파일 저장 공통 메서드
+    private Document saveFile(Category category, MultipartFile file) throws IOException {
+        String originalFileName = file.getOriginalFilename();
+        Path targetLocation = resolveStorageLocation(originalFileName);
 
-            // 4. 각 청크를 임베딩하고 DB에 저장
-            int successCount = 0;
-            for (int i = 0; i < chunks.size(); i++) {
-                org.springframework.ai.document.Document chunk = chunks.get(i);
+        // 롤백되면 (문서/작업 저장 실패, 이동 중 오류 포함) 업로드 디렉터리에 남은 파일 삭제
+        deleteOnRollback(targetLocation);
 
+        // 컨테이너가 임시 저장한 파일을 이동 (가능하면 rename, 디스크 재기록 없음)
+        file.transferTo(targetLocation.toAbsolutePath().toFile());
+
+        return createDocument(category, originalFileName, targetLocation, file.getContentType(), file.getSize());
+    }
+
+    // 현재 트랜잭션이 커밋되지 않고 끝나면 파일 삭제
+    private void deleteOnRollback(Path targetLocation) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
                 try {
-                    // 임베딩 생성
-                    float[] embeddingArray = embeddingModel.embed(chunk.getContent());
-                    List<Double> embedding = new ArrayList<>();
-                    for (float f : embeddingArray) {
-                        embedding.add((double) f);
-                    }
-                    log.debug("Generated embedding for chunk {}: {} dimensions", i, embedding.size());
-
-                    // 메타데이터 준비
-                    Map<String, Object> metadata = new HashMap<>();
-                    metadata.put("document_id", document.getId());
-                    metadata.put("file_name", document.getFileName());
-                    metadata.put("category_id", document.getCategory().getId());
-                    metadata.put("category_name", document.getCategory().getName());
-                    metadata.put("content_type", document.getContentType());
-                    metadata.put("file_size", document.getFileSize());
-                    metadata.put("upload_time", LocalDateTime.now().toString());
-                    metadata.put("chunk_index", i);
-
-                    // 개별 청크 저장
-                    saveVectorChunk(
-                            document.getId(),
-                            i,
-                            chunk.getContent(),
-                            convertEmbeddingToString(embedding),
-                            objectMapper.writeValueAsString(metadata)
-                    );
-
-                    successCount++;
-                    log.debug("Saved chunk {} to database", i);
-
-                } catch (Exception e) {
-                    log.error("Failed to process chunk {}: {}", i, e.getMessage());
+                    Files.deleteIfExists(targetLocation);
+                } catch (IOException e) {
+                    log.error("Failed to delete file: {}", targetLocation, e);
                 }
             }
-
-            log.info("Successfully processed {}/{} chunks for document: {}",
-                    successCount, chunks.size(), document.getFileName());
-
-        } catch (Exception e) {
-            log.error("Error processing document to vector: {}", document.getFileName(), e);
-            throw new RuntimeException("Failed to process document to vector store", e);
-        }
+        });
     }
 
-    // 개별 벡터 청크 저장 (별도 트랜잭션)
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    protected void saveVectorChunk(Long documentId, int chunkIndex, String content, String embedding, String metadata) {
-        try {
-            vectorStoreRepository.insertVectorStore(
-                    documentId,
-                    chunkIndex,
-                    content,
-                    embedding,
-                    metadata,
-                    LocalDateTime.now(),
-                    LocalDateTime.now()
-            );
-        } catch (Exception e) {
-            log.error("Failed to save vector chunk {}: {}", chunkIndex, e.getMessage());
-            throw e;
+    // 저장 경로는 항상 업로드 디렉터리 바로 아래 (파일명의 경로 구성요소는 버림)
+    // 같은 초에 같은 이름의 파일이 와도 기존 파일을 덮어쓰지 않도록 UUID를 붙임
+    private Path resolveStorageLocation(String originalFileName) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        String uniqueFileName = timestamp + "_" + UUID.randomUUID() + "_" + cleanFileName(originalFileName);
+        Path root = fileStorageLocation.toAbsolutePath().normalize();
+        Path target = root.resolve(uniqueFileName).normalize();
+        if (!target.getParent().equals(root)) {
+            throw new IllegalArgumentException("Invalid file name: " + originalFileName);
         }
+        return fileStorageLocation.resolve(target.getFileName());
     }
 
-    // 임베딩을 PostgreSQL vector 타입 문자열로 변환
-    private String convertEmbeddingToString(List<Double> embedding) {
-        return "[" + embedding.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(",")) + "]";
+    /**
+     * 클라이언트가 보낸 파일명에서 경로를 제거하고 마지막 이름만 남김 ("../../x" → "x")
+     */
+    static String cleanFileName(String fileName) {
+        String name = fileName == null ? null : StringUtils.getFilename(StringUtils.cleanPath(fileName));
+        if (name == null || name.isBlank() || name.equals(".") || name.equals("..")) {
+            throw new IllegalArgumentException("Invalid file name: " + fileName);
+        }
+        return name;
     }
 
-    // 파일 저장 공통 메서드
-    private Document saveFile(Category category, MultipartFile file) throws IOException {
-        String originalFileName = file.getOriginalFilename();
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String uniqueFileName = timestamp + "_" + originalFileName;
-        Path targetLocation = fileStorageLocation.resolve(uniqueFileName);
-
-        // 파일 저장 (덮어쓰기 옵션 사용)
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
+    private Document createDocument(Category category, String originalFileName, Path storedFile,
+                                    String contentType, long fileSize) {
         Document document = new Document();
         document.setCategory(category);
         document.setFileName(originalFileName);
-        document.setFilePath(targetLocation.toString());
-        document.setContentType(file.getContentType());
-        document.setFileSize(file.getSize());
+        document.setFilePath(storedFile.toString());
+        document.setContentType(contentType);
+        document.setFileSize(fileSize);
 
-        return documentRepository.save(document);
+        Document saved = documentRepository.save(document);
+        eventPublisher.publishEvent(new DocumentChangedEvent(saved.getId(), category.getId()));
+        return saved;
     }
 
     public Resource loadFileAsResource(String filePath) {
@@ -281,7 +277,11 @@ public class DocumentService {
 
     @Transactional
     public void deleteDocument(Long id) {
-        Document document = getDocument(id);
+        Document document = getDocumentForUpdate(id);
+        // 처리 중인 작업은 자체 트랜잭션으로 벡터를 계속 저장하므로 끝날 때까지 삭제 불가
+        if (ingestionJobService.hasActiveJob(id)) {
+            throw new IllegalStateException("Document is being processed: " + id);
+        }
 
         // 1. 벡터 스토어에서 관련 데이터 삭제
         try {
@@ -298,8 +298,11 @@ public class DocumentService {
             log.error("Failed to delete file: {}", document.getFilePath(), e);
         }
 
-        // 3. DB에서 문서 정보 삭제
+        // 3. DB에서 문서 정보 및 벡터화 작업 이력 삭제
+        ingestionJobService.deleteJobsForDocument(id);
         documentRepository.deleteById(id);
+
+        eventPublisher.publishEvent(new DocumentChangedEvent(id, document.getCategory().getId()));
     }
 
 }
\ No newline at end of file
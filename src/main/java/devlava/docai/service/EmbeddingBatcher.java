@@ -0,0 +1,115 @@
+package devlava.docai.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 청크 임베딩을 배치 단위로 묶어 병렬 호출
+ * - 동시에 진행되는 배치 수는 스레드 수로 제한 (모든 문서 처리에 공유)
+ * - 실패한 배치는 절반으로 나눠 재시도, 단건까지 실패하면 해당 청크만 제외
+ */
+@Component
+@Slf4j
+public class EmbeddingBatcher {
+
+    /**
+     * 배치 완료 콜백 - 호출 스레드에서 입력 순서대로 호출됨
+     * embeddings 배열의 null 항목은 임베딩에 실패한 청크
+     */
+    @FunctionalInterface
+    public interface BatchHandler {
+        void accept(int offset, float[][] embeddings);
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    public EmbeddingBatcher(EmbeddingModel embeddingModel,
+                            @Value("${docai.embedding.batch-size:32}") int batchSize,
+                            @Value("${docai.embedding.max-concurrent-batches:4}") int maxConcurrentBatches) {
+        this.embeddingModel = embeddingModel;
+        this.batchSize = batchSize;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentBatches, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 전체 텍스트를 배치로 나눠 임베딩하고, 완료된 배치를 순서대로 handler에 전달
+     */
+    public void embedAll(List<String> texts, BatchHandler handler) {
+        List<Future<float[][]>> futures = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+
+        for (int offset = 0; offset < texts.size(); offset += batchSize) {
+            List<String> batch = texts.subList(offset, Math.min(offset + batchSize, texts.size()));
+            offsets.add(offset);
+            futures.add(executor.submit(() -> embedBatch(batch, 0)));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                handler.accept(offsets.get(i), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Embedding interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Embedding batch failed", e.getCause());
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private float[][] embedBatch(List<String> texts, int depth) {
+        float[][] result = new float[texts.size()][];
+        try {
+            List<float[]> embeddings = embeddingModel.embed(texts);
+            if (embeddings.size() != texts.size()) {
+                throw new IllegalStateException("Expected " + texts.size() + " embeddings but got " + embeddings.size());
+            }
+            for (int i = 0; i < embeddings.size(); i++) {
+                result[i] = embeddings.get(i);
+            }
+        } catch (Exception e) {
+            if (texts.size() == 1) {
+                log.error("Failed to embed chunk after {} splits: {}", depth, e.getMessage());
+                return result;
+            }
+
+            // 배치를 반으로 나눠 재시도
+            int mid = texts.size() / 2;
+            log.warn("Embedding batch of {} failed, retrying as {} + {}: {}",
+                    texts.size(), mid, texts.size() - mid, e.getMessage());
+            float[][] left = embedBatch(texts.subList(0, mid), depth + 1);
+            float[][] right = embedBatch(texts.subList(mid, texts.size()), depth + 1);
+            System.arraycopy(left, 0, result, 0, left.length);
+            System.arraycopy(right, 0, result, mid, right.length);
+        }
+        return result;
+    }
+}
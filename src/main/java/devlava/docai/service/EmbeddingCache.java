@@ -0,0 +1,165 @@
+package devlava.docai.service;
+
+import devlava.docai.cache.LruCache;
+import devlava.docai.entity.EmbeddingCacheEntry;
+import devlava.docai.repository.EmbeddingCacheRepository;
+import devlava.docai.vector.PgVector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 청크 임베딩 캐시 - 메모리 LRU → embedding_cache 테이블 순으로 조회
+ * 동일한 텍스트(같은 모델)는 다시 임베딩하지 않음
+ */
+@Service
+@Slf4j
+public class EmbeddingCache {
+
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO embedding_cache (cache_key, model, embedding, created_at) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (cache_key) DO NOTHING";
+
+    private final EmbeddingCacheRepository embeddingCacheRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final String modelName;
+    private final LruCache<String, float[]> memoryCache;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public EmbeddingCache(EmbeddingCacheRepository embeddingCacheRepository,
+                          JdbcTemplate jdbcTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${spring.ai.ollama.embedding.options.model:default}") String modelName,
+                          @Value("${docai.embedding.cache.memory-entries:10000}") int memoryEntries) {
+        this.embeddingCacheRepository = embeddingCacheRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.modelName = modelName;
+        this.memoryCache = new LruCache<>(memoryEntries);
+
+        this.memoryHits = Counter.builder("docai.embedding.cache.requests")
+                .tag("result", "hit").tag("tier", "memory")
+                .register(meterRegistry);
+        this.databaseHits = Counter.builder("docai.embedding.cache.requests")
+                .tag("result", "hit").tag("tier", "database")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docai.embedding.cache.requests")
+                .tag("result", "miss").tag("tier", "none")
+                .register(meterRegistry);
+        Gauge.builder("docai.embedding.cache.hit.ratio", this, EmbeddingCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("docai.embedding.cache.memory.size", memoryCache, LruCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 텍스트별 캐시된 임베딩 조회 - 입력 순서대로 반환, 없는 항목은 null
+     */
+    public float[][] getAll(List<String> texts) {
+        float[][] result = new float[texts.size()][];
+        Map<String, List<Integer>> missingKeys = new HashMap<>();
+
+        // 1. 메모리 캐시
+        for (int i = 0; i < texts.size(); i++) {
+            String key = cacheKey(texts.get(i));
+            float[] embedding = memoryCache.get(key);
+            if (embedding != null) {
+                result[i] = embedding;
+                memoryHits.increment();
+            } else {
+                missingKeys.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // 2. DB 캐시
+        if (!missingKeys.isEmpty()) {
+            try {
+                List<String> keys = new ArrayList<>(missingKeys.keySet());
+                for (int from = 0; from < keys.size(); from += LOOKUP_BATCH_SIZE) {
+                    List<String> batch = keys.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, keys.size()));
+                    for (EmbeddingCacheEntry entry : embeddingCacheRepository.findAllById(batch)) {
+                        memoryCache.put(entry.getCacheKey(), entry.getEmbedding());
+                        for (int index : missingKeys.remove(entry.getCacheKey())) {
+                            result[index] = entry.getEmbedding();
+                            databaseHits.increment();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Embedding cache lookup failed, treating as miss: {}", e.getMessage());
+            }
+        }
+
+        missingKeys.values().forEach(indexes -> misses.increment(indexes.size()));
+        return result;
+    }
+
+    /**
+     * 새로 생성한 임베딩 저장 (null 항목은 건너뜀)
+     */
+    public void putAll(List<String> texts, float[][] embeddings) {
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (int i = 0; i < texts.size(); i++) {
+            if (embeddings[i] == null) {
+                continue;
+            }
+            String key = cacheKey(texts.get(i));
+            memoryCache.put(key, embeddings[i]);
+            rows.add(new Object[]{key, embeddings[i]});
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                PgVector.register(ps.getConnection());
+                ps.setString(1, (String) row[0]);
+                ps.setString(2, modelName);
+                ps.setObject(3, new PgVector((float[]) row[1]));
+                ps.setTimestamp(4, now);
+            });
+        } catch (Exception e) {
+            log.warn("Failed to persist {} embeddings to cache: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    public double hitRatio() {
+        double hits = memoryHits.count() + databaseHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    private String cacheKey(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package devlava.docai.service;
+
+import devlava.docai.lexical.BigramTokenizer;
+import devlava.docai.repository.SimilarChunk;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * LLM 없이 검색된 청크에서 답변 문장 추출 (단순 조회용, 수 ms)
+ * - 청크를 문장으로 나누고 질문과의 어휘 겹침(한글 bigram, 어휘 검색과 같은 토큰화)과 청크 유사도로 점수 계산
+ *   점수 = 겹침 비율 * (1 - similarity-weight) + 청크 유사도 * similarity-weight
+ * - 문장 임베딩 유사도는 문장마다 임베딩 호출이 필요해 지연 목표에 맞지 않아 사용하지 않음
+ * - 겹치는 청크에서 나온 같은 문장은 한 번만 사용
+ */
+@Component
+public class ExtractiveAnswerer {
+
+    // 문장 끝 부호 뒤 공백 또는 줄바꿈에서 분리
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[.!?。])\\s+|\\s*\\n+\\s*");
+
+    /**
+     * 추출된 문장과 출처 청크
+     */
+    public record Extract(SimilarChunk chunk, String sentence, double score) {
+    }
+
+    private final int maxSentences;
+    private final int minSentenceChars;
+    private final double similarityWeight;
+
+    public ExtractiveAnswerer(@Value("${docai.search.extractive.max-sentences:3}") int maxSentences,
+                              @Value("${docai.search.extractive.min-sentence-chars:10}") int minSentenceChars,
+                              @Value("${docai.search.extractive.similarity-weight:0.3}") double similarityWeight) {
+        this.maxSentences = Math.max(maxSentences, 1);
+        this.minSentenceChars = minSentenceChars;
+        this.similarityWeight = similarityWeight;
+    }
+
+    /**
+     * 점수가 높은 순으로 최대 max-sentences개 (동점이면 검색 순서)
+     */
+    public List<Extract> extract(String query, List<SimilarChunk> chunks) {
+        Set<String> queryTerms = new HashSet<>(BigramTokenizer.tokenize(query));
+        Set<String> seen = new HashSet<>();
+        List<Extract> candidates = new ArrayList<>();
+
+        for (SimilarChunk chunk : chunks) {
+            for (String sentence : SENTENCE_BOUNDARY.split(chunk.content())) {
+                String trimmed = sentence.strip();
+                if (trimmed.length() < minSentenceChars || !seen.add(trimmed)) {
+                    continue;
+                }
+                double overlap = overlapRatio(queryTerms, trimmed);
+                double score = overlap * (1 - similarityWeight) + Math.max(0.0, chunk.similarity()) * similarityWeight;
+                candidates.add(new Extract(chunk, trimmed, score));
+            }
+        }
+
+        candidates.sort(Comparator.comparingDouble(Extract::score).reversed());
+        return candidates.subList(0, Math.min(maxSentences, candidates.size()));
+    }
+
+    // 질문 토큰 중 문장에 나오는 비율
+    private static double overlapRatio(Set<String> queryTerms, String sentence) {
+        if (queryTerms.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> sentenceTerms = new HashSet<>(BigramTokenizer.tokenize(sentence));
+        int matched = 0;
+        for (String term : queryTerms) {
+            if (sentenceTerms.contains(term)) {
+                matched++;
+            }
+        }
+        return (double) matched / queryTerms.size();
+    }
+}
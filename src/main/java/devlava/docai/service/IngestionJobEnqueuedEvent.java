@@ -0,0 +1,7 @@
+package devlava.docai.service;
+
+/**
+ * 벡터화 작업 등록 이벤트 - 커밋 후 워커를 깨우는 용도
+ */
+public record IngestionJobEnqueuedEvent(Long jobId) {
+}
@@ -0,0 +1,202 @@
+package devlava.docai.service;
+
+import devlava.docai.entity.Document;
+import devlava.docai.entity.IngestionJob;
+import devlava.docai.entity.IngestionJobStatus;
+import devlava.docai.entity.IngestionJobType;
+import devlava.docai.repository.DocumentRepository;
+import devlava.docai.repository.IngestionJobRepository;
+import devlava.docai.repository.VectorStoreBulkWriter;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IngestionJobService {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    // 재시도 간격을 두 배씩 늘리는 최대 횟수 (retryBackoff * 2^10에서 멈춤)
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final IngestionJobRepository ingestionJobRepository;
+    private final DocumentRepository documentRepository;
+    private final VectorStoreBulkWriter vectorStoreBulkWriter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 문서 벡터화 작업 등록 (호출자 트랜잭션에 참여)
+     */
+    @Transactional
+    public IngestionJob enqueue(Document document) {
+        return enqueue(document, IngestionJobType.INDEX);
+    }
+
+    @Transactional
+    public IngestionJob enqueue(Document document, IngestionJobType type) {
+        IngestionJob job = new IngestionJob();
+        job.setDocumentId(document.getId());
+        job.setType(type);
+        job.setStatus(IngestionJobStatus.PENDING);
+
+        IngestionJob saved = ingestionJobRepository.save(job);
+        eventPublisher.publishEvent(new IngestionJobEnqueuedEvent(saved.getId()));
+        log.info("Enqueued {} job {} for document: {}", type, saved.getId(), document.getFileName());
+        return saved;
+    }
+
+    /**
+     * 문서에 아직 끝나지 않은(대기/처리 중) 작업이 있는지
+     */
+    @Transactional(readOnly = true)
+    public boolean hasActiveJob(Long documentId) {
+        return ingestionJobRepository.existsByDocumentIdAndStatusIn(documentId,
+                List.of(IngestionJobStatus.PENDING, IngestionJobStatus.RUNNING));
+    }
+
+    @Transactional(readOnly = true)
+    public IngestionJob getJob(Long id) {
+        return ingestionJobRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Ingestion job not found with id: " + id));
+    }
+
+    /**
+     * 대기 중인 작업 하나를 선점하여 RUNNING 상태로 전환
+     */
+    @Transactional
+    public Optional<IngestionJob> claimNextJob() {
+        return ingestionJobRepository.findNextPendingForUpdate(LocalDateTime.now())
+                .map(job -> {
+                    job.setStatus(IngestionJobStatus.RUNNING);
+                    job.setAttempts(job.getAttempts() + 1);
+                    job.setStartedAt(LocalDateTime.now());
+                    job.setProcessedChunks(0);
+                    job.setErrorMessage(null);
+                    job.setNextAttemptAt(null);
+                    return job;
+                });
+    }
+
+    @Transactional
+    public void updateProgress(Long jobId, int processedChunks, int totalChunks) {
+        ingestionJobRepository.updateProgress(jobId, processedChunks, totalChunks, LocalDateTime.now());
+    }
+
+    @Transactional
+    public void markCompleted(Long jobId, int processedChunks, int totalChunks) {
+        IngestionJob job = getJob(jobId);
+        job.setStatus(IngestionJobStatus.COMPLETED);
+        job.setProcessedChunks(processedChunks);
+        job.setTotalChunks(totalChunks);
+        job.setFinishedAt(LocalDateTime.now());
+
+        // 재색인 성공 - 교체 전 파일은 더 이상 필요 없음 (문서가 아직 같은 파일을 쓰고 있으면 유지)
+        if (job.getPreviousFilePath() != null) {
+            String currentPath = documentRepository.findById(job.getDocumentId())
+                    .map(Document::getFilePath)
+                    .orElse(null);
+            if (!isSameFile(job.getPreviousFilePath(), currentPath)) {
+                deleteFileAfterCommit(Paths.get(job.getPreviousFilePath()));
+            }
+        }
+    }
+
+    /**
+     * 실패 처리 - 재시도 가능하면 retryBackoff * 2^(시도 횟수 - 1) 뒤에 다시 선점되도록 대기열로, 아니면 FAILED
+     */
+    @Transactional
+    public void markFailed(Long jobId, String errorMessage, int maxAttempts, Duration retryBackoff) {
+        IngestionJob job = getJob(jobId);
+        job.setErrorMessage(errorMessage != null && errorMessage.length() > MAX_ERROR_LENGTH
+                ? errorMessage.substring(0, MAX_ERROR_LENGTH)
+                : errorMessage);
+
+        if (job.getAttempts() < maxAttempts) {
+            Duration delay = retryBackoff.multipliedBy(1L << Math.min(Math.max(job.getAttempts() - 1, 0), MAX_BACKOFF_SHIFT));
+            job.setStatus(IngestionJobStatus.PENDING);
+            job.setNextAttemptAt(LocalDateTime.now().plus(delay));
+            log.warn("Ingestion job {} failed (attempt {}/{}), retrying in {}s",
+                    jobId, job.getAttempts(), maxAttempts, delay.toSeconds());
+        } else {
+            job.setStatus(IngestionJobStatus.FAILED);
+            job.setFinishedAt(LocalDateTime.now());
+            log.error("Ingestion job {} failed after {} attempts", jobId, job.getAttempts());
+            if (job.isReindex()) {
+                abandonReindex(job);
+            }
+        }
+    }
+
+    // 재색인 포기 - 검색은 교체 전 청크만 보고 있으므로 대기 청크를 지우고 문서를 이전 파일로 되돌림
+    private void abandonReindex(IngestionJob job) {
+        // 남아도 다음 재색인 시작 시 또는 문서 삭제 시(FK) 정리되므로 실패해도 진행
+        try {
+            vectorStoreBulkWriter.deletePendingByDocumentId(job.getDocumentId());
+        } catch (Exception e) {
+            log.warn("Failed to delete pending chunks for document {}: {}", job.getDocumentId(), e.getMessage());
+        }
+        if (job.getPreviousFilePath() == null) {
+            return;
+        }
+        documentRepository.findById(job.getDocumentId()).ifPresent(document -> {
+            String replacement = document.getFilePath();
+            document.setFilePath(job.getPreviousFilePath());
+            document.setFileName(job.getPreviousFileName());
+            document.setContentType(job.getPreviousContentType());
+            document.setFileSize(job.getPreviousFileSize() != null ? job.getPreviousFileSize() : 0L);
+            if (!isSameFile(replacement, job.getPreviousFilePath())) {
+                deleteFileAfterCommit(Paths.get(replacement));
+            }
+            eventPublisher.publishEvent(new DocumentChangedEvent(document.getId(), document.getCategory().getId()));
+            log.warn("Re-index of document {} abandoned, restored previous file: {}",
+                    document.getId(), document.getFileName());
+        });
+    }
+
+    private static boolean isSameFile(String path, String other) {
+        return other != null
+                && Paths.get(path).toAbsolutePath().normalize().equals(Paths.get(other).toAbsolutePath().normalize());
+    }
+
+    private void deleteFileAfterCommit(Path file) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.error("Failed to delete file: {}", file, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 서버 중단으로 RUNNING 상태에 남은 작업을 대기열로 복구 (단일 인스턴스 기준)
+     */
+    @Transactional
+    public int requeueInterruptedJobs() {
+        return ingestionJobRepository.updateStatus(IngestionJobStatus.RUNNING, IngestionJobStatus.PENDING);
+    }
+
+    @Transactional
+    public void deleteJobsForDocument(Long documentId) {
+        ingestionJobRepository.deleteByDocumentId(documentId);
+    }
+}
@@ -0,0 +1,437 @@
+package devlava.docai.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import devlava.docai.entity.Document;
+import devlava.docai.repository.DocumentRepository;
+import devlava.docai.repository.VectorStoreBulkWriter;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 문서 벡터화 파이프라인: 추출·청킹 → 임베딩 → 저장
+ * - 단계마다 별도의 제한된 스레드 풀과 대기 큐를 사용
+ * - 저장 단계 큐가 가득 차면 임베딩 스레드가 직접 저장하여 자연스럽게 속도 조절
+ * - 파싱·임베딩 풀은 서로를 기다리므로 호출 스레드 실행 대신 거부(작업 실패 → 재시도)
+ * - 파싱 스레드가 텍스트를 조각 단위로 추출하며 바로 청크를 만들고, 임베딩 스레드가 동시에 소비
+ * - 두 단계 사이에는 청크 윈도우(제한된 큐)만 있으므로 메모리 사용량이 문서 크기와 무관
+ */
+@Component
+@Slf4j
+public class IngestionPipeline {
+
+    private static final int SEGMENT_CHARS = 8192;
+
+    // diff는 재색인일 때만 존재
+    private record PreparedDocument(Document document, ChunkDiff diff) {
+    }
+
+    private final DocumentRepository documentRepository;
+    private final DocumentService documentService;
+    private final VectorStoreBulkWriter vectorStoreBulkWriter;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final EmbeddingCache embeddingCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int writeBatchSize;
+    private final int chunkWindowSize;
+    private final int embedGroupSize;
+
+    private final ThreadPoolExecutor extractExecutor;
+    private final ThreadPoolExecutor embedExecutor;
+    private final ThreadPoolExecutor writeExecutor;
+
+    public IngestionPipeline(DocumentRepository documentRepository,
+                             DocumentService documentService,
+                             VectorStoreBulkWriter vectorStoreBulkWriter,
+                             EmbeddingBatcher embeddingBatcher,
+                             EmbeddingCache embeddingCache,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${docai.vector-store.write-batch-size:500}") int writeBatchSize,
+                             @Value("${docai.ingestion.worker-pool-size:4}") int workerPoolSize,
+                             @Value("${docai.ingestion.pipeline.extract-threads:2}") int extractThreads,
+                             @Value("${docai.ingestion.pipeline.embed-threads:2}") int embedThreads,
+                             @Value("${docai.ingestion.pipeline.write-threads:2}") int writeThreads,
+                             @Value("${docai.ingestion.pipeline.queue-capacity:8}") int queueCapacity,
+                             @Value("${docai.ingestion.pipeline.chunk-window:256}") int chunkWindowSize,
+                             @Value("${docai.ingestion.pipeline.embed-group-size:128}") int embedGroupSize) {
+        this.documentRepository = documentRepository;
+        this.documentService = documentService;
+        this.vectorStoreBulkWriter = vectorStoreBulkWriter;
+        this.embeddingBatcher = embeddingBatcher;
+        this.embeddingCache = embeddingCache;
+        this.eventPublisher = eventPublisher;
+        this.writeBatchSize = writeBatchSize;
+        this.chunkWindowSize = chunkWindowSize;
+        this.embedGroupSize = embedGroupSize;
+
+        // 문서마다 파싱 스레드와 임베딩 스레드가 짝을 이뤄 동시에 돌아야 하므로
+        // 두 풀은 동시 처리 문서 수 이상이어야 서로 기다리며 멈추지 않음
+        this.extractExecutor = newStageExecutor("ingest-extract", Math.max(extractThreads, workerPoolSize), queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.embedExecutor = newStageExecutor("ingest-embed", Math.max(embedThreads, workerPoolSize), queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+        // 저장은 다른 단계를 기다리지 않으므로 임베딩 스레드가 직접 실행해도 안전
+        this.writeExecutor = newStageExecutor("ingest-write", writeThreads, queueCapacity,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List.of(extractExecutor, embedExecutor, writeExecutor)
+                .forEach(ThreadPoolExecutor::shutdownNow);
+    }
+
+    /**
+     * 문서 하나를 파이프라인에 투입 - 저장(또는 유지)된 청크 수로 완료
+     * reindex면 기존 청크와 내용을 비교하여 바뀐 청크만 임베딩
+     * progressListener는 여러 단계 스레드에서 호출될 수 있음
+     */
+    public CompletableFuture<Integer> process(Long documentId, boolean reindex,
+                                              IngestionProgressListener progressListener) {
+        return submit(() -> prepare(documentId, reindex), extractExecutor)
+                .thenCompose(prepared -> {
+                    ChunkWindow window = new ChunkWindow(chunkWindowSize);
+                    // 소비자(임베딩)를 먼저 투입 - 파싱만 돌면 가득 찬 윈도우에서 영원히 기다림
+                    CompletableFuture<Integer> embedding = submit(
+                            () -> embedAndWrite(prepared, window, progressListener), embedExecutor);
+                    if (embedding.isCompletedExceptionally()) {
+                        return embedding;
+                    }
+                    CompletableFuture<Void> parsing = submit(() -> {
+                        extractAndChunk(prepared.document(), window);
+                        return null;
+                    }, extractExecutor);
+                    // 파싱 투입이 거부되면 기다리는 임베딩 스레드도 실패로 끝냄
+                    parsing.whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            window.fail(error);
+                        }
+                    });
+                    return embedding.thenCombine(parsing, (count, ignored) -> count);
+                });
+    }
+
+    // 단계 풀에 작업 투입 - 풀과 대기 큐가 가득 차 거부되면 실패한 future로 반환 (작업 단위로 재시도)
+    private static <T> CompletableFuture<T> submit(Supplier<T> task, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // 문서 로드 - 일반 색인은 기존(또는 이전 시도에서 일부 저장된) 청크 제거,
+    // 재색인은 이전 시도의 대기 청크 제거 후 비교용 해시 조회
+    private PreparedDocument prepare(Long documentId, boolean reindex) {
+        Document document = documentRepository.findByIdWithCategory(documentId)
+                .orElseThrow(() -> new EntityNotFoundException("Document not found with id: " + documentId));
+
+        if (reindex) {
+            vectorStoreBulkWriter.deletePendingByDocumentId(documentId);
+            ChunkDiff diff = new ChunkDiff(vectorStoreBulkWriter.findStoredChunks(documentId));
+            log.info("Starting re-index for document: {} ({} stored chunks)", document.getFileName(), diff.storedCount());
+            return new PreparedDocument(document, diff);
+        }
+
+        vectorStoreBulkWriter.deleteByDocumentId(documentId);
+
+        log.info("Starting vector processing for document: {}", document.getFileName());
+        return new PreparedDocument(document, null);
+    }
+
+    // 1~2단계: Tika 스트리밍 추출 + 점진적 청킹, 완성된 청크는 윈도우에 넣음 (가득 차면 대기)
+    private void extractAndChunk(Document document, ChunkWindow window) {
+        try {
+            Resource fileResource = documentService.loadFileAsResource(document.getFilePath());
+            StreamingTokenTextSplitter splitter = new StreamingTokenTextSplitter(500, 50, 5, 10000, true, window::put);
+            long extractedChars = new StreamingTextExtractor(SEGMENT_CHARS).extract(fileResource, splitter::accept);
+            splitter.finish();
+            window.finish();
+
+            log.info("Tika extracted {} chars, text splitter created {} chunks",
+                    extractedChars, window.produced());
+            if (window.produced() == 0) {
+                log.warn("No chunks created from file: {}", document.getFileName());
+            }
+        } catch (CancellationException e) {
+            log.debug("Extraction cancelled for document: {}", document.getFileName());
+        } catch (Exception e) {
+            if (!window.isCancelled()) {
+                window.fail(e);
+            }
+        }
+    }
+
+    // 3~4단계: 윈도우에서 청크를 묶음으로 꺼내 캐시 확인 후 나머지만 임베딩, 저장 배치 크기만큼 모이면 저장 단계로 넘김
+    private int embedAndWrite(PreparedDocument prepared, ChunkWindow window, IngestionProgressListener progressListener) {
+        Document document = prepared.document();
+        ChunkDiff diff = prepared.diff();
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        List<VectorStoreBulkWriter.ChunkRow> pending = new ArrayList<>();
+        int nextIndex = 0;
+        int cacheHits = 0;
+
+        try {
+            List<String> contents;
+            while (!(contents = window.takeBatch(embedGroupSize)).isEmpty()) {
+                int baseIndex = nextIndex;
+                nextIndex += contents.size();
+
+                // 재색인: 내용이 같은 기존 청크는 그대로 두고 순번만 나중에 갱신
+                List<Integer> candidateIndexes = new ArrayList<>();
+                for (int i = 0; i < contents.size(); i++) {
+                    if (diff == null || !diff.keep(contents.get(i), baseIndex + i)) {
+                        candidateIndexes.add(i);
+                    }
+                }
+                successCount.addAndGet(contents.size() - candidateIndexes.size());
+                progressListener.onProgress(successCount.get(), window.produced());
+
+                List<String> groupContents = contents;
+                float[][] cached = embeddingCache.getAll(candidateIndexes.stream()
+                        .map(groupContents::get)
+                        .collect(Collectors.toList()));
+                List<Integer> missingIndexes = new ArrayList<>();
+                for (int c = 0; c < candidateIndexes.size(); c++) {
+                    int i = candidateIndexes.get(c);
+                    if (cached[c] != null) {
+                        pending.add(toChunkRow(document, baseIndex + i, contents.get(i), cached[c]));
+                    } else {
+                        missingIndexes.add(i);
+                    }
+                }
+                cacheHits += candidateIndexes.size() - missingIndexes.size();
+
+                List<String> missingContents = missingIndexes.stream()
+                        .map(groupContents::get)
+                        .collect(Collectors.toList());
+
+                embeddingBatcher.embedAll(missingContents, (offset, embeddings) -> {
+                    embeddingCache.putAll(missingContents.subList(offset, offset + embeddings.length), embeddings);
+                    for (int j = 0; j < embeddings.length; j++) {
+                        if (embeddings[j] != null) {
+                            int i = missingIndexes.get(offset + j);
+                            pending.add(toChunkRow(document, baseIndex + i, groupContents.get(i), embeddings[j]));
+                        } else {
+                            failedCount.incrementAndGet();
+                        }
+                    }
+                    if (pending.size() >= writeBatchSize) {
+                        writes.add(submitWrite(pending, diff != null, successCount, window::produced, progressListener));
+                    }
+                });
+            }
+            writes.add(submitWrite(pending, diff != null, successCount, window::produced, progressListener));
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+
+            // 일부 청크만 저장된 문서가 완료로 검색되지 않도록 작업을 실패시켜 재시도
+            // (재시도 시 임베딩에 성공한 청크는 임베딩 캐시에서 바로 채워짐)
+            if (failedCount.get() > 0) {
+                throw new IllegalStateException(String.format("Failed to embed %d of %d chunks for document: %s",
+                        failedCount.get(), nextIndex, document.getFileName()));
+            }
+
+            if (diff != null) {
+                finishReindex(document, diff);
+            }
+        } catch (RuntimeException e) {
+            // 파싱 스레드가 가득 찬 윈도우에서 계속 기다리지 않도록 중단 신호
+            window.cancel();
+            throw e;
+        }
+
+        // 카테고리 2단계 검색용 문서 centroid (실패해도 평면 검색으로 찾을 수 있으므로 작업은 성공 처리)
+        try {
+            vectorStoreBulkWriter.refreshCentroid(document.getId());
+        } catch (Exception e) {
+            log.warn("Failed to refresh centroid for document {}: {}", document.getId(), e.getMessage());
+        }
+
+        // 새 벡터가 검색에 반영되었으므로 관련 답변 캐시 무효화
+        eventPublisher.publishEvent(new DocumentChangedEvent(document.getId(), document.getCategory().getId(), true));
+
+        log.info("Embedding cache hits: {}/{} chunks", cacheHits, nextIndex);
+        log.info("Successfully processed {}/{} chunks for document: {}",
+                successCount.get(), nextIndex, document.getFileName());
+        return successCount.get();
+    }
+
+    // 대기 테이블에 새 청크 저장이 끝난 뒤 사라진 청크 삭제 + 유지된 청크 순번·메타데이터 갱신 + 새 청크 반영
+    private void finishReindex(Document document, ChunkDiff diff) {
+        List<Long> removedIds = diff.removedIds();
+        List<VectorStoreBulkWriter.ChunkRenumber> renumbers = new ArrayList<>();
+        diff.keptIndexes().forEach((id, chunkIndex) -> renumbers.add(
+                new VectorStoreBulkWriter.ChunkRenumber(id, chunkIndex, buildChunkMetadata(document, chunkIndex))));
+
+        vectorStoreBulkWriter.applyReindex(document.getId(), removedIds, renumbers);
+        log.info("Re-index of document {}: kept {}, removed {} of {} stored chunks",
+                document.getFileName(), renumbers.size(), removedIds.size(), diff.storedCount());
+    }
+
+    // 모인 청크를 저장 단계 스레드로 넘기고 버퍼 비움 (재색인이면 대기 테이블에 저장)
+    private CompletableFuture<Void> submitWrite(List<VectorStoreBulkWriter.ChunkRow> pending,
+                                                boolean reindex,
+                                                AtomicInteger successCount,
+                                                IntSupplier totalChunks,
+                                                IngestionProgressListener progressListener) {
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<VectorStoreBulkWriter.ChunkRow> batch = new ArrayList<>(pending);
+        pending.clear();
+
+        return CompletableFuture.runAsync(() -> {
+            int written = reindex
+                    ? vectorStoreBulkWriter.writePendingBatch(batch)
+                    : vectorStoreBulkWriter.writeBatch(batch);
+            log.debug("Saved {} chunks to database", written);
+            progressListener.onProgress(successCount.addAndGet(written), totalChunks.getAsInt());
+        }, writeExecutor);
+    }
+
+    private VectorStoreBulkWriter.ChunkRow toChunkRow(Document document, int chunkIndex, String content, float[] embedding) {
+        return new VectorStoreBulkWriter.ChunkRow(document.getId(), document.getCategory().getId(),
+                chunkIndex, content, embedding, buildChunkMetadata(document, chunkIndex));
+    }
+
+    // 청크 메타데이터 (JSON)
+    private String buildChunkMetadata(Document document, int chunkIndex) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("document_id", document.getId());
+        metadata.put("file_name", document.getFileName());
+        metadata.put("category_id", document.getCategory().getId());
+        metadata.put("category_name", document.getCategory().getName());
+        metadata.put("content_type", document.getContentType());
+        metadata.put("file_size", document.getFileSize());
+        metadata.put("upload_time", LocalDateTime.now().toString());
+        metadata.put("chunk_index", chunkIndex);
+
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize chunk metadata", e);
+        }
+    }
+
+    /**
+     * 파싱 스레드와 임베딩 스레드 사이의 청크 윈도우
+     * - 윈도우가 가득 차면 파싱이 대기하여 메모리에 남는 청크 수를 제한
+     * - 임베딩 쪽이 실패하면 cancel()로 파싱을 중단시킴
+     */
+    private static final class ChunkWindow {
+
+        private static final long POLL_INTERVAL_MS = 200;
+
+        private final BlockingQueue<String> queue;
+        private final AtomicInteger produced = new AtomicInteger();
+        private volatile boolean finished;
+        private volatile boolean cancelled;
+        private volatile Throwable failure;
+
+        private ChunkWindow(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void put(String chunk) {
+            try {
+                while (!queue.offer(chunk, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            produced.incrementAndGet();
+        }
+
+        void finish() {
+            finished = true;
+        }
+
+        void fail(Throwable cause) {
+            failure = cause;
+        }
+
+        void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        int produced() {
+            return produced.get();
+        }
+
+        // 최대 maxSize개까지 꺼냄, 입력이 모두 소비되었으면 빈 목록
+        List<String> takeBatch(int maxSize) {
+            List<String> batch = new ArrayList<>();
+            try {
+                while (batch.isEmpty()) {
+                    if (failure != null) {
+                        throw new IllegalStateException("Text extraction failed: " + failure.getMessage(), failure);
+                    }
+                    // finished를 먼저 읽어야 마지막 청크를 놓치지 않음
+                    boolean done = finished;
+                    String first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (done) {
+                            return batch;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, maxSize - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            return batch;
+        }
+    }
+
+    private static ThreadPoolExecutor newStageExecutor(String name, int threads, int queueCapacity,
+                                                       RejectedExecutionHandler rejectionHandler) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                rejectionHandler);
+    }
+}
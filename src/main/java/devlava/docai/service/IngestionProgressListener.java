@@ -0,0 +1,12 @@
+package devlava.docai.service;
+
+/**
+ * 청크 처리 진행률 콜백
+ */
+@FunctionalInterface
+public interface IngestionProgressListener {
+
+    IngestionProgressListener NONE = (processedChunks, totalChunks) -> { };
+
+    void onProgress(int processedChunks, int totalChunks);
+}
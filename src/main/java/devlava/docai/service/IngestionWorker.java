@@ -0,0 +1,180 @@
+package devlava.docai.service;
+
+import devlava.docai.entity.IngestionJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 벡터화 작업 큐를 소비하여 파이프라인에 투입
+ * - 동시에 처리 중인 문서 수를 worker-pool-size로 제한
+ */
+@Component
+@Slf4j
+public class IngestionWorker {
+
+    private static final long PROGRESS_FLUSH_INTERVAL_MS = 1000;
+
+    private final IngestionJobService ingestionJobService;
+    private final IngestionPipeline ingestionPipeline;
+    private final int poolSize;
+    private final long pollIntervalMs;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    // 작업 등록 시 대기 중인 디스패처를 깨우기 위한 신호
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final Semaphore inFlight;
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public IngestionWorker(IngestionJobService ingestionJobService,
+                           IngestionPipeline ingestionPipeline,
+                           @Value("${docai.ingestion.worker-pool-size:4}") int poolSize,
+                           @Value("${docai.ingestion.poll-interval-ms:5000}") long pollIntervalMs,
+                           @Value("${docai.ingestion.max-attempts:3}") int maxAttempts,
+                           @Value("${docai.ingestion.retry-backoff:30s}") Duration retryBackoff) {
+        this.ingestionJobService = ingestionJobService;
+        this.ingestionPipeline = ingestionPipeline;
+        this.poolSize = poolSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.inFlight = new Semaphore(poolSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int requeued = ingestionJobService.requeueInterruptedJobs();
+        if (requeued > 0) {
+            log.info("Requeued {} interrupted ingestion jobs", requeued);
+        }
+
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "ingestion-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Started ingestion dispatcher (max {} documents in flight)", poolSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onJobEnqueued(IngestionJobEnqueuedEvent event) {
+        wakeUp.release();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                inFlight.acquire();
+                Optional<IngestionJob> job = claimNextJob();
+                if (job.isPresent()) {
+                    dispatch(job.get());
+                } else {
+                    inFlight.release();
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Optional<IngestionJob> claimNextJob() throws InterruptedException {
+        try {
+            return ingestionJobService.claimNextJob();
+        } catch (Exception e) {
+            log.error("Failed to claim ingestion job", e);
+            Thread.sleep(pollIntervalMs);
+            return Optional.empty();
+        }
+    }
+
+    private void dispatch(IngestionJob job) {
+        Long jobId = job.getId();
+        log.info("Processing {} job {} (document {}, attempt {})",
+                job.isReindex() ? "re-index" : "ingestion", jobId, job.getDocumentId(), job.getAttempts());
+
+        ProgressTracker progress = new ProgressTracker(jobId);
+        ingestionPipeline.process(job.getDocumentId(), job.isReindex(), progress)
+                .whenComplete((chunkCount, error) -> {
+                    try {
+                        if (error == null) {
+                            // 진행률 콜백은 스레드 간 순서가 뒤바뀔 수 있으므로 파이프라인이 돌려준 최종 개수 사용
+                            int total = Math.max(progress.total(), chunkCount);
+                            ingestionJobService.markCompleted(jobId, chunkCount, total);
+                            log.info("Ingestion job {} completed: {}/{} chunks", jobId, chunkCount, total);
+                        } else {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            log.error("Ingestion job {} failed", jobId, cause);
+                            ingestionJobService.markFailed(jobId, describe(cause), maxAttempts, retryBackoff);
+                        }
+                    } catch (Exception e) {
+                        log.error("Failed to update ingestion job {}", jobId, e);
+                    } finally {
+                        inFlight.release();
+                        wakeUp.release();
+                    }
+                });
+    }
+
+    private String describe(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root == e ? e.getMessage() : e.getMessage() + ": " + root.getMessage();
+    }
+
+    /**
+     * 진행률은 일정 간격으로만 DB에 반영 (여러 단계 스레드에서 호출됨)
+     * 저장 스레드의 호출 순서가 뒤바뀌어도 줄어들지 않도록 지금까지의 최대값 유지
+     */
+    private class ProgressTracker implements IngestionProgressListener {
+
+        private final Long jobId;
+        private int processed;
+        private int total;
+        private long lastFlush;
+
+        ProgressTracker(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public synchronized void onProgress(int processedChunks, int totalChunks) {
+            processed = Math.max(processed, processedChunks);
+            total = Math.max(total, totalChunks);
+            long now = System.currentTimeMillis();
+            if (now - lastFlush >= PROGRESS_FLUSH_INTERVAL_MS) {
+                lastFlush = now;
+                ingestionJobService.updateProgress(jobId, processed, total);
+            }
+        }
+
+        synchronized int total() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package devlava.docai.service;
+
+import devlava.docai.cache.LruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * 검색 질문 임베딩 캐시 (메모리 전용)
+ * - 같은 질문이 반복되면 Ollama 호출 없이 바로 DB 검색 시작
+ * - 키: 모델명 + 정규화된 질문 (NFC, 공백 정리 - 대소문자는 임베딩이 달라질 수 있어 유지)
+ * - 항목 수, 총 바이트, TTL로 제한
+ */
+@Service
+@Slf4j
+public class QueryEmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingModel embeddingModel;
+    private final String modelName;
+    private final LruCache<String, float[]> cache;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public QueryEmbeddingCache(EmbeddingModel embeddingModel,
+                               MeterRegistry meterRegistry,
+                               @Value("${spring.ai.ollama.embedding.options.model:default}") String modelName,
+                               @Value("${docai.search.query-embedding-cache.max-entries:1000}") int maxEntries,
+                               @Value("${docai.search.query-embedding-cache.max-size:16MB}") DataSize maxSize,
+                               @Value("${docai.search.query-embedding-cache.ttl:1h}") Duration ttl) {
+        this.embeddingModel = embeddingModel;
+        this.modelName = modelName;
+        this.cache = new LruCache<>(maxEntries, maxSize.toBytes(), QueryEmbeddingCache::weigh, ttl);
+
+        this.hits = Counter.builder("docai.query.embedding.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docai.query.embedding.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("docai.query.embedding.cache.evictions", cache, LruCache::evictions)
+                .tag("cause", "size")
+                .register(meterRegistry);
+        FunctionCounter.builder("docai.query.embedding.cache.evictions", cache, LruCache::expirations)
+                .tag("cause", "expired")
+                .register(meterRegistry);
+        Gauge.builder("docai.query.embedding.cache.size", cache, LruCache::size)
+                .register(meterRegistry);
+        Gauge.builder("docai.query.embedding.cache.bytes", cache, LruCache::weight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 질문 임베딩 조회 - 캐시에 없으면 임베딩 후 저장
+     * 동시에 같은 질문이 처음 들어오면 각각 임베딩될 수 있음 (결과는 동일)
+     */
+    public float[] embed(String query) {
+        String normalized = normalize(query);
+        String key = modelName + '\0' + normalized;
+
+        float[] cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        float[] embedding = embeddingModel.embed(normalized);
+        cache.put(key, embedding);
+        return embedding;
+    }
+
+    public void clear() {
+        cache.clear();
+        log.info("Cleared query embedding cache");
+    }
+
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFC);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    // 대략적인 메모리 크기: float 배열 + 키 문자열
+    private static long weigh(String key, float[] embedding) {
+        return 16L + embedding.length * 4L + 40L + key.length() * 2L;
+    }
+}
@@ -0,0 +1,352 @@
+package devlava.docai.service;
+
+import devlava.docai.entity.IngestionJob;
+import devlava.docai.entity.UploadSession;
+import devlava.docai.entity.UploadSessionStatus;
+import devlava.docai.repository.CategoryRepository;
+import devlava.docai.repository.UploadSessionRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대용량 파일 이어받기 업로드
+ * - 요청 본문을 FileChannel로 바로 기록하면서 SHA-256을 함께 계산 (임시 파일 이중 기록 없음)
+ * - 확인된 오프셋을 DB에 남겨 중단된 업로드를 마지막 위치부터 재개
+ * - 완료 시 저장소로 이동하여 기존 문서 생성/벡터화 작업 등록 경로로 넘김
+ * - session-ttl 동안 갱신되지 않은 세션은 주기적으로 만료 처리하고 기록 중이던 파일과 다이제스트 상태 삭제
+ */
+@Service
+@Slf4j
+public class ResumableUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 세션별 SHA-256 진행 상태 - offset까지 반영된 다이제스트
+     */
+    private static final class DigestState {
+        private MessageDigest digest;
+        private long offset;
+    }
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final CategoryRepository categoryRepository;
+    private final DocumentService documentService;
+    private final IngestionJobService ingestionJobService;
+    private final Path partialLocation;
+    private final long maxFileSize;
+    private final Duration sessionTtl;
+    private final Duration cleanupInterval;
+    private final ScheduledExecutorService cleanupExecutor;
+
+    // 진행 중인 세션에만 생성 (서버 재시작 등으로 상태가 없으면 기록된 파일을 다시 읽어 복원)
+    private final Map<String, DigestState> digestStates = new ConcurrentHashMap<>();
+
+    public ResumableUploadService(UploadSessionRepository uploadSessionRepository,
+                                  CategoryRepository categoryRepository,
+                                  DocumentService documentService,
+                                  IngestionJobService ingestionJobService,
+                                  @Value("${docai.upload.max-file-size:2GB}") DataSize maxFileSize,
+                                  @Value("${docai.upload.session-ttl:24h}") Duration sessionTtl,
+                                  @Value("${docai.upload.cleanup-interval:1h}") Duration cleanupInterval) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.categoryRepository = categoryRepository;
+        this.documentService = documentService;
+        this.ingestionJobService = ingestionJobService;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.sessionTtl = sessionTtl;
+        this.cleanupInterval = cleanupInterval;
+        this.partialLocation = Paths.get("upload-sessions");
+        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upload-session-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Files.createDirectories(partialLocation);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create the directory for upload sessions.", ex);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startCleanup() {
+        long intervalMs = cleanupInterval.toMillis();
+        cleanupExecutor.scheduleWithFixedDelay(this::expireStaleSessions, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopCleanup() {
+        cleanupExecutor.shutdownNow();
+    }
+
+    @Transactional
+    public UploadSession createSession(Long categoryId, String fileName, String contentType, long totalSize) {
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new EntityNotFoundException("Category not found with id: " + categoryId);
+        }
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("File name is required");
+        }
+        // 자유 입력 파라미터이므로 경로 구성요소 제거 후 저장
+        fileName = DocumentService.cleanFileName(fileName);
+        if (totalSize <= 0 || totalSize > maxFileSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxFileSize + " bytes");
+        }
+
+        String sessionId = UUID.randomUUID().toString();
+        Path partFile = partialLocation.resolve(sessionId + ".part");
+        try {
+            Files.createFile(partFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create upload file", e);
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(sessionId);
+        session.setCategoryId(categoryId);
+        session.setFileName(fileName);
+        session.setContentType(contentType);
+        session.setTotalSize(totalSize);
+        session.setReceivedBytes(0);
+        session.setPartPath(partFile.toString());
+        session.setStatus(UploadSessionStatus.IN_PROGRESS);
+
+        log.info("Created upload session {} for {} ({} bytes)", sessionId, fileName, totalSize);
+        return uploadSessionRepository.save(session);
+    }
+
+    public UploadSession getSession(String sessionId) {
+        return uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new EntityNotFoundException("Upload session not found with id: " + sessionId));
+    }
+
+    /**
+     * offset 위치부터 본문을 기록하고 새로 확인된 오프셋 반환
+     */
+    public long appendChunk(String sessionId, long offset, InputStream body) throws IOException {
+        DigestState state = stateFor(getSession(sessionId));
+
+        synchronized (state) {
+            UploadSession session = getSession(sessionId);
+            requireInProgress(session);
+            if (offset != session.getReceivedBytes()) {
+                throw new UploadOffsetMismatchException(session.getReceivedBytes(), offset);
+            }
+
+            Path partFile = Paths.get(session.getPartPath());
+            restoreDigest(state, partFile, offset);
+
+            long remaining = session.getTotalSize() - offset;
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE);
+                 ReadableByteChannel source = Channels.newChannel(body)) {
+                // 확인되지 않은 이전 기록(중단된 요청의 잔여분) 제거
+                channel.truncate(offset);
+                channel.position(offset);
+
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                int read;
+                while ((read = source.read(buffer)) != -1) {
+                    written += read;
+                    if (written > remaining) {
+                        throw new IllegalArgumentException("Upload exceeds declared size of " + session.getTotalSize() + " bytes");
+                    }
+                    buffer.flip();
+                    state.digest.update(buffer.array(), 0, buffer.limit());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                // 다이제스트가 파일과 어긋났으므로 다음 요청에서 다시 계산
+                state.digest = null;
+                throw e;
+            }
+
+            state.offset = offset + written;
+            session.setReceivedBytes(state.offset);
+            uploadSessionRepository.save(session);
+            return state.offset;
+        }
+    }
+
+    /**
+     * 업로드 완료 - 해시 검증 후 문서 생성 및 벡터화 작업 등록
+     */
+    @Transactional
+    public IngestionJob complete(String sessionId, String expectedSha256) throws IOException {
+        UploadSession current = getSession(sessionId);
+        if (current.getStatus() == UploadSessionStatus.COMPLETED) {
+            return ingestionJobService.getJob(current.getJobId());
+        }
+        DigestState state = stateFor(current);
+
+        synchronized (state) {
+            UploadSession session = getSession(sessionId);
+            if (session.getStatus() == UploadSessionStatus.COMPLETED) {
+                return ingestionJobService.getJob(session.getJobId());
+            }
+            requireInProgress(session);
+            if (session.getReceivedBytes() != session.getTotalSize()) {
+                throw new IllegalStateException("Upload incomplete: " + session.getReceivedBytes()
+                        + "/" + session.getTotalSize() + " bytes");
+            }
+
+            Path partFile = Paths.get(session.getPartPath());
+            restoreDigest(state, partFile, session.getReceivedBytes());
+            String sha256 = HexFormat.of().formatHex(state.digest.digest());
+            state.digest = null;
+
+            if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.equalsIgnoreCase(sha256)) {
+                throw new IllegalArgumentException("SHA-256 mismatch - expected: " + expectedSha256 + ", actual: " + sha256);
+            }
+
+            IngestionJob job = documentService.registerStoredFile(session.getCategoryId(), session.getFileName(),
+                    partFile, session.getContentType(), session.getTotalSize());
+
+            session.setStatus(UploadSessionStatus.COMPLETED);
+            session.setSha256(sha256);
+            session.setDocumentId(job.getDocumentId());
+            session.setJobId(job.getId());
+            uploadSessionRepository.save(session);
+            digestStates.remove(sessionId);
+
+            log.info("Completed upload session {} ({}, sha256={})", sessionId, session.getFileName(), sha256);
+            return job;
+        }
+    }
+
+    /**
+     * session-ttl 동안 갱신되지 않은 진행 중 세션을 만료 처리하고 기록 중이던 파일 삭제
+     */
+    public int expireStaleSessions() {
+        int expired = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+            for (UploadSession stale : uploadSessionRepository.findByStatusAndUpdatedAtBefore(
+                    UploadSessionStatus.IN_PROGRESS, cutoff)) {
+                if (expire(stale.getId(), cutoff)) {
+                    expired++;
+                }
+            }
+            // 완료/만료 경합으로 남은 다이제스트 상태 정리
+            digestStates.keySet().removeIf(id -> uploadSessionRepository.findById(id)
+                    .filter(session -> session.getStatus() == UploadSessionStatus.IN_PROGRESS)
+                    .isEmpty());
+            if (expired > 0) {
+                log.info("Expired {} stale upload sessions", expired);
+            }
+        } catch (Exception e) {
+            log.error("Failed to expire stale upload sessions", e);
+        }
+        return expired;
+    }
+
+    // 기록 중인 요청과 겹치지 않도록 세션 잠금 안에서 다시 확인 후 만료
+    private boolean expire(String sessionId, LocalDateTime cutoff) {
+        DigestState state = digestStates.computeIfAbsent(sessionId, id -> new DigestState());
+        synchronized (state) {
+            UploadSession session = uploadSessionRepository.findById(sessionId).orElse(null);
+            if (session != null && session.getStatus() == UploadSessionStatus.IN_PROGRESS
+                    && !session.getUpdatedAt().isBefore(cutoff)) {
+                // 확인 사이에 청크가 도착함 - 사용 중인 상태이므로 그대로 둠
+                return false;
+            }
+            digestStates.remove(sessionId, state);
+            if (session == null || session.getStatus() != UploadSessionStatus.IN_PROGRESS) {
+                return false;
+            }
+
+            session.setStatus(UploadSessionStatus.EXPIRED);
+            uploadSessionRepository.save(session);
+            try {
+                Files.deleteIfExists(Paths.get(session.getPartPath()));
+            } catch (IOException e) {
+                log.warn("Failed to delete upload file of expired session {}: {}", sessionId, e.getMessage());
+            }
+            log.info("Expired upload session {} ({}, {}/{} bytes)", sessionId, session.getFileName(),
+                    session.getReceivedBytes(), session.getTotalSize());
+            return true;
+        }
+    }
+
+    // 진행 중인 세션에만 다이제스트 상태 생성 (없거나 끝난 세션 ID로 요청해도 맵에 남지 않도록)
+    private DigestState stateFor(UploadSession session) {
+        requireInProgress(session);
+        return digestStates.computeIfAbsent(session.getId(), id -> new DigestState());
+    }
+
+    private void requireInProgress(UploadSession session) {
+        if (session.getStatus() != UploadSessionStatus.IN_PROGRESS) {
+            throw new IllegalStateException("Upload session already " + session.getStatus().name().toLowerCase()
+                    + ": " + session.getId());
+        }
+    }
+
+    // 다이제스트가 offset 위치와 맞지 않으면 기록된 파일을 읽어 다시 계산
+    private void restoreDigest(DigestState state, Path partFile, long offset) throws IOException {
+        if (state.digest != null && state.offset == offset) {
+            return;
+        }
+
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = 0;
+            while (position < offset) {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, offset - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IllegalStateException("Upload file shorter than recorded offset: " + partFile);
+                }
+                digest.update(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+        state.digest = digest;
+        state.offset = offset;
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package devlava.docai.service;
+
+public enum RetrievalMode {
+    VECTOR,     // 임베딩 유사도 검색만 사용
+    HYBRID      // 어휘(bigram) 검색과 임베딩 검색을 함께 실행하여 RRF로 병합
+}
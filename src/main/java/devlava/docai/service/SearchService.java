@@ -1,19 +1,38 @@
 package devlava.docai.service;
 
+import devlava.docai.cache.SingleFlight;
+import devlava.docai.cache.StreamSingleFlight;
 import devlava.docai.dto.SearchResponse;
 import devlava.docai.dto.SourceInfo;
 import devlava.docai.entity.Document;
-import devlava.docai.entity.VectorStore;
+import devlava.docai.lexical.LexicalTerms;
+import devlava.docai.llm.LlmGateway;
+import devlava.docai.llm.LlmRejectedException;
+import devlava.docai.repository.CategoryRepository;
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorSearchTuning;
 import devlava.docai.repository.VectorStoreRepository;
+import devlava.docai.search.ReciprocalRankFusion;
+import devlava.docai.search.VectorSearchBackend;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,114 +40,342 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SearchService {
 
+    // LLM 스트림에서 미리 받아 둘 토큰 수 (클라이언트가 느리면 그 이상 읽지 않음)
+    private static final int STREAM_PREFETCH = 32;
+
+    private final VectorSearchBackend vectorSearchBackend;
     private final VectorStoreRepository vectorStoreRepository;
-    private final EmbeddingModel embeddingModel;
-    private final OllamaChatModel chatModel;
+    private final CategoryRepository categoryRepository;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final LlmGateway llmGateway;
+    private final ContextPacker contextPacker;
+    private final ExtractiveAnswerer extractiveAnswerer;
     private final DocumentService documentService;
+    private final Scheduler searchScheduler;
+    private final MeterRegistry meterRegistry;
+
+    // 하이브리드 검색: 각 검색에서 topK * candidate-multiplier개를 가져와 RRF(k = rrf-k)로 병합
+    @Value("${docai.search.hybrid.candidate-multiplier:4}")
+    private int hybridCandidateMultiplier;
+
+    @Value("${docai.search.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${docai.search.hybrid.max-query-terms:64}")
+    private int maxQueryTerms;
+
+    // 답변의 문서 다운로드 링크 앞부분 (클라이언트가 접근하는 서버 주소)
+    @Value("${docai.public-base-url:http://localhost:8050}")
+    private String publicBaseUrl;
+
+    /**
+     * 동시 요청 합치기 키 - 같은 범위/검색 방식/topK/튜닝에서 정규화한 질문이 같으면 같은 요청
+     */
+    private record FlightKey(SemanticAnswerCache.Scope scope, String normalizedQuery, VectorSearchTuning tuning) {
+
+        static FlightKey of(SemanticAnswerCache.Scope scope, String query, VectorSearchTuning tuning) {
+            return new FlightKey(scope, query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT), tuning);
+        }
+    }
+
+    // 같은 질문이 동시에 몰리면(공지 직후 등) 임베딩 → 검색 → LLM 생성을 한 번만 실행
+    private final SingleFlight<FlightKey, SearchResponse> answerFlights = new SingleFlight<>();
+    private final StreamSingleFlight<FlightKey, String> streamFlights = new StreamSingleFlight<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("docai.search.coalesced", answerFlights, SingleFlight::joins)
+                .tag("type", "answer")
+                .register(meterRegistry);
+        FunctionCounter.builder("docai.search.coalesced", streamFlights, StreamSingleFlight::joins)
+                .tag("type", "stream")
+                .register(meterRegistry);
+    }
 
     /**
      * 카테고리 내 문서들에서 질문에 대한 답변 생성 (Stream)
+     * - 같은 질문이 생성 중이면 새로 생성하지 않고 지금까지의 토큰을 재생한 뒤 이어지는 토큰을 함께 받음
      */
-    public Flux<String> answerQuestionInCategoryStream(String query, Long categoryId, int topK) {
-        return Mono.fromCallable(() -> {
-                    log.info("Answering question in category {}: {}", categoryId, query);
+    public Flux<String> answerQuestionInCategoryStream(String query, Long categoryId, int topK,
+                                                       CategorySearchMode mode, RetrievalMode retrieval,
+                                                       VectorSearchTuning tuning) {
+        FlightKey key = FlightKey.of(
+                SemanticAnswerCache.Scope.category(categoryId, mode, retrieval, topK), query, tuning);
+        return streamFlights.join(key,
+                () -> generateCategoryAnswerStream(query, categoryId, topK, mode, retrieval, tuning));
+    }
 
-                    // 1. 유사한 청크들 검색
-                    List<Map<String, Object>> similarChunks = searchSimilarChunksInCategory(query, categoryId, topK);
+    /**
+     * 특정 문서에서 질문에 대한 답변 생성 (Stream) - 같은 질문이 생성 중이면 그 스트림에 합류
+     * 문서가 없으면 EntityNotFoundException (SSE 응답을 시작하기 전에 확인하여 404로 처리되도록)
+     */
+    public Flux<String> answerQuestionInDocumentStream(String query, Long documentId, int topK,
+                                                       RetrievalMode retrieval) {
+        Document document = documentService.getDocument(documentId);
+        FlightKey key = FlightKey.of(SemanticAnswerCache.Scope.document(documentId, retrieval, topK), query, null);
+        return streamFlights.join(key, () -> generateDocumentAnswerStream(query, document, topK, retrieval));
+    }
+
+    /**
+     * 카테고리 추출형 답변 (Stream, mode=EXTRACTIVE) - LLM을 거치지 않으므로 답변 전체를 한 번에 내보냄
+     */
+    public Flux<String> extractiveAnswerInCategoryStream(String query, Long categoryId, int topK,
+                                                         CategorySearchMode mode, RetrievalMode retrieval,
+                                                         VectorSearchTuning tuning) {
+        return extractiveAnswerStream(query, "죄송합니다. 해당 카테고리에서 관련된 정보를 찾을 수 없습니다.",
+                queryVector -> searchInCategories(query, queryVector, resolveCategoryIds(categoryId, mode), topK,
+                        retrieval, tuning));
+    }
+
+    /**
+     * 문서 추출형 답변 (Stream, mode=EXTRACTIVE)
+     * 문서가 없으면 EntityNotFoundException (SSE 응답을 시작하기 전에 확인하여 404로 처리되도록)
+     */
+    public Flux<String> extractiveAnswerInDocumentStream(String query, Long documentId, int topK,
+                                                         RetrievalMode retrieval) {
+        documentService.getDocument(documentId);
+        return extractiveAnswerStream(query, "죄송합니다. 해당 문서에서 관련된 정보를 찾을 수 없습니다.",
+                queryVector -> searchInDocument(query, queryVector, documentId, topK, retrieval));
+    }
+
+    /**
+     * 카테고리 답변 생성 (동시 요청이 합쳐지면 한 번만 실행) - 같은 질문이 생성 중이면 그 결과를 함께 받음
+     * - answerMode=EXTRACTIVE이면 LLM 없이 검색된 청크의 문장을 바로 반환
+     */
+    public SearchResponse answerQuestionInCategory(String query, Long categoryId, int topK,
+                                                   CategorySearchMode mode, RetrievalMode retrieval,
+                                                   AnswerMode answerMode, VectorSearchTuning tuning) {
+        if (answerMode == AnswerMode.EXTRACTIVE) {
+            return extractiveAnswer(query, "죄송합니다. 해당 카테고리에서 관련된 정보를 찾을 수 없습니다.",
+                    () -> searchSimilarChunksInCategories(
+                            query, resolveCategoryIds(categoryId, mode), topK, retrieval, tuning));
+        }
+        FlightKey key = FlightKey.of(
+                SemanticAnswerCache.Scope.category(categoryId, mode, retrieval, topK), query, tuning);
+        return withQuery(answerFlights.execute(key,
+                () -> generateCategoryAnswer(query, categoryId, topK, mode, retrieval, tuning)), query);
+    }
+
+    /**
+     * 문서 답변 생성 - 같은 질문이 생성 중이면 그 결과를 함께 받음
+     * 문서가 없으면 EntityNotFoundException (답변 오류 응답이 아닌 404로 처리되도록 생성 단계 전에 확인)
+     */
+    public SearchResponse answerQuestionInDocument(String query, Long documentId, int topK,
+                                                   RetrievalMode retrieval, AnswerMode answerMode) {
+        Document document = documentService.getDocument(documentId);
+        if (answerMode == AnswerMode.EXTRACTIVE) {
+            return extractiveAnswer(query, "죄송합니다. 해당 문서에서 관련된 정보를 찾을 수 없습니다.",
+                    () -> searchSimilarChunksInDocument(query, documentId, topK, retrieval));
+        }
+        FlightKey key = FlightKey.of(SemanticAnswerCache.Scope.document(documentId, retrieval, topK), query, null);
+        return withQuery(answerFlights.execute(key,
+                () -> generateDocumentAnswer(query, document, topK, retrieval)), query);
+    }
 
-                    if (similarChunks.isEmpty()) {
-                        return "죄송합니다. 해당 카테고리에서 관련된 정보를 찾을 수 없습니다.";
+    /**
+     * 카테고리 내 문서들에서 질문에 대한 답변 생성 (Stream)
+     * - 임베딩/검색 등 블로킹 단계는 searchScheduler에서 실행, 구독이 취소되면(클라이언트 연결 종료) LLM 스트림도 취소
+     * - 하이브리드 검색은 두 검색이 searchScheduler에서 끝나면 이어서 진행 (기다리며 스레드를 붙잡지 않음)
+     */
+    private Flux<String> generateCategoryAnswerStream(String query, Long categoryId, int topK,
+                                                      CategorySearchMode mode, RetrievalMode retrieval,
+                                                      VectorSearchTuning tuning) {
+        return Mono.fromCallable(() -> {
+                    log.info("Answering question in category {} ({}): {}", categoryId, mode, query);
+
+                    // 0. 비슷한 질문의 캐시된 답변이 있으면 그대로 재생
+                    float[] queryVector = queryEmbeddingCache.embed(query);
+                    SemanticAnswerCache.Scope scope = SemanticAnswerCache.Scope.category(categoryId, mode, retrieval, topK);
+                    SemanticAnswerCache.Lookup cached = semanticAnswerCache.lookup(scope, queryVector);
+                    if (cached.isHit()) {
+                        log.info("Answer cache hit in category {}: {}", categoryId, query);
+                        return Flux.just(cached.response().getAnswer());
                     }
 
-                    // 2. 컨텍스트 구성 (간단하게)
-                    String context = buildSimpleContext(similarChunks);
-
-                    // 3. 프롬프트 생성
-                    return String.format("""
-                        다음 문서 내용을 바탕으로 질문에 답변해주세요.
-                        
-                        질문: %s
-                        
-                        관련 내용:
-                        %s
-                        
-                        답변 지침:
-                        - 제공된 정보만을 기반으로 답변하세요
-                        - 간결하고 명확하게 답변하세요
-                        - 문서에 없는 정보는 추측하지 마세요
-                        
-                        답변:
-                        """, query, context);
+                    // 1. 유사한 청크들 검색
+                    return searchInCategories(query, queryVector, resolveCategoryIds(categoryId, mode), topK,
+                                    retrieval, tuning)
+                            .onErrorResume(e -> {
+                                log.error("Error performing category search", e);
+                                return Mono.just(List.of());
+                            })
+                            .flatMapMany(similarChunks ->
+                                    categoryAnswerStream(query, categoryId, scope, cached, queryVector, similarChunks));
                 })
-                .flatMapMany(prompt -> generateAnswerStream(prompt))
-                .onErrorResume(e -> {
+                .subscribeOn(searchScheduler)
+                .flatMapMany(answerStream -> answerStream)
+                .onErrorResume(e -> !(e instanceof LlmRejectedException), e -> {
                     log.error("Error answering question in category", e);
                     return Flux.just("답변 생성 중 오류가 발생했습니다.");
-                });
+                })
+                .doFinally(signal -> recordStreamOutcome("category", signal));
+    }
+
+    private Flux<String> categoryAnswerStream(String query, Long categoryId, SemanticAnswerCache.Scope scope,
+                                              SemanticAnswerCache.Lookup cached, float[] queryVector,
+                                              List<SimilarChunk> similarChunks) {
+        if (similarChunks.isEmpty()) {
+            return Flux.just("죄송합니다. 해당 카테고리에서 관련된 정보를 찾을 수 없습니다.");
+        }
+
+        // 2. 컨텍스트 구성 (간단하게)
+        String context = buildSimpleContext(similarChunks);
+
+        // 3. 프롬프트 생성
+        String prompt = String.format("""
+            다음 문서 내용을 바탕으로 질문에 답변해주세요.
+            
+            질문: %s
+            
+            관련 내용:
+            %s
+            
+            답변 지침:
+            - 제공된 정보만을 기반으로 답변하세요
+            - 간결하고 명확하게 답변하세요
+            - 문서에 없는 정보는 추측하지 마세요
+            
+            답변:
+            """, query, context);
+
+        // 4. 스트림이 정상 완료되면 답변 캐시에 저장
+        SimilarChunk mainChunk = selectMainChunk(similarChunks);
+        return generateAnswerStream(categoryId, prompt, answer -> {
+            semanticAnswerCache.put(scope, cached, queryVector, SearchResponse.builder()
+                    .query(query)
+                    .answer(answer)
+                    .documentName(mainChunk.fileName())
+                    .confidence(calculateSimpleConfidence(similarChunks, answer))
+                    .downloadUrl(downloadUrl(mainChunk.documentId()))
+                    .build());
+        });
     }
 
     /**
      * 특정 문서에서 질문에 대한 답변 생성 (Stream)
      */
-    public Flux<String> answerQuestionInDocumentStream(String query, Long documentId, int topK) {
+    private Flux<String> generateDocumentAnswerStream(String query, Document document, int topK,
+                                                      RetrievalMode retrieval) {
+        Long documentId = document.getId();
         return Mono.fromCallable(() -> {
                     log.info("Answering question in document {}: {}", documentId, query);
 
-                    // 문서 존재 확인
-                    Document document = documentService.getDocument(documentId);
-
-                    // 1. 유사한 청크들 검색
-                    List<Map<String, Object>> similarChunks = searchSimilarChunksInDocument(query, documentId, topK);
-
-                    if (similarChunks.isEmpty()) {
-                        return "죄송합니다. 해당 문서에서 관련된 정보를 찾을 수 없습니다.";
+                    // 0. 비슷한 질문의 캐시된 답변이 있으면 그대로 재생
+                    float[] queryVector = queryEmbeddingCache.embed(query);
+                    SemanticAnswerCache.Scope scope = SemanticAnswerCache.Scope.document(documentId, retrieval, topK);
+                    SemanticAnswerCache.Lookup cached = semanticAnswerCache.lookup(scope, queryVector);
+                    if (cached.isHit()) {
+                        log.info("Answer cache hit in document {}: {}", documentId, query);
+                        return Flux.just(cached.response().getAnswer());
                     }
 
-                    // 2. 컨텍스트 구성 (간단하게)
-                    String context = buildSimpleContext(similarChunks);
-
-                    // 3. 프롬프트 생성 (문서 특화)
-                    return String.format("""
-                        '%s' 문서의 내용을 바탕으로 질문에 답변해주세요.
-                        
-                        질문: %s
-                        
-                        문서 내용:
-                        %s
-                        
-                        답변 지침:
-                        - 해당 문서의 내용만을 기반으로 답변하세요
-                        - 간결하고 명확하게 답변하세요
-                        - 문서에 없는 정보는 추측하지 마세요
-                        
-                        답변:
-                        """, document.getFileName(), query, context);
+                    // 1. 유사한 청크들 검색
+                    return searchInDocument(query, queryVector, documentId, topK, retrieval)
+                            .onErrorResume(e -> {
+                                log.error("Error performing document search", e);
+                                return Mono.just(List.of());
+                            })
+                            .flatMapMany(similarChunks ->
+                                    documentAnswerStream(query, document, scope, cached, queryVector, similarChunks));
                 })
-                .flatMapMany(prompt -> generateAnswerStream(prompt))
-                .onErrorResume(e -> {
+                .subscribeOn(searchScheduler)
+                .flatMapMany(answerStream -> answerStream)
+                .onErrorResume(e -> !(e instanceof LlmRejectedException), e -> {
                     log.error("Error answering question in document", e);
                     return Flux.just("답변 생성 중 오류가 발생했습니다.");
-                });
+                })
+                .doFinally(signal -> recordStreamOutcome("document", signal));
+    }
+
+    private Flux<String> documentAnswerStream(String query, Document document, SemanticAnswerCache.Scope scope,
+                                              SemanticAnswerCache.Lookup cached, float[] queryVector,
+                                              List<SimilarChunk> similarChunks) {
+        if (similarChunks.isEmpty()) {
+            return Flux.just("죄송합니다. 해당 문서에서 관련된 정보를 찾을 수 없습니다.");
+        }
+
+        // 2. 컨텍스트 구성 (간단하게)
+        String context = buildSimpleContext(similarChunks);
+
+        // 3. 프롬프트 생성 (문서 특화)
+        String prompt = String.format("""
+            '%s' 문서의 내용을 바탕으로 질문에 답변해주세요.
+            
+            질문: %s
+            
+            문서 내용:
+            %s
+            
+            답변 지침:
+            - 해당 문서의 내용만을 기반으로 답변하세요
+            - 간결하고 명확하게 답변하세요
+            - 문서에 없는 정보는 추측하지 마세요
+            
+            답변:
+            """, document.getFileName(), query, context);
+
+        // 4. 스트림이 정상 완료되면 답변 캐시에 저장
+        return generateAnswerStream(document.getCategory().getId(), prompt, answer ->
+                semanticAnswerCache.put(scope, cached, queryVector, SearchResponse.builder()
+                        .query(query)
+                        .answer(answer)
+                        .documentName(document.getFileName())
+                        .confidence(calculateSimpleConfidence(similarChunks, answer))
+                        .downloadUrl(downloadUrl(document.getId()))
+                        .build()));
     }
 
     /**
-     * Stream 방식으로 답변 생성
+     * Stream 방식으로 답변 생성 - 오류 없이 끝까지 전송되면 전체 답변을 onComplete로 전달
+     * - LLM 게이트웨이에서 카테고리별 공정 순서로 생성 slot을 받은 뒤 시작 (거절되면 LlmRejectedException 신호)
+     * - 토큰은 LLM HTTP 응답을 받는 이벤트 루프에서 나오므로 응답 쓰기는 searchScheduler로 넘김
+     * - 취소되면 chatModel.stream의 HTTP 요청이 끊겨 LLM이 남은 답변을 생성하지 않음 (중단된 답변은 캐시하지 않음)
      */
-    private Flux<String> generateAnswerStream(String prompt) {
+    private Flux<String> generateAnswerStream(Long categoryId, String prompt, Consumer<String> onComplete) {
+        Flux<String> stream;
         try {
-            return chatModel.stream(prompt);
+            stream = llmGateway.stream(categoryId, prompt);
         } catch (Exception e) {
             log.error("Error generating stream answer", e);
             return Flux.just("스트림 답변 생성 중 오류가 발생했습니다.");
         }
+
+        StringBuilder answer = new StringBuilder();
+        return stream
+                .doOnNext(answer::append)
+                .doOnComplete(() -> onComplete.accept(answer.toString()))
+                .doOnCancel(() -> log.info("Answer stream cancelled after {} chars, stopping generation",
+                        answer.length()))
+                .publishOn(searchScheduler, STREAM_PREFETCH);
+    }
+
+    private void recordStreamOutcome(String scope, SignalType signal) {
+        String outcome = switch (signal) {
+            case CANCEL -> "cancelled";
+            case ON_ERROR -> "error";
+            default -> "completed";
+        };
+        meterRegistry.counter("docai.answer.stream", "scope", scope, "outcome", outcome).increment();
     }
 
     // 간단한 응답 형태로 수정된 메서드들
-    public SearchResponse answerQuestionInCategory(String query, Long categoryId, int topK) {
+    private SearchResponse generateCategoryAnswer(String query, Long categoryId, int topK,
+                                                  CategorySearchMode mode, RetrievalMode retrieval,
+                                                  VectorSearchTuning tuning) {
         try {
-            log.info("Answering question in category {}: {}", categoryId, query);
+            log.info("Answering question in category {} ({}): {}", categoryId, mode, query);
+
+            float[] queryVector = queryEmbeddingCache.embed(query);
+            SemanticAnswerCache.Scope scope = SemanticAnswerCache.Scope.category(categoryId, mode, retrieval, topK);
+            SemanticAnswerCache.Lookup cached = semanticAnswerCache.lookup(scope, queryVector);
+            if (cached.isHit()) {
+                log.info("Answer cache hit in category {}: {}", categoryId, query);
+                return withQuery(cached.response(), query);
+            }
 
-            List<Map<String, Object>> similarChunks = searchSimilarChunksInCategory(query, categoryId, topK);
+            List<SimilarChunk> similarChunks = searchSimilarChunksInCategories(
+                    query, resolveCategoryIds(categoryId, mode), topK, retrieval, tuning);
 
             if (similarChunks.isEmpty()) {
                 return SearchResponse.builder()
@@ -141,30 +388,35 @@ public class SearchService {
             }
 
             String context = buildSimpleContext(similarChunks);
-            String answer = generateSimpleAnswer(query, context);
-            String documentName = getBestMatchingDocumentName(similarChunks, query);
+            String answer = generateSimpleAnswer(categoryId, query, context);
             int confidence = calculateSimpleConfidence(similarChunks, answer);
 
-            // 🆕 주요 참조 문서 정보 추가
-            Document mainDocument = getMainDocument(similarChunks, query);
+            // 🆕 주요 참조 문서 정보 추가 (검색 결과에 문서명이 포함되어 추가 조회 없음)
+            SimilarChunk mainChunk = selectMainChunk(similarChunks);
+            String documentName = mainChunk.fileName();
 
             // 로그 추가 - 디버깅용
             log.info("Found {} chunks from documents: {}",
                     similarChunks.size(),
                     similarChunks.stream()
-                            .map(chunk -> (String) chunk.get("file_name"))
+                            .map(SimilarChunk::fileName)
                             .distinct()
                             .collect(Collectors.joining(", ")));
             log.info("Selected main document: {}", documentName);
 
-            return SearchResponse.builder()
+            SearchResponse response = SearchResponse.builder()
                     .query(query)
                     .answer(answer)
                     .documentName(documentName)
                     .confidence(confidence)
-                    .downloadUrl(mainDocument != null ? "http://localhost:8050/api/documents/download/" + mainDocument.getId() : null)
+                    .downloadUrl(downloadUrl(mainChunk.documentId()))
                     .build();
+            semanticAnswerCache.put(scope, cached, queryVector, response);
+            return response;
 
+        } catch (LlmRejectedException e) {
+            // 과부하 거절은 429/503으로 그대로 응답
+            throw e;
         } catch (Exception e) {
             log.error("Error answering question in category", e);
             return SearchResponse.builder()
@@ -177,12 +429,21 @@ public class SearchService {
         }
     }
 
-    public SearchResponse answerQuestionInDocument(String query, Long documentId, int topK) {
+    private SearchResponse generateDocumentAnswer(String query, Document document, int topK,
+                                                  RetrievalMode retrieval) {
+        Long documentId = document.getId();
         try {
             log.info("Answering question in document {}: {}", documentId, query);
 
-            Document document = documentService.getDocument(documentId);
-            List<Map<String, Object>> similarChunks = searchSimilarChunksInDocument(query, documentId, topK);
+            float[] queryVector = queryEmbeddingCache.embed(query);
+            SemanticAnswerCache.Scope scope = SemanticAnswerCache.Scope.document(documentId, retrieval, topK);
+            SemanticAnswerCache.Lookup cached = semanticAnswerCache.lookup(scope, queryVector);
+            if (cached.isHit()) {
+                log.info("Answer cache hit in document {}: {}", documentId, query);
+                return withQuery(cached.response(), query);
+            }
+
+            List<SimilarChunk> similarChunks = searchSimilarChunksInDocument(query, documentId, topK, retrieval);
 
             if (similarChunks.isEmpty()) {
                 return SearchResponse.builder()
@@ -190,22 +451,27 @@ public class SearchService {
                         .answer("죄송합니다. 해당 문서에서 관련된 정보를 찾을 수 없습니다.")
                         .documentName(document.getFileName())
                         .confidence(0)
-                        .downloadUrl("http://localhost:8050/api/documents/download/" + document.getId())
+                        .downloadUrl(downloadUrl(document.getId()))
                         .build();
             }
 
             String context = buildSimpleContext(similarChunks);
-            String answer = generateSimpleAnswerForDocument(query, context, document.getFileName());
+            String answer = generateSimpleAnswerForDocument(document.getCategory().getId(), query, context,
+                    document.getFileName());
             int confidence = calculateSimpleConfidence(similarChunks, answer);
 
-            return SearchResponse.builder()
+            SearchResponse response = SearchResponse.builder()
                     .query(query)
                     .answer(answer)
                     .documentName(document.getFileName())
                     .confidence(confidence)
-                    .downloadUrl("http://localhost:8050/api/documents/download/" + document.getId())
+                    .downloadUrl(downloadUrl(document.getId()))
                     .build();
+            semanticAnswerCache.put(scope, cached, queryVector, response);
+            return response;
 
+        } catch (LlmRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error answering question in document", e);
             return SearchResponse.builder()
@@ -218,20 +484,95 @@ public class SearchService {
         }
     }
 
-    // 유사도 기반 검색 메서드들 - 순서가 중요함!
-    public List<Map<String, Object>> searchSimilarChunksInCategory(String query, Long categoryId, int topK) {
+    /**
+     * 추출형 답변 - 질문과 가장 맞는 문장들을 답변으로, 문장별 출처(문서명, 청크 순번, 다운로드 URL)를 sources로 반환
+     * LLM과 답변 캐시를 거치지 않음 (필요하면 사용자가 생성형 답변을 다시 요청)
+     */
+    private SearchResponse extractiveAnswer(String query, String notFoundMessage,
+                                            Supplier<List<SimilarChunk>> search) {
         try {
-            float[] embeddingArray = embeddingModel.embed(query);
-            List<Double> queryEmbedding = new ArrayList<>();
-            for (float f : embeddingArray) {
-                queryEmbedding.add((double) f);
+            log.info("Extractive answer: {}", query);
+            List<SimilarChunk> similarChunks = search.get();
+            List<ExtractiveAnswerer.Extract> extracts = extractiveAnswerer.extract(query, similarChunks);
+            if (extracts.isEmpty()) {
+                return SearchResponse.builder()
+                        .query(query)
+                        .answer(notFoundMessage)
+                        .documentName("정보 없음")
+                        .confidence(0)
+                        .downloadUrl(null)
+                        .sources(List.of())
+                        .build();
             }
-            String queryVector = convertEmbeddingToString(queryEmbedding);
 
-            // 유사도 순으로 정렬된 결과를 반환 (가장 유사한 것이 첫 번째)
-            List<VectorStore> results = vectorStoreRepository.findSimilarVectorsByCategory(queryVector, categoryId, topK);
+            String answer = extracts.stream()
+                    .map(ExtractiveAnswerer.Extract::sentence)
+                    .collect(Collectors.joining("\n"));
+            List<SourceInfo> sources = extracts.stream()
+                    .map(extract -> SourceInfo.builder()
+                            .documentId(extract.chunk().documentId())
+                            .fileName(extract.chunk().fileName())
+                            .chunkIndex(extract.chunk().chunkIndex())
+                            .content(extract.sentence())
+                            .downloadUrl(downloadUrl(extract.chunk().documentId()))
+                            .build())
+                    .collect(Collectors.toList());
+            SimilarChunk mainChunk = extracts.get(0).chunk();
 
-            return results.stream().map(this::mapVectorStoreToResult).collect(Collectors.toList());
+            return SearchResponse.builder()
+                    .query(query)
+                    .answer(answer)
+                    .documentName(mainChunk.fileName())
+                    .confidence(calculateSimpleConfidence(similarChunks, answer))
+                    .downloadUrl(downloadUrl(mainChunk.documentId()))
+                    .sources(sources)
+                    .build();
+        } catch (Exception e) {
+            log.error("Error building extractive answer", e);
+            return SearchResponse.builder()
+                    .query(query)
+                    .answer("답변 생성 중 오류가 발생했습니다.")
+                    .documentName("오류")
+                    .confidence(0)
+                    .downloadUrl(null)
+                    .build();
+        }
+    }
+
+    // 임베딩과 검색은 searchScheduler에서 실행 (SSE 요청 스레드를 막지 않음)
+    private Flux<String> extractiveAnswerStream(String query, String notFoundMessage,
+                                                Function<float[], Mono<List<SimilarChunk>>> search) {
+        return Mono.fromCallable(() -> queryEmbeddingCache.embed(query))
+                .subscribeOn(searchScheduler)
+                .flatMap(search)
+                .map(similarChunks -> extractiveAnswer(query, notFoundMessage, () -> similarChunks).getAnswer())
+                .onErrorResume(e -> {
+                    log.error("Error building extractive answer", e);
+                    return Mono.just("답변 생성 중 오류가 발생했습니다.");
+                })
+                .flux();
+    }
+
+    private String downloadUrl(Long documentId) {
+        return StringUtils.trimTrailingCharacter(publicBaseUrl, '/') + "/api/documents/download/" + documentId;
+    }
+
+    // 검색 대상 카테고리 ID - 하위 포함이면 재귀 CTE로 한 번에 조회
+    private List<Long> resolveCategoryIds(Long categoryId, CategorySearchMode mode) {
+        if (mode != CategorySearchMode.SUBTREE) {
+            return List.of(categoryId);
+        }
+        List<Long> categoryIds = categoryRepository.findSubtreeIds(categoryId);
+        return categoryIds.isEmpty() ? List.of(categoryId) : categoryIds;
+    }
+
+    // 유사도 기반 검색 메서드들 - 순서가 중요함!
+    public List<SimilarChunk> searchSimilarChunksInCategories(String query, List<Long> categoryIds, int topK,
+                                                              RetrievalMode retrieval, VectorSearchTuning tuning) {
+        try {
+            float[] queryVector = queryEmbeddingCache.embed(query);
+            // 유사도 순으로 정렬된 결과를 반환 (가장 유사한 것이 첫 번째)
+            return searchInCategories(query, queryVector, categoryIds, topK, retrieval, tuning).block();
 
         } catch (Exception e) {
             log.error("Error performing category search", e);
@@ -239,18 +580,11 @@ public class SearchService {
         }
     }
 
-    public List<Map<String, Object>> searchSimilarChunksInDocument(String query, Long documentId, int topK) {
+    public List<SimilarChunk> searchSimilarChunksInDocument(String query, Long documentId, int topK,
+                                                            RetrievalMode retrieval) {
         try {
-            float[] embeddingArray = embeddingModel.embed(query);
-            List<Double> queryEmbedding = new ArrayList<>();
-            for (float f : embeddingArray) {
-                queryEmbedding.add((double) f);
-            }
-            String queryVector = convertEmbeddingToString(queryEmbedding);
-
-            List<VectorStore> results = vectorStoreRepository.findSimilarVectorsByDocument(queryVector, documentId, topK);
-
-            return results.stream().map(this::mapVectorStoreToResult).collect(Collectors.toList());
+            float[] queryVector = queryEmbeddingCache.embed(query);
+            return searchInDocument(query, queryVector, documentId, topK, retrieval).block();
 
         } catch (Exception e) {
             log.error("Error performing document search", e);
@@ -258,21 +592,73 @@ public class SearchService {
         }
     }
 
+    // 벡터 검색만이면 구독한 스레드에서 실행, 하이브리드면 두 검색을 searchScheduler에서 병렬 실행
+    // (동기 API는 block()으로 기다리고, 스트림 파이프라인은 그대로 이어 붙임)
+    private Mono<List<SimilarChunk>> searchInCategories(String query, float[] queryVector, List<Long> categoryIds,
+                                                        int topK, RetrievalMode retrieval, VectorSearchTuning tuning) {
+        if (retrieval == RetrievalMode.HYBRID) {
+            return hybridSearch(query, topK,
+                    limit -> vectorSearchBackend.searchByCategories(queryVector, categoryIds, limit, tuning),
+                    (terms, limit) -> vectorStoreRepository.findLexicalMatchesByCategories(
+                            terms, queryVector, categoryIds, limit));
+        }
+        return Mono.fromCallable(() -> vectorSearchBackend.searchByCategories(queryVector, categoryIds, topK, tuning));
+    }
+
+    private Mono<List<SimilarChunk>> searchInDocument(String query, float[] queryVector, Long documentId, int topK,
+                                                      RetrievalMode retrieval) {
+        if (retrieval == RetrievalMode.HYBRID) {
+            return hybridSearch(query, topK,
+                    limit -> vectorSearchBackend.searchByDocument(queryVector, documentId, limit),
+                    (terms, limit) -> vectorStoreRepository.findLexicalMatchesByDocument(
+                            terms, queryVector, documentId, limit));
+        }
+        return Mono.fromCallable(() -> vectorSearchBackend.searchByDocument(queryVector, documentId, topK));
+    }
+
+    /**
+     * 하이브리드 검색 - 어휘 검색과 벡터 검색을 searchScheduler에서 병렬로 실행하고 RRF로 병합
+     * - 서식 번호, 제품 코드처럼 임베딩으로는 놓치는 정확한 용어를 어휘 검색이 보완
+     * - 질문에 어휘 토큰이 없거나 어휘 검색이 실패하면 벡터 검색 결과만 사용
+     */
+    private Mono<List<SimilarChunk>> hybridSearch(String query, int topK,
+                                                  IntFunction<List<SimilarChunk>> vectorSearch,
+                                                  BiFunction<String, Integer, List<SimilarChunk>> lexicalSearch) {
+        String terms = LexicalTerms.toTsquery(query, maxQueryTerms);
+        if (terms == null) {
+            return Mono.fromCallable(() -> vectorSearch.apply(topK));
+        }
+
+        int candidates = topK * Math.max(hybridCandidateMultiplier, 1);
+        Mono<List<SimilarChunk>> vectorResults = Mono.fromCallable(() -> vectorSearch.apply(candidates))
+                .subscribeOn(searchScheduler);
+        Mono<List<SimilarChunk>> lexicalResults = Mono.fromCallable(() -> lexicalSearch.apply(terms, candidates))
+                .subscribeOn(searchScheduler)
+                .onErrorResume(e -> {
+                    log.warn("Lexical search failed, using vector results only: {}", e.getMessage());
+                    return Mono.just(List.of());
+                });
+
+        return Mono.zip(vectorResults, lexicalResults,
+                (vector, lexical) -> {
+                    log.debug("Hybrid search: {} vector, {} lexical candidates", vector.size(), lexical.size());
+                    return ReciprocalRankFusion.fuse(List.of(vector, lexical), rrfK, topK);
+                });
+    }
+
     // 새로운 헬퍼 메서드들 - 간단한 응답 생성용
 
     /**
-     * 간단한 컨텍스트 구성 - chunk별 구분 없이 하나의 텍스트로 합침
+     * 간단한 컨텍스트 구성 - 연속된 청크는 합치고 겹치는 본문은 제거하여 토큰 예산 안에서 하나의 텍스트로 합침
      */
-    private String buildSimpleContext(List<Map<String, Object>> chunks) {
-        return chunks.stream()
-                .map(chunk -> (String) chunk.get("content"))
-                .collect(Collectors.joining("\n\n"));
+    private String buildSimpleContext(List<SimilarChunk> chunks) {
+        return contextPacker.pack(chunks);
     }
 
     /**
      * 간단한 답변 생성
      */
-    private String generateSimpleAnswer(String query, String context) {
+    private String generateSimpleAnswer(Long categoryId, String query, String context) {
         String prompt = String.format("""
             다음 내용을 바탕으로 질문에 간결하게 답변해주세요.
             
@@ -284,13 +670,13 @@ public class SearchService {
             답변:
             """, query, context);
 
-        return chatModel.call(prompt);
+        return llmGateway.call(categoryId, prompt);
     }
 
     /**
      * 특정 문서용 간단한 답변 생성
      */
-    private String generateSimpleAnswerForDocument(String query, String context, String fileName) {
+    private String generateSimpleAnswerForDocument(Long categoryId, String query, String context, String fileName) {
         String prompt = String.format("""
             '%s' 문서의 다음 내용을 바탕으로 질문에 간결하게 답변해주세요.
             
@@ -302,131 +688,68 @@ public class SearchService {
             답변:
             """, fileName, query, context);
 
-        return chatModel.call(prompt);
+        return llmGateway.call(categoryId, prompt);
     }
 
     /**
-     * 🆕 주요 참조 문서 객체 반환 - 첨부파일 정보용
+     * 🆕 주요 참조 문서 선택 - 문서별 청크 유사도 합계가 가장 큰 문서의 최상위 청크 (LLM 호출, DB 조회 없음)
+     * - 관련 청크가 여러 개인 문서가 한 청크만 비슷한 문서보다 우선
+     * - 합계가 같으면 검색 순서상 먼저 나온 문서
      */
-    private Document getMainDocument(List<Map<String, Object>> chunks, String query) {
-        if (chunks.isEmpty()) {
-            return null;
+    private SimilarChunk selectMainChunk(List<SimilarChunk> chunks) {
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        Map<Long, SimilarChunk> topChunks = new HashMap<>();
+        for (SimilarChunk chunk : chunks) {
+            scores.merge(chunk.documentId(), Math.max(0.0, chunk.similarity()), Double::sum);
+            topChunks.putIfAbsent(chunk.documentId(), chunk);
         }
 
-        try {
-            // 가장 유사도가 높은 첫 번째 chunk의 문서 ID로 Document 객체 조회
-            Long documentId = (Long) chunks.get(0).get("document_id");
-            return documentService.getDocument(documentId);
-        } catch (Exception e) {
-            log.error("Error getting main document", e);
-            return null;
-        }
-    }
-    private String getBestMatchingDocumentName(List<Map<String, Object>> chunks, String query) {
-        if (chunks.isEmpty()) {
-            return "알 수 없음";
-        }
-
-        // 방법 1: 첫 번째 chunk의 문서 (가장 높은 유사도)
-        String firstDocumentName = (String) chunks.get(0).get("file_name");
-
-        // 방법 2: AI에게 어느 문서가 가장 관련성이 높은지 질문
-        try {
-            // 문서별로 그룹화하여 각 문서의 대표 내용 추출
-            Map<String, List<Map<String, Object>>> documentGroups = chunks.stream()
-                    .collect(Collectors.groupingBy(chunk -> (String) chunk.get("file_name")));
-
-            if (documentGroups.size() == 1) {
-                // 문서가 하나뿐이면 그것을 반환
-                return firstDocumentName;
+        Long bestDocumentId = null;
+        double bestScore = -1;
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (entry.getValue() > bestScore) {
+                bestScore = entry.getValue();
+                bestDocumentId = entry.getKey();
             }
-
-            // 여러 문서가 있는 경우, AI에게 가장 관련성 높은 문서 선택 요청
-            StringBuilder documentInfo = new StringBuilder();
-            documentGroups.forEach((docName, docChunks) -> {
-                documentInfo.append("문서: ").append(docName).append("\n");
-                documentInfo.append("내용 미리보기: ")
-                        .append(((String) docChunks.get(0).get("content"))
-                                .substring(0, Math.min(200, docChunks.get(0).get("content").toString().length())))
-                        .append("...\n\n");
-            });
-
-            String selectionPrompt = String.format("""
-                다음 질문에 가장 적합한 문서를 선택해주세요. 문서명만 정확히 답변하세요.
-                
-                질문: %s
-                
-                문서들:
-                %s
-                
-                가장 관련성이 높은 문서명:
-                """, query, documentInfo.toString());
-
-            String selectedDoc = chatModel.call(selectionPrompt).trim();
-
-            // AI가 선택한 문서가 실제 목록에 있는지 확인
-            if (documentGroups.containsKey(selectedDoc)) {
-                log.info("AI selected document: {} for query: {}", selectedDoc, query);
-                return selectedDoc;
-            } else {
-                log.warn("AI selected invalid document: {}, falling back to first document: {}",
-                        selectedDoc, firstDocumentName);
-                return firstDocumentName;
-            }
-
-        } catch (Exception e) {
-            log.error("Error in AI document selection, using first document", e);
-            return firstDocumentName;
         }
+        log.debug("Document scores: {}", scores);
+        return topChunks.get(bestDocumentId);
     }
 
     /**
-     * 기존 방식 유지 (백업용) - 가장 많이 나타나는 문서명 반환
-     */
-    private String getMainDocumentName(List<Map<String, Object>> chunks) {
-        Map<String, Long> documentCounts = chunks.stream()
-                .collect(Collectors.groupingBy(
-                        chunk -> (String) chunk.get("file_name"),
-                        Collectors.counting()
-                ));
-
-        return documentCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("알 수 없음");
-    }
-
-    /**
-     * 간단한 신뢰도 계산 - 퍼센트로 반환 (0~100)
+     * 신뢰도 계산 - 검색된 청크의 실제 코사인 유사도 기반 퍼센트 (0~100)
+     * 가장 유사한 청크(70%)와 상위 3개 평균(30%)을 함께 반영
      */
-    private int calculateSimpleConfidence(List<Map<String, Object>> chunks, String answer) {
+    private int calculateSimpleConfidence(List<SimilarChunk> chunks, String answer) {
         if (chunks.isEmpty() || answer.contains("답변할 수 없습니다") || answer.contains("정보를 찾을 수 없습니다")) {
             return 0;
         }
 
-        // chunks 개수와 답변 길이를 기반으로 간단한 신뢰도 계산
-        double chunkScore = Math.min(chunks.size() / 3.0, 1.0);
-        double answerScore = Math.min(answer.length() / 50.0, 1.0);
-
-        // 0~100 사이의 정수로 변환
-        double confidenceRatio = (chunkScore + answerScore) / 2.0;
+        // 하이브리드 검색 결과는 RRF 순서이므로 유사도 순으로 다시 정렬하여 계산
+        double[] similarities = chunks.stream()
+                .mapToDouble(SimilarChunk::similarity)
+                .sorted()
+                .toArray();
+        double topSimilarity = similarities[similarities.length - 1];
+        double topAverage = Arrays.stream(similarities, Math.max(0, similarities.length - 3), similarities.length)
+                .average()
+                .orElse(0.0);
+
+        double confidenceRatio = Math.max(0.0, Math.min(1.0, topSimilarity * 0.7 + topAverage * 0.3));
         return (int) Math.round(confidenceRatio * 100);
     }
 
-    // 기존 유틸리티 메서드들
-    private Map<String, Object> mapVectorStoreToResult(VectorStore vs) {
-        Map<String, Object> result = new HashMap<>();
-        result.put("content", vs.getContent());
-        result.put("metadata", vs.getMetadata());
-        result.put("document_id", vs.getDocument().getId());
-        result.put("file_name", vs.getDocument().getFileName());
-        result.put("chunk_index", vs.getChunkIndex());
-        return result;
-    }
-
-    private String convertEmbeddingToString(List<Double> embedding) {
-        return "[" + embedding.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(",")) + "]";
+    /**
+     * 캐시된 답변을 현재 질문으로 반환 (캐시 항목은 공유되므로 복사)
+     */
+    private SearchResponse withQuery(SearchResponse cached, String query) {
+        return SearchResponse.builder()
+                .query(query)
+                .answer(cached.getAnswer())
+                .documentName(cached.getDocumentName())
+                .confidence(cached.getConfidence())
+                .downloadUrl(cached.getDownloadUrl())
+                .sources(cached.getSources())
+                .build();
     }
 }
\ No newline at end of file
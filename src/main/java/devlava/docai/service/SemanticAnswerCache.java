@@ -0,0 +1,229 @@
+package devlava.docai.service;
+
+import devlava.docai.dto.SearchResponse;
+import devlava.docai.repository.CategoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 의미 기반 답변 캐시
+ * - 범위(카테고리 또는 문서 + topK)별로 질문 임베딩과 답변을 보관
+ * - 새 질문 임베딩과의 코사인 거리가 max-distance 이하인 항목이 있으면 LLM 호출 없이 그 답변 사용
+ * - 범위 안의 문서가 등록/교체/삭제되거나 벡터화가 끝나면 해당 범위 전체 무효화
+ */
+@Service
+@Slf4j
+public class SemanticAnswerCache {
+
+    /**
+     * 캐시 범위 - 문서 범위면 documentId, 카테고리 범위면 categoryId + 검색 모드만 사용 (검색 방식별로 따로 보관)
+     */
+    public record Scope(Long categoryId, CategorySearchMode mode, Long documentId, RetrievalMode retrieval,
+                        int topK) {
+
+        public static Scope category(Long categoryId, CategorySearchMode mode, RetrievalMode retrieval, int topK) {
+            return new Scope(categoryId, mode, null, retrieval, topK);
+        }
+
+        public static Scope document(Long documentId, RetrievalMode retrieval, int topK) {
+            return new Scope(null, null, documentId, retrieval, topK);
+        }
+
+        // categoryPath: 변경된 문서의 카테고리와 모든 상위 카테고리 ID
+        boolean isAffectedBy(DocumentChangedEvent event, Set<Long> categoryPath) {
+            if (documentId != null) {
+                return documentId.equals(event.documentId());
+            }
+            return mode == CategorySearchMode.SUBTREE
+                    ? categoryPath.contains(categoryId)
+                    : categoryId.equals(event.categoryId());
+        }
+    }
+
+    /**
+     * 조회 결과 - 미스면 response가 null, put 시 조회 이후 무효화 여부 확인에 사용
+     */
+    public record Lookup(SearchResponse response, long generation) {
+
+        public boolean isHit() {
+            return response != null;
+        }
+    }
+
+    private record Entry(float[] unitVector, SearchResponse response, long expiresAtNanos) {
+    }
+
+    private final CategoryRepository categoryRepository;
+    private final boolean enabled;
+    private final double maxDistance;
+    private final int maxEntriesPerScope;
+    private final long ttlNanos;
+    private final Map<Scope, ArrayDeque<Entry>> scopes = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public SemanticAnswerCache(CategoryRepository categoryRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${docai.search.answer-cache.enabled:true}") boolean enabled,
+                               @Value("${docai.search.answer-cache.max-distance:0.05}") double maxDistance,
+                               @Value("${docai.search.answer-cache.max-entries-per-scope:200}") int maxEntriesPerScope,
+                               @Value("${docai.search.answer-cache.ttl:6h}") Duration ttl) {
+        this.categoryRepository = categoryRepository;
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.maxEntriesPerScope = maxEntriesPerScope;
+        this.ttlNanos = ttl.toNanos();
+
+        this.hits = Counter.builder("docai.answer.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docai.answer.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("docai.answer.cache.invalidations")
+                .register(meterRegistry);
+        Gauge.builder("docai.answer.cache.size", this, SemanticAnswerCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 범위 안에서 가장 가까운 질문의 답변 조회
+     */
+    public Lookup lookup(Scope scope, float[] queryVector) {
+        long currentGeneration = generation.get();
+        if (!enabled) {
+            return new Lookup(null, currentGeneration);
+        }
+
+        ArrayDeque<Entry> entries = scopes.get(scope);
+        SearchResponse best = null;
+        if (entries != null) {
+            float[] unit = normalize(queryVector);
+            double bestDistance = maxDistance;
+            long now = System.nanoTime();
+            synchronized (entries) {
+                entries.removeIf(entry -> now - entry.expiresAtNanos() >= 0);
+                for (Entry entry : entries) {
+                    double distance = 1.0 - dot(unit, entry.unitVector());
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = entry.response();
+                    }
+                }
+            }
+        }
+
+        (best != null ? hits : misses).increment();
+        return new Lookup(best, currentGeneration);
+    }
+
+    /**
+     * 답변 저장 - 조회 이후 무효화가 있었다면 오래된 답변일 수 있으므로 버림
+     */
+    public void put(Scope scope, Lookup lookup, float[] queryVector, SearchResponse response) {
+        if (!enabled || generation.get() != lookup.generation()) {
+            return;
+        }
+
+        Entry entry = new Entry(normalize(queryVector), response, System.nanoTime() + ttlNanos);
+        ArrayDeque<Entry> entries = scopes.computeIfAbsent(scope, key -> new ArrayDeque<>());
+        synchronized (entries) {
+            entries.addLast(entry);
+            // 위 확인과 추가 사이에 무효화가 끼어들었으면 새로 만든 범위에 오래된 답변이 남으므로 되돌림
+            // (무효화는 세대를 먼저 올린 뒤 범위를 지우므로, 추가 후 세대가 같으면 이후 무효화가 이 항목을 지움)
+            if (generation.get() != lookup.generation()) {
+                entries.removeLastOccurrence(entry);
+                return;
+            }
+            while (entries.size() > maxEntriesPerScope) {
+                entries.pollFirst();
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        generation.incrementAndGet();
+        Set<Long> categoryPath = categoryPath(event);
+        int removed = 0;
+        for (Iterator<Map.Entry<Scope, ArrayDeque<Entry>>> iterator = scopes.entrySet().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getKey().isAffectedBy(event, categoryPath)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            invalidations.increment(removed);
+            log.debug("Invalidated {} answer cache scopes for document {} (category {})",
+                    removed, event.documentId(), event.categoryId());
+        }
+    }
+
+    // 하위 카테고리 포함 범위가 캐시에 있을 때만 상위 카테고리 경로 조회
+    private Set<Long> categoryPath(DocumentChangedEvent event) {
+        if (event.categoryId() == null
+                || scopes.keySet().stream().noneMatch(scope -> scope.mode() == CategorySearchMode.SUBTREE)) {
+            return Set.of();
+        }
+        try {
+            return new HashSet<>(categoryRepository.findAncestorIds(event.categoryId()));
+        } catch (Exception e) {
+            // 경로를 모르면 하위 포함 범위 전체를 무효화 대상으로 간주
+            log.warn("Failed to resolve category path for {}, invalidating all subtree scopes", event.categoryId(), e);
+            Set<Long> all = new HashSet<>();
+            scopes.keySet().forEach(scope -> all.add(scope.categoryId()));
+            return all;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ArrayDeque<Entry> entries : scopes.values()) {
+            synchronized (entries) {
+                size += entries.size();
+            }
+        }
+        return size;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0.0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,100 @@
+package devlava.docai.service;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.core.io.Resource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Tika ContentHandler 기반 스트리밍 텍스트 추출
+ * - TikaDocumentReader처럼 본문 전체를 문자열 하나로 모으지 않음
+ * - 일정 길이가 쌓일 때마다 마지막 공백 위치에서 잘라 소비자에게 전달
+ */
+public class StreamingTextExtractor {
+
+    private final int segmentChars;
+
+    public StreamingTextExtractor(int segmentChars) {
+        this.segmentChars = segmentChars;
+    }
+
+    /**
+     * 파일을 파싱하면서 텍스트 조각을 순서대로 전달 - 추출한 전체 문자 수 반환
+     */
+    public long extract(Resource resource, Consumer<String> segmentConsumer) throws IOException {
+        SegmentingHandler handler = new SegmentingHandler(segmentConsumer);
+        try (InputStream inputStream = resource.getInputStream()) {
+            new AutoDetectParser().parse(inputStream, new BodyContentHandler(handler),
+                    new Metadata(), new ParseContext());
+        } catch (SAXException | TikaException e) {
+            throw new IOException("Failed to parse file: " + resource.getFilename(), e);
+        }
+        handler.flush();
+        return handler.totalChars;
+    }
+
+    private class SegmentingHandler extends DefaultHandler {
+
+        private final Consumer<String> segmentConsumer;
+        private final StringBuilder buffer = new StringBuilder();
+        private long totalChars;
+
+        private SegmentingHandler(Consumer<String> segmentConsumer) {
+            this.segmentConsumer = segmentConsumer;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            append(ch, start, length);
+        }
+
+        private void append(char[] ch, int start, int length) {
+            buffer.append(ch, start, length);
+            totalChars += length;
+            if (buffer.length() >= segmentChars) {
+                emitUpToLastWordBoundary();
+            }
+        }
+
+        // 단어 중간에서 끊기면 토큰화 결과가 달라지므로 공백 경계에서 자름
+        // (토크나이저가 앞 공백을 단어에 붙이므로 공백은 다음 조각으로 넘김)
+        private void emitUpToLastWordBoundary() {
+            int cut = buffer.length();
+            while (cut > 0 && !Character.isWhitespace(buffer.charAt(cut - 1))) {
+                cut--;
+            }
+            while (cut > 0 && Character.isWhitespace(buffer.charAt(cut - 1))) {
+                cut--;
+            }
+            if (cut == 0) {
+                // 공백 없이 긴 텍스트는 2배 크기까지 기다렸다가 그대로 자름
+                if (buffer.length() < segmentChars * 2) {
+                    return;
+                }
+                cut = buffer.length();
+            }
+            segmentConsumer.accept(buffer.substring(0, cut));
+            buffer.delete(0, cut);
+        }
+
+        private void flush() {
+            if (!buffer.isEmpty()) {
+                segmentConsumer.accept(buffer.toString());
+                buffer.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package devlava.docai.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+
+import java.util.function.Consumer;
+
+/**
+ * TokenTextSplitter와 같은 규칙으로 청크를 만들되, 텍스트를 조각 단위로 받아 점진적으로 분할
+ * - 다음 청크를 확정할 만큼 토큰이 쌓이면 즉시 청크를 내보내고 소비한 토큰은 버림
+ * - 메모리에는 아직 청크가 되지 않은 토큰만 남음 (문서 크기와 무관)
+ * - 조각 경계에서 토큰이 달라지지 않도록, 전체 텍스트를 한 번에 인코딩한 결과와 토큰 경계가 같은 위치까지만 인코딩
+ * - 스레드 안전하지 않음 (파싱 스레드 하나에서만 사용)
+ */
+public class StreamingTokenTextSplitter {
+
+    // 청크 토큰 수를 셀 때와 같은 토크나이저를 ContextPacker도 사용
+    static final Encoding ENCODING = Encodings.newLazyEncodingRegistry()
+            .getEncoding(EncodingType.CL100K_BASE);
+    // 안전한 경계 없이 이만큼 쌓이면 그대로 인코딩 (경계 차이보다 메모리 제한 우선)
+    private static final int MAX_PENDING_CHARS = 64 * 1024;
+
+    private final int chunkSize;
+    private final int minChunkSizeChars;
+    private final int minChunkLengthToEmbed;
+    private final int maxNumChunks;
+    private final boolean keepSeparator;
+    private final Consumer<String> chunkConsumer;
+
+    // 토큰 경계가 확정되지 않아 아직 인코딩하지 않은 텍스트
+    private final StringBuilder pendingText = new StringBuilder();
+
+    private int[] tokens = new int[1024];
+    private int start;
+    private int end;
+    private int numChunks;
+
+    public StreamingTokenTextSplitter(int chunkSize, int minChunkSizeChars, int minChunkLengthToEmbed,
+                                      int maxNumChunks, boolean keepSeparator, Consumer<String> chunkConsumer) {
+        this.chunkSize = chunkSize;
+        this.minChunkSizeChars = minChunkSizeChars;
+        this.minChunkLengthToEmbed = minChunkLengthToEmbed;
+        this.maxNumChunks = maxNumChunks;
+        this.keepSeparator = keepSeparator;
+        this.chunkConsumer = chunkConsumer;
+    }
+
+    /**
+     * 텍스트 조각 추가 - 뒤따르는 토큰이 더 있어 경계가 확정된 청크만 내보냄
+     */
+    public void accept(String segment) {
+        if (segment.isEmpty()) {
+            return;
+        }
+        pendingText.append(segment);
+        int cut = lastSafeCut(pendingText);
+        if (cut <= 0 && pendingText.length() > MAX_PENDING_CHARS) {
+            // 서로게이트 쌍은 나누지 않음
+            cut = Character.isHighSurrogate(pendingText.charAt(pendingText.length() - 1))
+                    ? pendingText.length() - 1
+                    : pendingText.length();
+        }
+        if (cut <= 0) {
+            return;
+        }
+        append(ENCODING.encode(pendingText.substring(0, cut)));
+        pendingText.delete(0, cut);
+        while (end - start > chunkSize && numChunks < maxNumChunks) {
+            emitNextChunk();
+        }
+    }
+
+    /**
+     * 입력 종료 - 남은 토큰을 TokenTextSplitter와 같은 방식으로 마무리
+     */
+    public void finish() {
+        if (!pendingText.isEmpty()) {
+            append(ENCODING.encode(pendingText.toString()));
+            pendingText.setLength(0);
+        }
+        while (end > start && numChunks < maxNumChunks) {
+            emitNextChunk();
+        }
+        if (end > start) {
+            String remainingText = ENCODING.decode(range(start, end))
+                    .replace(System.lineSeparator(), " ").trim();
+            if (remainingText.length() > minChunkLengthToEmbed) {
+                chunkConsumer.accept(remainingText);
+            }
+        }
+        start = 0;
+        end = 0;
+    }
+
+    // 앞쪽 chunkSize 토큰으로 청크 하나를 만들고, 문장 부호 경계까지 소비
+    private void emitNextChunk() {
+        int chunkEnd = Math.min(start + chunkSize, end);
+        String chunkText = ENCODING.decode(range(start, chunkEnd));
+        if (chunkText.trim().isEmpty()) {
+            start = chunkEnd;
+            return;
+        }
+
+        int lastPunctuation = Math.max(chunkText.lastIndexOf('.'),
+                Math.max(chunkText.lastIndexOf('?'),
+                        Math.max(chunkText.lastIndexOf('!'), chunkText.lastIndexOf('\n'))));
+        if (lastPunctuation != -1 && lastPunctuation > minChunkSizeChars) {
+            chunkText = chunkText.substring(0, lastPunctuation + 1);
+        }
+
+        String chunkTextToAppend = keepSeparator
+                ? chunkText.trim()
+                : chunkText.replace(System.lineSeparator(), " ").trim();
+        if (chunkTextToAppend.length() > minChunkLengthToEmbed) {
+            chunkConsumer.accept(chunkTextToAppend);
+        }
+
+        start = Math.min(start + ENCODING.countTokens(chunkText), end);
+        numChunks++;
+    }
+
+    /**
+     * 앞부분만 따로 인코딩해도 전체를 인코딩한 것과 같은 토큰이 나오는 마지막 위치 (없으면 -1)
+     * - cl100k 사전 분할에서 줄바꿈 뒤 공백이 아닌 문자 앞, 글자 사이 공백 앞은 항상 토큰 경계
+     *   (공백은 뒤 단어의 토큰에 붙으므로 공백 뒤에서 자르면 토큰이 달라짐)
+     */
+    static int lastSafeCut(CharSequence text) {
+        for (int p = text.length() - 1; p > 0; p--) {
+            char c = text.charAt(p);
+            char previous = text.charAt(p - 1);
+            if (previous == '\n' && !Character.isWhitespace(c)) {
+                return p;
+            }
+            if (c == ' ' && p + 1 < text.length()
+                    && Character.isLetter(previous) && Character.isLetter(text.charAt(p + 1))) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private void append(IntArrayList encoded) {
+        int size = encoded.size();
+        if (end + size > tokens.length) {
+            // 소비된 앞부분을 당겨서 버퍼 재사용, 부족할 때만 확장
+            int live = end - start;
+            int[] target = live + size > tokens.length
+                    ? new int[Math.max(tokens.length * 2, live + size)]
+                    : tokens;
+            System.arraycopy(tokens, start, target, 0, live);
+            tokens = target;
+            start = 0;
+            end = live;
+        }
+        for (int i = 0; i < size; i++) {
+            tokens[end++] = encoded.get(i);
+        }
+    }
+
+    private IntArrayList range(int from, int to) {
+        IntArrayList list = new IntArrayList(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(tokens[i]);
+        }
+        return list;
+    }
+}
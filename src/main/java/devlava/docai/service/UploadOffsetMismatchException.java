@@ -0,0 +1,17 @@
+package devlava.docai.service;
+
+import lombok.Getter;
+
+/**
+ * 클라이언트가 보낸 청크 오프셋이 서버에 기록된 위치와 다를 때
+ */
+@Getter
+public class UploadOffsetMismatchException extends RuntimeException {
+
+    private final long expectedOffset;
+
+    public UploadOffsetMismatchException(long expectedOffset, long actualOffset) {
+        super("Upload offset mismatch - expected: " + expectedOffset + ", received: " + actualOffset);
+        this.expectedOffset = expectedOffset;
+    }
+}
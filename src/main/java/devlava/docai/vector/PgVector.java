@@ -0,0 +1,188 @@
+package devlava.docai.vector;
+
+import org.postgresql.PGConnection;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * pgvector 값을 float[] 그대로 주고받는 JDBC 객체
+ * - 바이너리 포맷: dim(int16) + unused(int16) + float4 * dim (big endian)
+ * - 연결에 등록되면 드라이버가 문자열 변환 없이 바이너리로 송수신
+ */
+public class PgVector extends PGobject implements PGBinaryObject {
+
+    public static final String TYPE_NAME = "vector";
+
+    // 이미 타입을 등록한 물리 연결
+    private static final Map<BaseConnection, Boolean> REGISTERED =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private float[] values;
+
+    public PgVector() {
+        setType(TYPE_NAME);
+    }
+
+    public PgVector(float[] values) {
+        this();
+        this.values = values;
+    }
+
+    public float[] toArray() {
+        return values;
+    }
+
+    /**
+     * 연결에 vector 타입을 등록하고 바이너리 송수신 활성화 (연결당 한 번)
+     */
+    public static void register(Connection connection) throws SQLException {
+        BaseConnection baseConnection = connection.unwrap(BaseConnection.class);
+        if (REGISTERED.containsKey(baseConnection)) {
+            return;
+        }
+
+        ((PGConnection) baseConnection).addDataType(TYPE_NAME, PgVector.class);
+        int oid = baseConnection.getTypeInfo().getPGType(TYPE_NAME);
+        if (oid != Oid.UNSPECIFIED) {
+            baseConnection.getQueryExecutor().addBinarySendOid(oid);
+            baseConnection.getQueryExecutor().addBinaryReceiveOid(oid);
+        }
+        REGISTERED.put(baseConnection, Boolean.TRUE);
+    }
+
+    /**
+     * JDBC 결과 값(PgVector, PGobject, 문자열)을 float[]로 변환
+     */
+    public static float[] toFloatArray(Object value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof PgVector vector) {
+            return vector.values;
+        }
+        if (value instanceof PGobject object) {
+            return parse(object.getValue());
+        }
+        return parse(value.toString());
+    }
+
+    public static int binaryLength(float[] values) {
+        return 4 + values.length * 4;
+    }
+
+    /**
+     * float[]를 pgvector 바이너리 포맷으로 기록
+     */
+    public static void writeBinary(float[] values, ByteBuffer buffer) {
+        buffer.putShort((short) values.length);
+        buffer.putShort((short) 0);
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+    }
+
+    public static float[] readBinary(ByteBuffer buffer) {
+        int dimensions = buffer.getShort() & 0xFFFF;
+        buffer.getShort();
+        float[] result = new float[dimensions];
+        buffer.asFloatBuffer().get(result);
+        buffer.position(buffer.position() + dimensions * 4);
+        return result;
+    }
+
+    // 텍스트 포맷 "[1,2,3]" 파싱 (바이너리 수신이 꺼진 경우)
+    private static float[] parse(String text) throws SQLException {
+        if (text == null) {
+            return null;
+        }
+        String body = text.trim();
+        if (body.length() < 2 || body.charAt(0) != '[' || body.charAt(body.length() - 1) != ']') {
+            throw new SQLException("Invalid vector literal: " + text);
+        }
+        body = body.substring(1, body.length() - 1);
+        if (body.isEmpty()) {
+            return new float[0];
+        }
+
+        int count = 1;
+        for (int i = 0; i < body.length(); i++) {
+            if (body.charAt(i) == ',') {
+                count++;
+            }
+        }
+        float[] result = new float[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = body.indexOf(',', start);
+            if (end < 0) {
+                end = body.length();
+            }
+            result[i] = Float.parseFloat(body.substring(start, end).trim());
+            start = end + 1;
+        }
+        return result;
+    }
+
+    @Override
+    public void setValue(String value) throws SQLException {
+        this.values = parse(value);
+    }
+
+    @Override
+    public String getValue() {
+        if (values == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(values.length * 12);
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    @Override
+    public void setByteValue(byte[] value, int offset) {
+        this.values = readBinary(ByteBuffer.wrap(value, offset, value.length - offset));
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return values == null ? 0 : binaryLength(values);
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        writeBinary(values, ByteBuffer.wrap(bytes, offset, binaryLength(values)));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof PgVector other && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        PgVector copy = (PgVector) super.clone();
+        copy.values = values != null ? values.clone() : null;
+        return copy;
+    }
+}
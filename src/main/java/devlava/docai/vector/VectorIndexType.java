@@ -0,0 +1,7 @@
+package devlava.docai.vector;
+
+public enum VectorIndexType {
+    HNSW,       // 검색 품질/속도 우수, 빌드 느리고 메모리 사용 큼
+    IVFFLAT,    // 빌드 빠름, 데이터가 충분히 쌓인 뒤 생성해야 품질 유지
+    NONE        // 인덱스 없음 (순차 스캔)
+}
@@ -0,0 +1,27 @@
+package devlava.docai.vector;
+
+/**
+ * pgvector 거리 함수 - 검색 연산자와 인덱스 operator class는 반드시 같은 metric이어야 인덱스가 사용됨
+ */
+public enum VectorMetric {
+
+    COSINE("<=>", "vector_cosine_ops"),
+    L2("<->", "vector_l2_ops"),
+    INNER_PRODUCT("<#>", "vector_ip_ops");
+
+    private final String operator;
+    private final String operatorClass;
+
+    VectorMetric(String operator, String operatorClass) {
+        this.operator = operator;
+        this.operatorClass = operatorClass;
+    }
+
+    public String operator() {
+        return operator;
+    }
+
+    public String operatorClass() {
+        return operatorClass;
+    }
+}
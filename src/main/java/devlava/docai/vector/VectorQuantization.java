@@ -0,0 +1,12 @@
+package devlava.docai.vector;
+
+public enum VectorQuantization {
+    NONE,       // 전체 float 벡터로 인덱스/검색
+    BINARY;     // 부호 1비트 코드로 인덱스/후보 검색 후 전체 벡터로 재정렬 (pgvector 0.7+)
+
+    // 인덱스 식과 검색 ORDER BY 식이 같은 식이어야 인덱스가 사용됨
+    public static String binaryExpression(String vectorExpression, int dimensions) {
+        // "::" 캐스트는 Hibernate 네이티브 쿼리 파라미터 파싱과 충돌하므로 CAST 사용
+        return "CAST(binary_quantize(" + vectorExpression + ") AS bit(" + dimensions + "))";
+    }
+}
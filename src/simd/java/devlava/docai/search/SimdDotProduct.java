@@ -0,0 +1,32 @@
+package devlava.docai.search;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * JDK Vector API 내적 - jdk.incubator.vector 모듈이 있을 때만 DotProducts에서 사용
+ */
+final class SimdDotProduct {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private SimdDotProduct() {
+    }
+
+    static float dot(float[] block, int offset, float[] query, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector a = FloatVector.fromArray(SPECIES, block, offset + i);
+            FloatVector b = FloatVector.fromArray(SPECIES, query, i);
+            sum = a.fma(b, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += block[offset + i] * query[i];
+        }
+        return result;
+    }
+}
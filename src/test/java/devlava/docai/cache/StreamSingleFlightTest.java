@@ -0,0 +1,100 @@
+package devlava.docai.cache;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamSingleFlightTest {
+
+    private final StreamSingleFlight<String, String> flights = new StreamSingleFlight<>();
+    private final AtomicInteger sourceCalls = new AtomicInteger();
+
+    @Test
+    void concurrentJoinersShareOneUpstreamAndReplayEarlierElements() {
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        Supplier<Flux<String>> source = counted(sink::asFlux);
+
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        flights.join("q", source).subscribe(first::add);
+        sink.tryEmitNext("a");
+        flights.join("q", source).subscribe(second::add);
+        sink.tryEmitNext("b");
+        sink.tryEmitComplete();
+
+        assertThat(first).containsExactly("a", "b");
+        assertThat(second).containsExactly("a", "b");
+        assertThat(sourceCalls).hasValue(1);
+        assertThat(flights.joins()).isEqualTo(1);
+    }
+
+    @Test
+    void joinDuringCompletionStartsANewFlight() {
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        Supplier<Flux<String>> source = counted(sink::asFlux);
+
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> late = new CopyOnWriteArrayList<>();
+        AtomicBoolean lateCompleted = new AtomicBoolean();
+        // 첫 구독자가 완료 신호를 받는 순간 합류 - 키는 완료 신호 전에 제거되므로 끝난 스트림에 붙지 않고 새로 시작
+        flights.join("q", source).subscribe(first::add, e -> { }, () ->
+                flights.join("q", counted(() -> Flux.just("fresh")))
+                        .subscribe(late::add, e -> { }, () -> lateCompleted.set(true)));
+        sink.tryEmitNext("a");
+        sink.tryEmitComplete();
+
+        assertThat(first).containsExactly("a");
+        assertThat(late).containsExactly("fresh");
+        assertThat(lateCompleted).isTrue();
+        assertThat(sourceCalls).hasValue(2);
+    }
+
+    @Test
+    void cancellingEverySubscriberCancelsUpstreamAndStartsFreshNextTime() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        Supplier<Flux<String>> source = counted(() -> sink.asFlux().doOnCancel(() -> cancelled.set(true)));
+
+        Disposable first = flights.join("q", source).subscribe();
+        Disposable second = flights.join("q", source).subscribe();
+        first.dispose();
+        assertThat(cancelled).isFalse();
+        second.dispose();
+        assertThat(cancelled).isTrue();
+
+        assertThat(flights.join("q", counted(() -> Flux.just("again"))).collectList().block())
+                .containsExactly("again");
+        assertThat(sourceCalls).hasValue(2);
+    }
+
+    @Test
+    void errorsAreSharedAndClearTheKey() {
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        Supplier<Flux<String>> source = counted(sink::asFlux);
+
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        flights.join("q", source).subscribe(value -> { }, errors::add);
+        flights.join("q", source).subscribe(value -> { }, errors::add);
+        sink.tryEmitError(new IllegalStateException("boom"));
+
+        assertThat(errors).hasSize(2).allSatisfy(e -> assertThat(e).hasMessage("boom"));
+        assertThat(flights.join("q", counted(() -> Flux.just("ok"))).collectList().block()).containsExactly("ok");
+        assertThat(sourceCalls).hasValue(2);
+    }
+
+    private Supplier<Flux<String>> counted(Supplier<Flux<String>> source) {
+        return () -> {
+            sourceCalls.incrementAndGet();
+            return source.get();
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package devlava.docai.controller;
+
+import devlava.docai.service.CategorySearchMode;
+import devlava.docai.service.RetrievalMode;
+import devlava.docai.service.SearchService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SearchControllerTest {
+
+    private final SearchService searchService = mock(SearchService.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SearchController(searchService)).build();
+
+    @Test
+    void documentStreamReturnsNotFoundBeforeOpeningTheStream() throws Exception {
+        when(searchService.answerQuestionInDocumentStream(anyString(), eq(404L), anyInt(), eq(RetrievalMode.VECTOR)))
+                .thenThrow(new EntityNotFoundException("Document not found with id: 404"));
+
+        mockMvc.perform(post("/api/search/document/404/answer/stream")
+                        .param("query", "질문")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound())
+                .andExpect(request().asyncNotStarted());
+    }
+
+    @Test
+    void documentStreamSendsTokensThenDone() throws Exception {
+        when(searchService.answerQuestionInDocumentStream(anyString(), eq(1L), anyInt(), eq(RetrievalMode.VECTOR)))
+                .thenReturn(Flux.just("안녕", "하세요"));
+
+        MvcResult result = mockMvc.perform(post("/api/search/document/1/answer/stream")
+                        .param("query", "질문")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("""
+                        event:token
+                        data:{"text":"안녕"}
+
+                        event:token
+                        data:{"text":"하세요"}
+
+                        event:done
+                        data:{"text":""}
+
+                        """.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void extractiveCategoryStreamSendsTheWholeAnswerAsOneToken() throws Exception {
+        when(searchService.extractiveAnswerInCategoryStream(anyString(), eq(3L), anyInt(),
+                eq(CategorySearchMode.EXACT), eq(RetrievalMode.VECTOR), any()))
+                .thenReturn(Flux.just("환불은 30일 이내에 가능합니다.\n영수증이 필요합니다."));
+
+        MvcResult result = mockMvc.perform(post("/api/search/category/3/answer/stream")
+                        .param("query", "환불 기간")
+                        .param("mode", "EXTRACTIVE")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("""
+                        event:token
+                        data:{"text":"환불은 30일 이내에 가능합니다.\\n영수증이 필요합니다."}
+
+                        event:done
+                        data:{"text":""}
+
+                        """.getBytes(StandardCharsets.UTF_8)));
+        verify(searchService, never()).answerQuestionInCategoryStream(anyString(), any(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void extractiveDocumentStreamReturnsNotFoundBeforeOpeningTheStream() throws Exception {
+        when(searchService.extractiveAnswerInDocumentStream(anyString(), eq(404L), anyInt(), eq(RetrievalMode.VECTOR)))
+                .thenThrow(new EntityNotFoundException("Document not found with id: 404"));
+
+        mockMvc.perform(post("/api/search/document/404/answer/stream")
+                        .param("query", "질문")
+                        .param("mode", "EXTRACTIVE")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound())
+                .andExpect(request().asyncNotStarted());
+    }
+}
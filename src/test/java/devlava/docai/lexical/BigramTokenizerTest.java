@@ -0,0 +1,42 @@
+package devlava.docai.lexical;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BigramTokenizerTest {
+
+    @Test
+    void splitsKoreanRunsIntoOverlappingBigrams() {
+        assertThat(BigramTokenizer.tokenize("연차휴가 신청"))
+                .containsExactly("연차", "차휴", "휴가", "신청");
+    }
+
+    @Test
+    void keepsSingleCharacterKoreanRuns() {
+        assertThat(BigramTokenizer.tokenize("및 그 외")).containsExactly("및", "그", "외");
+    }
+
+    @Test
+    void lowercasesLatinAndDigitRunsAsWholeTokens() {
+        assertThat(BigramTokenizer.tokenize("ISO-9001 인증, Form A-12"))
+                .containsExactly("iso", "9001", "인증", "form", "12");
+    }
+
+    @Test
+    void splitsMixedScriptRunsAtScriptBoundaries() {
+        assertThat(BigramTokenizer.tokenize("GPT4모델")).containsExactly("gpt4", "모델");
+    }
+
+    @Test
+    void truncatesVeryLongWords() {
+        String hash = "a".repeat(100);
+        assertThat(BigramTokenizer.tokenize(hash)).containsExactly("a".repeat(64));
+    }
+
+    @Test
+    void returnsNoTokensForNullOrPunctuation() {
+        assertThat(BigramTokenizer.tokenize(null)).isEmpty();
+        assertThat(BigramTokenizer.tokenize("... !? --")).isEmpty();
+    }
+}
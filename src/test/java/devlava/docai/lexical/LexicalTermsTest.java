@@ -0,0 +1,92 @@
+package devlava.docai.lexical;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LexicalTermsTest {
+
+    @Test
+    void literalMatchesPostgresTsvectorOutput() {
+        // PostgreSQL이 '...'::tsvector를 출력하는 형식과 같음: lexeme은 UTF-8 바이트 순, 위치는 오름차순
+        LexicalTerms terms = LexicalTerms.of("검색 엔진의 검색 API 2024");
+
+        assertThat(terms.toLiteral()).isEqualTo("'2024':6 'api':5 '검색':1,4 '엔진':2 '진의':3");
+        assertThat(terms.size()).isEqualTo(5);
+    }
+
+    @Test
+    void binaryEncodingDecodesToTheSameLexemesAndPositions() {
+        LexicalTerms terms = LexicalTerms.of("""
+                제1조(목적) 이 규정은 연차휴가 신청 절차를 정한다.
+                연차휴가는 입사일 기준으로 부여하며, 신청은 HR-Portal에서 한다.
+                """);
+
+        ByteBuffer buffer = ByteBuffer.allocate(terms.binaryLength());
+        terms.writeBinary(buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+
+        assertThat(decode(buffer.flip())).isEqualTo(terms.toLiteral());
+    }
+
+    @Test
+    void binaryEncodingOfEmptyTextIsZeroLexemes() {
+        LexicalTerms terms = LexicalTerms.of("");
+        ByteBuffer buffer = ByteBuffer.allocate(terms.binaryLength());
+        terms.writeBinary(buffer);
+
+        assertThat(buffer.flip().getInt()).isZero();
+        assertThat(terms.toLiteral()).isEmpty();
+    }
+
+    @Test
+    void positionsPerLexemeAreCapped() {
+        LexicalTerms terms = LexicalTerms.of("ab ".repeat(300));
+
+        assertThat(terms.toLiteral().split(",")).hasSize(256);
+    }
+
+    @Test
+    void tsqueryOrsDistinctTermsAndDropsStopBigrams() {
+        assertThat(LexicalTerms.toTsquery("연차 휴가 신청 방법을 알려주세요", 64))
+                .isEqualTo("'연차' | '휴가' | '신청' | '방법' | '법을'");
+        assertThat(LexicalTerms.toTsquery("규정입니다 규정", 64)).isEqualTo("'규정' | '정입'");
+    }
+
+    @Test
+    void tsqueryIsNullWhenOnlyStopBigramsRemain() {
+        assertThat(LexicalTerms.toTsquery("알려주세요", 64)).isNull();
+        assertThat(LexicalTerms.toTsquery("?!", 64)).isNull();
+    }
+
+    @Test
+    void tsqueryKeepsAtMostMaxTerms() {
+        assertThat(LexicalTerms.toTsquery("aa bb cc dd", 2)).isEqualTo("'aa' | 'bb'");
+    }
+
+    // 바이너리 tsvector를 텍스트 형식으로 다시 조립
+    private static String decode(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ByteArrayOutputStream lexeme = new ByteArrayOutputStream();
+            byte b;
+            while ((b = buffer.get()) != 0) {
+                lexeme.write(b);
+            }
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append('\'').append(lexeme.toString(StandardCharsets.UTF_8)).append('\'');
+            int positions = buffer.getShort();
+            for (int p = 0; p < positions; p++) {
+                sb.append(p == 0 ? ':' : ',').append(buffer.getShort());
+            }
+        }
+        return sb.toString();
+    }
+}
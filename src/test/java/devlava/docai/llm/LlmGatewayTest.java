@@ -0,0 +1,146 @@
+package devlava.docai.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LlmGatewayTest {
+
+    private final OllamaChatModel chatModel = mock(OllamaChatModel.class);
+    // "hold" 프롬프트는 완료될 때까지 slot을 붙잡고, 나머지는 시작 순서만 기록하고 바로 끝남
+    private final Sinks.Many<String> hold = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicBoolean holdCancelled = new AtomicBoolean();
+    private final List<String> started = new CopyOnWriteArrayList<>();
+
+    LlmGatewayTest() {
+        when(chatModel.stream(anyString())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            if (prompt.equals("hold")) {
+                return hold.asFlux().doOnCancel(() -> holdCancelled.set(true));
+            }
+            started.add(prompt);
+            return Flux.just(prompt);
+        });
+        when(chatModel.call(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void weightedCategoriesShareSlotsByFinishTag() {
+        LlmGateway gateway = gateway(1, 16, 16, Duration.ofSeconds(10), "1=2");
+        gateway.stream(0L, "hold").subscribe();
+
+        // 카테고리 1이 먼저 몰아 보내도 카테고리 2는 가중치(2:1)만큼만 밀림
+        for (int i = 1; i <= 6; i++) {
+            gateway.stream(1L, "a" + i).subscribe();
+        }
+        gateway.stream(2L, "b1").subscribe();
+        gateway.stream(2L, "b2").subscribe();
+        assertThat(gateway.queueDepth()).isEqualTo(8);
+        assertThat(started).isEmpty();
+
+        hold.tryEmitComplete();
+
+        assertThat(started).containsExactly("a1", "a2", "b1", "a3", "a4", "b2", "a5", "a6");
+        assertThat(gateway.queueDepth()).isZero();
+        assertThat(gateway.activeSlots()).isZero();
+    }
+
+    @Test
+    void fullCategoryLaneIsRejectedWith429AndFullQueueWith503() {
+        LlmGateway gateway = gateway(1, 3, 2, Duration.ofSeconds(10), "");
+        gateway.stream(0L, "hold").subscribe();
+        gateway.stream(1L, "a1").subscribe();
+        gateway.stream(1L, "a2").subscribe();
+
+        assertThatThrownBy(() -> gateway.call(1L, "a3"))
+                .isInstanceOfSatisfying(LlmRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(e.getReason()).isEqualTo("category_queue_full");
+                });
+
+        gateway.stream(2L, "b1").subscribe();
+        assertThatThrownBy(() -> gateway.call(3L, "c1"))
+                .isInstanceOfSatisfying(LlmRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(e.getReason()).isEqualTo("queue_full");
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(5);
+                });
+        // 거절된 요청은 대기열에 남지 않음
+        assertThat(gateway.queueDepth()).isEqualTo(3);
+
+        hold.tryEmitComplete();
+        assertThat(started).containsExactly("a1", "b1", "a2");
+    }
+
+    @Test
+    void timedOutRequestsLeaveTheQueue() throws InterruptedException {
+        LlmGateway gateway = gateway(1, 16, 16, Duration.ofMillis(100), "");
+        gateway.stream(0L, "hold").subscribe();
+
+        assertThatThrownBy(() -> gateway.call(1L, "late"))
+                .isInstanceOfSatisfying(LlmRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(e.getReason()).isEqualTo("wait_timeout");
+                });
+        assertThat(gateway.queueDepth()).isZero();
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        gateway.stream(1L, "late-stream").subscribe(chunk -> { }, error::set);
+        long deadline = System.currentTimeMillis() + 5_000;
+        // 오류 신호 뒤에 대기열 정리가 이어지므로 둘 다 끝날 때까지 대기
+        while ((error.get() == null || gateway.queueDepth() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(error.get()).isInstanceOf(LlmRejectedException.class);
+        assertThat(gateway.queueDepth()).isZero();
+
+        // 시간 초과된 요청은 slot이 비어도 시작되지 않음
+        hold.tryEmitComplete();
+        assertThat(started).isEmpty();
+        assertThat(gateway.activeSlots()).isZero();
+        assertThat(gateway.call(1L, "next")).isEqualTo("next");
+    }
+
+    @Test
+    void cancellingAStreamReleasesItsSlotOrQueuePosition() {
+        LlmGateway gateway = gateway(1, 16, 16, Duration.ofSeconds(10), "");
+        Disposable holder = gateway.stream(0L, "hold").subscribe();
+        Disposable queued = gateway.stream(1L, "cancelled").subscribe();
+        gateway.stream(2L, "b1").subscribe();
+        assertThat(gateway.activeSlots()).isEqualTo(1);
+        assertThat(gateway.queueDepth()).isEqualTo(2);
+
+        // 대기 중 취소는 대기열에서만 제거
+        queued.dispose();
+        assertThat(gateway.queueDepth()).isEqualTo(1);
+        assertThat(gateway.activeSlots()).isEqualTo(1);
+
+        // 생성 중 취소는 upstream을 끊고 slot을 다음 요청에 넘김
+        holder.dispose();
+        assertThat(holdCancelled).isTrue();
+        assertThat(started).containsExactly("b1");
+        assertThat(gateway.queueDepth()).isZero();
+        assertThat(gateway.activeSlots()).isZero();
+    }
+
+    private LlmGateway gateway(int slots, int maxQueue, int maxQueuePerCategory, Duration maxWait, String weights) {
+        return new LlmGateway(chatModel, new SimpleMeterRegistry(), slots, maxQueue, maxQueuePerCategory, maxWait,
+                Duration.ofSeconds(5), weights);
+    }
+}
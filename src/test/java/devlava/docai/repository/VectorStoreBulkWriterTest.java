@@ -0,0 +1,89 @@
+package devlava.docai.repository;
+
+import devlava.docai.lexical.LexicalTerms;
+import devlava.docai.repository.VectorStoreBulkWriter.ChunkRow;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VectorStoreBulkWriterTest {
+
+    // 2000-01-01 00:00 기준 하루 + 1마이크로초
+    private static final LocalDateTime NOW = LocalDateTime.of(2000, 1, 2, 0, 0, 0, 1_000);
+    private static final long NOW_MICROS = 86_400_000_001L;
+
+    @Test
+    void encodesRowsInCopyBinaryFormat() {
+        ChunkRow row = new ChunkRow(7L, 3L, 2, "hello world", new float[]{1.0f, -2.5f}, "{\"a\":1}");
+        ChunkRow nulls = new ChunkRow(8L, null, 0, "한글", new float[]{0.5f}, null);
+
+        ByteBuffer buffer = ByteBuffer.wrap(VectorStoreBulkWriter.encodeBinaryCopy(List.of(row, nulls), NOW));
+
+        // 헤더: 시그니처 11바이트 + flags + 헤더 확장 길이
+        byte[] signature = new byte[11];
+        buffer.get(signature);
+        assertThat(signature).containsExactly('P', 'G', 'C', 'O', 'P', 'Y', '\n', 0xFF, '\r', '\n', 0);
+        assertThat(buffer.getInt()).isZero();
+        assertThat(buffer.getInt()).isZero();
+
+        assertThat(buffer.getShort()).isEqualTo((short) 9);
+        assertLong(buffer, 7L);
+        assertLong(buffer, 3L);
+        assertThat(buffer.getInt()).isEqualTo(4);
+        assertThat(buffer.getInt()).isEqualTo(2);
+        assertThat(field(buffer)).isEqualTo("hello world".getBytes(StandardCharsets.UTF_8));
+        assertThat(field(buffer)).isEqualTo(lexicalBytes("hello world"));
+        ByteBuffer vector = ByteBuffer.wrap(field(buffer));
+        assertThat(vector.remaining()).isEqualTo(12);
+        assertThat(vector.getShort()).isEqualTo((short) 2);
+        assertThat(vector.getShort()).isZero();
+        assertThat(vector.getFloat()).isEqualTo(1.0f);
+        assertThat(vector.getFloat()).isEqualTo(-2.5f);
+        // jsonb: 길이에 버전 바이트 포함
+        byte[] metadata = field(buffer);
+        assertThat(metadata[0]).isEqualTo((byte) 1);
+        assertThat(new String(metadata, 1, metadata.length - 1, StandardCharsets.UTF_8)).isEqualTo("{\"a\":1}");
+        assertLong(buffer, NOW_MICROS);
+        assertLong(buffer, NOW_MICROS);
+
+        // null 컬럼은 길이 -1만 기록
+        assertThat(buffer.getShort()).isEqualTo((short) 9);
+        assertLong(buffer, 8L);
+        assertThat(buffer.getInt()).isEqualTo(-1);
+        assertThat(buffer.getInt()).isEqualTo(4);
+        assertThat(buffer.getInt()).isZero();
+        assertThat(field(buffer)).isEqualTo("한글".getBytes(StandardCharsets.UTF_8));
+        assertThat(field(buffer)).isEqualTo(lexicalBytes("한글"));
+        assertThat(field(buffer)).hasSize(8);
+        assertThat(buffer.getInt()).isEqualTo(-1);
+        assertLong(buffer, NOW_MICROS);
+        assertLong(buffer, NOW_MICROS);
+
+        // 트레일러
+        assertThat(buffer.getShort()).isEqualTo((short) -1);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    private static void assertLong(ByteBuffer buffer, long expected) {
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(expected);
+    }
+
+    private static byte[] field(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] lexicalBytes(String content) {
+        LexicalTerms terms = LexicalTerms.of(content);
+        ByteBuffer buffer = ByteBuffer.allocate(terms.binaryLength());
+        terms.writeBinary(buffer);
+        return buffer.array();
+    }
+}
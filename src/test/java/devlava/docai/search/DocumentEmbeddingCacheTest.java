@@ -0,0 +1,181 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorStoreScanner;
+import devlava.docai.repository.VectorStoreScanner.StoredVector;
+import devlava.docai.search.DocumentEmbeddingCache.Quantization;
+import devlava.docai.service.DocumentChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class DocumentEmbeddingCacheTest {
+
+    private static final long DOCUMENT_ID = 1L;
+    private static final int DIMENSIONS = 128;
+    private static final int CHUNKS = 2000;
+    private static final int TOP_K = 10;
+    private static final int OVERSAMPLE = 8;
+
+    private final Random random = new Random(2024);
+    private final VectorStoreScanner scanner = mock(VectorStoreScanner.class);
+    private final Map<Long, float[]> embeddings = new HashMap<>();
+    private final List<StoredVector> rows = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        // 주제 20개 주변에 모인 청크 (실제 문서 임베딩처럼 군집이 있는 분포)
+        float[][] topics = new float[20][];
+        for (int t = 0; t < topics.length; t++) {
+            topics[t] = gaussian(1.0);
+        }
+        for (int i = 0; i < CHUNKS; i++) {
+            float[] noise = gaussian(0.6);
+            float[] topic = topics[i % topics.length];
+            float[] embedding = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                embedding[d] = topic[d] + noise[d];
+            }
+            long id = 100L + i;
+            embeddings.put(id, embedding);
+            rows.add(new StoredVector(id, DOCUMENT_ID, 1L, "doc.pdf", i, "chunk " + i, embedding));
+        }
+        when(scanner.countByDocumentId(anyLong())).thenReturn(CHUNKS);
+        when(scanner.findByDocumentId(DOCUMENT_ID)).thenReturn(rows);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Quantization.class, names = {"INT8", "BINARY"})
+    void quantizedSearchKeepsRecallAndReturnsExactDistances(Quantization quantization) {
+        DocumentEmbeddingCache exact = cache(Quantization.NONE);
+        DocumentEmbeddingCache quantized = cache(quantization);
+
+        int queries = 100;
+        int matched = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = embeddings.get(100L + random.nextInt(CHUNKS)).clone();
+            float[] noise = gaussian(0.3);
+            for (int d = 0; d < DIMENSIONS; d++) {
+                query[d] += noise[d];
+            }
+
+            List<SimilarChunk> expected = exact.search(query, DOCUMENT_ID, TOP_K).orElseThrow();
+            List<SimilarChunk> actual = quantized.search(query, DOCUMENT_ID, TOP_K).orElseThrow();
+            assertThat(actual).hasSize(TOP_K);
+
+            Map<Long, Double> exactDistances = new HashMap<>();
+            expected.forEach(chunk -> exactDistances.put(chunk.id(), chunk.distance()));
+            for (int i = 0; i < actual.size(); i++) {
+                SimilarChunk chunk = actual.get(i);
+                // 최종 순서는 원본 벡터 기준 (양자화 오차 없음)
+                assertThat(chunk.distance()).isCloseTo(cosineDistance(query, embeddings.get(chunk.id())), within(1e-4));
+                if (i > 0) {
+                    assertThat(chunk.distance()).isGreaterThanOrEqualTo(actual.get(i - 1).distance());
+                }
+                if (exactDistances.containsKey(chunk.id())) {
+                    matched++;
+                }
+            }
+        }
+
+        double recall = (double) matched / (queries * TOP_K);
+        assertThat(recall).isGreaterThanOrEqualTo(0.95);
+        exact.shutdown();
+        quantized.shutdown();
+    }
+
+    @Test
+    void quantizedSearchRescoresWithoutQueryingTheDatabase() {
+        DocumentEmbeddingCache quantized = cache(Quantization.BINARY);
+        float[] query = embeddings.get(150L).clone();
+        for (int i = 0; i < 5; i++) {
+            assertThat(quantized.search(query, DOCUMENT_ID, TOP_K).orElseThrow().get(0).id()).isEqualTo(150L);
+        }
+
+        // 첫 검색의 적재만 DB를 읽고 이후 재정렬은 메모리/매핑 안에서 끝남
+        verify(scanner, times(1)).countByDocumentId(DOCUMENT_ID);
+        verify(scanner, times(1)).findByDocumentId(DOCUMENT_ID);
+        verifyNoMoreInteractions(scanner);
+        quantized.shutdown();
+    }
+
+    @Test
+    void changeToAnotherDocumentDuringLoadStillCachesTheEntry() {
+        DocumentEmbeddingCache cache = cache(Quantization.NONE);
+        when(scanner.findByDocumentId(DOCUMENT_ID)).thenAnswer(invocation -> {
+            cache.onDocumentChanged(new DocumentChangedEvent(DOCUMENT_ID + 1, 1L));
+            return rows;
+        });
+        float[] query = embeddings.get(150L);
+
+        cache.search(query, DOCUMENT_ID, TOP_K);
+        cache.search(query, DOCUMENT_ID, TOP_K);
+
+        verify(scanner, times(1)).findByDocumentId(DOCUMENT_ID);
+        cache.shutdown();
+    }
+
+    @Test
+    void changeToTheSameDocumentDuringLoadDiscardsTheEntry() {
+        DocumentEmbeddingCache cache = cache(Quantization.NONE);
+        when(scanner.findByDocumentId(DOCUMENT_ID)).thenAnswer(invocation -> {
+            cache.onDocumentChanged(new DocumentChangedEvent(DOCUMENT_ID, 1L));
+            return rows;
+        });
+        float[] query = embeddings.get(150L);
+
+        cache.search(query, DOCUMENT_ID, TOP_K);
+        cache.search(query, DOCUMENT_ID, TOP_K);
+
+        verify(scanner, times(2)).findByDocumentId(DOCUMENT_ID);
+        cache.shutdown();
+    }
+
+    private DocumentEmbeddingCache cache(Quantization quantization) {
+        return new DocumentEmbeddingCache(scanner, new SimpleMeterRegistry(), 10, DataSize.ofMegabytes(64),
+                CHUNKS, quantization, OVERSAMPLE, directory.toString());
+    }
+
+    private float[] gaussian(double scale) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) (random.nextGaussian() * scale);
+        }
+        return vector;
+    }
+
+    private static double cosineDistance(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return 1.0 - dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,61 @@
+package devlava.docai.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DotProductsTest {
+
+    private final Random random = new Random(11);
+
+    @Test
+    void simdIsEnabledWhenModuleIsAdded() {
+        // test 태스크에 --add-modules jdk.incubator.vector 설정
+        assertThat(DotProducts.simdEnabled()).isTrue();
+    }
+
+    @Test
+    void simdMatchesScalarForEveryLengthAroundLaneBoundaries() {
+        // 레인 수(4/8/16)의 배수가 아닌 길이와 768차원을 모두 포함
+        int[] lengths = new int[40];
+        for (int i = 0; i < 35; i++) {
+            lengths[i] = i + 1;
+        }
+        lengths[35] = 63;
+        lengths[36] = 65;
+        lengths[37] = 767;
+        lengths[38] = 768;
+        lengths[39] = 769;
+
+        for (int length : lengths) {
+            for (int offset : new int[]{0, 1, 3, length}) {
+                float[] block = randomArray(offset + length + 5);
+                float[] query = randomArray(length);
+                float scalar = DotProducts.scalarDot(block, offset, query, length);
+                float simd = DotProducts.dot(block, offset, query, length);
+                assertThat(simd)
+                        .as("length %d, offset %d", length, offset)
+                        .isCloseTo(scalar, within(1e-4f * Math.max(1f, (float) Math.sqrt(length))));
+            }
+        }
+    }
+
+    @Test
+    void tailOnlyLengthUsesExactScalarSum() {
+        float[] block = {0f, 2f, 3f, 4f};
+        float[] query = {1f, 10f, 100f};
+        assertThat(DotProducts.dot(block, 1, query, 3)).isEqualTo(432f);
+        assertThat(DotProducts.scalarDot(block, 1, query, 3)).isEqualTo(432f);
+    }
+
+    private float[] randomArray(int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (float) (random.nextDouble() * 2 - 1);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,203 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorStoreScanner.StoredVector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 16;
+    private static final int M = 8;
+    private static final int EF_CONSTRUCTION = 64;
+    private static final int EF_SEARCH = 64;
+    private static final int K = 10;
+    // 문서 10개 x 청크 40개, 문서 i는 카테고리 i % 3 (카테고리 2는 문서 하나만 따로 둠)
+    private static final int DOCUMENTS = 10;
+    private static final int CHUNKS_PER_DOCUMENT = 40;
+    private static final long SMALL_CATEGORY = 99L;
+
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(42);
+    private final List<StoredVector> rows = new ArrayList<>();
+    private HnswIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        long id = 1;
+        for (int document = 1; document <= DOCUMENTS; document++) {
+            long category = document == DOCUMENTS ? SMALL_CATEGORY : document % 3;
+            for (int chunk = 0; chunk < CHUNKS_PER_DOCUMENT; chunk++) {
+                rows.add(new StoredVector(id++, document, category, "doc-" + document + ".pdf", chunk,
+                        "chunk " + document + "-" + chunk, randomVector()));
+            }
+        }
+        index = HnswIndex.create(directory, DIMENSIONS, M, EF_CONSTRUCTION);
+        for (StoredVector row : rows) {
+            index.add(row);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void graphSearchAgreesWithExactSearch() {
+        Set<Long> categories = Set.of(0L, 1L, 2L, SMALL_CATEGORY);
+        int matched = 0;
+        int queries = 50;
+        for (int i = 0; i < queries; i++) {
+            float[] query = randomVector();
+            List<Long> graph = ids(index.searchCategories(query, categories, K, EF_SEARCH, 0, 0.0));
+            List<Long> exact = ids(index.searchCategories(query, categories, K, EF_SEARCH, Integer.MAX_VALUE, 0.0));
+            assertThat(graph).hasSize(K);
+            matched += (int) graph.stream().filter(exact::contains).count();
+        }
+        assertThat((double) matched / (queries * K)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void exactSearchReturnsClosestChunkFirst() {
+        StoredVector target = rows.get(123);
+        List<SimilarChunk> hits = index.searchCategories(target.embedding(), Set.of(target.categoryId()), K,
+                EF_SEARCH, Integer.MAX_VALUE, 0.0);
+        assertThat(hits.get(0).id()).isEqualTo(target.id());
+        assertThat(hits.get(0).content()).isEqualTo(target.content());
+        assertThat(hits.get(0).distance()).isCloseTo(0.0, within(1e-5));
+    }
+
+    @Test
+    void categoryFilterOnlyReturnsChunksOfThoseCategories() {
+        Set<Long> allowed = documentsIn(1L);
+        for (int i = 0; i < 20; i++) {
+            List<SimilarChunk> hits = index.searchCategories(randomVector(), Set.of(1L), K, EF_SEARCH, 0, 0.0);
+            assertThat(hits).hasSize(K);
+            assertThat(hits).allSatisfy(hit -> assertThat(allowed).contains(hit.documentId()));
+        }
+    }
+
+    @Test
+    void selectiveFilterStillFillsTopK() {
+        // 전체의 10%만 통과하는 필터로 그래프 탐색을 강제해도 k개를 채우고 가장 가까운 청크가 같음
+        for (int i = 0; i < 20; i++) {
+            float[] query = randomVector();
+            List<SimilarChunk> graph = index.searchCategories(query, Set.of(SMALL_CATEGORY), K, EF_SEARCH, 0, 0.0);
+            List<SimilarChunk> exact = index.searchCategories(query, Set.of(SMALL_CATEGORY), K, EF_SEARCH,
+                    Integer.MAX_VALUE, 0.0);
+            assertThat(graph).hasSize(K);
+            assertThat(graph).allSatisfy(hit -> assertThat(hit.documentId()).isEqualTo(DOCUMENTS));
+            assertThat(ids(graph).get(0)).isEqualTo(ids(exact).get(0));
+        }
+    }
+
+    @Test
+    void documentSearchOnlyReturnsThatDocument() {
+        List<SimilarChunk> hits = index.searchDocument(randomVector(), 4L, K);
+        assertThat(hits).hasSize(K);
+        assertThat(hits).allSatisfy(hit -> {
+            assertThat(hit.documentId()).isEqualTo(4L);
+            assertThat(hit.fileName()).isEqualTo("doc-4.pdf");
+        });
+    }
+
+    @Test
+    void syncDocumentTombstonesRemovedChunksAndAddsNewOnes() throws IOException {
+        long documentId = 2L;
+        List<StoredVector> current = rows.stream().filter(row -> row.documentId() == documentId).toList();
+        List<StoredVector> keptRows = current.subList(0, 10);
+        StoredVector removedRow = current.get(20);
+        StoredVector newRow = new StoredVector(10_000L, documentId, current.get(0).categoryId(), "doc-2-v2.pdf", 10,
+                "new chunk", randomVector());
+        List<StoredVector> updated = new ArrayList<>(keptRows);
+        updated.add(newRow);
+
+        HnswIndex.SyncResult result = index.syncDocument(documentId, updated);
+
+        assertThat(result).isEqualTo(new HnswIndex.SyncResult(1, 10, CHUNKS_PER_DOCUMENT - 10));
+        assertThat(index.size()).isEqualTo(rows.size() - (CHUNKS_PER_DOCUMENT - 10) + 1);
+
+        Set<Long> categories = Set.of(0L, 1L, 2L, SMALL_CATEGORY);
+        List<Long> graph = ids(index.searchCategories(removedRow.embedding(), categories, K, EF_SEARCH, 0, 0.0));
+        List<Long> exact = ids(index.searchCategories(removedRow.embedding(), categories, K, EF_SEARCH,
+                Integer.MAX_VALUE, 0.0));
+        assertThat(graph).doesNotContain(removedRow.id());
+        assertThat(exact).doesNotContain(removedRow.id());
+        assertThat(ids(index.searchDocument(removedRow.embedding(), documentId, 100)))
+                .hasSize(11)
+                .doesNotContain(removedRow.id())
+                .contains(newRow.id());
+
+        List<SimilarChunk> newHits = index.searchDocument(newRow.embedding(), documentId, 1);
+        assertThat(newHits.get(0).id()).isEqualTo(newRow.id());
+        assertThat(newHits.get(0).fileName()).isEqualTo("doc-2-v2.pdf");
+    }
+
+    @Test
+    void syncDocumentWithNoRowsRemovesTheDocument() throws IOException {
+        index.syncDocument(3L, List.of());
+
+        assertThat(index.searchDocument(randomVector(), 3L, K)).isEmpty();
+        assertThat(index.fingerprints()).doesNotContainKey(3L);
+        assertThat(index.deletedRatio()).isEqualTo((double) CHUNKS_PER_DOCUMENT / rows.size());
+    }
+
+    @Test
+    void reopenedSnapshotReturnsSameHits() throws IOException {
+        index.syncDocument(5L, rows.stream().filter(row -> row.documentId() == 5L).limit(5).toList());
+        index.save();
+
+        List<float[]> queries = new ArrayList<>();
+        List<List<SimilarChunk>> before = new ArrayList<>();
+        Set<Long> categories = Set.of(0L, 1L, 2L);
+        for (int i = 0; i < 10; i++) {
+            float[] query = randomVector();
+            queries.add(query);
+            before.add(index.searchCategories(query, categories, K, EF_SEARCH, 0, 0.0));
+        }
+        var fingerprints = index.fingerprints();
+        index.close();
+
+        index = HnswIndex.open(directory, M, EF_CONSTRUCTION);
+        assertThat(index.size()).isEqualTo(rows.size() - (CHUNKS_PER_DOCUMENT - 5));
+        assertThat(index.fingerprints()).isEqualTo(fingerprints);
+        for (int i = 0; i < queries.size(); i++) {
+            assertThat(index.searchCategories(queries.get(i), categories, K, EF_SEARCH, 0, 0.0))
+                    .isEqualTo(before.get(i));
+        }
+    }
+
+    private Set<Long> documentsIn(long category) {
+        Set<Long> documents = new HashSet<>();
+        rows.stream().filter(row -> row.categoryId() == category).forEach(row -> documents.add(row.documentId()));
+        return documents;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<Long> ids(List<SimilarChunk> hits) {
+        return hits.stream().map(SimilarChunk::id).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.repository.VectorSearchTuning;
+import devlava.docai.repository.VectorStoreScanner;
+import devlava.docai.repository.VectorStoreScanner.DocumentFingerprint;
+import devlava.docai.repository.VectorStoreScanner.StoredVector;
+import devlava.docai.vector.VectorMetric;
+import devlava.docai.vector.VectorQuantization;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HnswSearchBackendTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(7);
+    private final PgVectorSearchBackend fallback = mock(PgVectorSearchBackend.class);
+
+    @Test
+    void buildsFromDatabaseAndReloadsSnapshotAfterRestart() throws Exception {
+        List<StoredVector> rows = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            rows.add(new StoredVector(i + 1, i % 3 + 1, 1L, "doc-" + (i % 3 + 1) + ".pdf", i / 3,
+                    "chunk " + i, randomVector()));
+        }
+        VectorStoreScanner scanner = scannerOf(rows);
+        float[] query = rows.get(17).embedding();
+
+        HnswSearchBackend first = backend(scanner);
+        first.start();
+        List<SimilarChunk> before = awaitCategoryHits(first, query);
+        assertThat(before.get(0).id()).isEqualTo(18L);
+        first.stop();
+
+        VectorStoreScanner restarted = scannerOf(rows);
+        HnswSearchBackend second = backend(restarted);
+        second.start();
+        assertThat(awaitCategoryHits(second, query)).isEqualTo(before);
+        assertThat(second.searchByDocument(query, 3L, 5))
+                .isNotEmpty()
+                .allSatisfy(hit -> assertThat(hit.documentId()).isEqualTo(3L));
+        // 스냅샷과 DB 요약이 같으면 다시 빌드하지 않음
+        verify(restarted, never()).findPage(anyLong(), anyInt());
+        verify(restarted, never()).findByDocumentId(anyLong());
+        second.stop();
+    }
+
+    @Test
+    void documentLimitRunsTwoStageSearchThroughPgVector() throws Exception {
+        List<StoredVector> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            rows.add(new StoredVector(i + 1, i % 3 + 1, 1L, "doc-" + (i % 3 + 1) + ".pdf", i / 3,
+                    "chunk " + i, randomVector()));
+        }
+        HnswSearchBackend backend = backend(scannerOf(rows));
+        backend.start();
+        float[] query = rows.get(4).embedding();
+        awaitCategoryHits(backend, query);
+
+        VectorSearchTuning tuning = new VectorSearchTuning(null, null, 2);
+        List<SimilarChunk> twoStage = List.of(new SimilarChunk(5L, 2L, "doc-2.pdf", 1, "chunk 4", 0.0));
+        when(fallback.searchByCategories(query, Set.of(1L), 5, tuning)).thenReturn(twoStage);
+
+        // 인덱스가 준비되어 있어도 문서 수 제한은 pgvector centroid 경로로 위임
+        assertThat(backend.searchByCategories(query, Set.of(1L), 5, tuning)).isEqualTo(twoStage);
+        verify(fallback).searchByCategories(query, Set.of(1L), 5, tuning);
+        backend.stop();
+    }
+
+    private HnswSearchBackend backend(VectorStoreScanner scanner) {
+        return new HnswSearchBackend(scanner, fallback, directory.toString(), DIMENSIONS, 8, 64, 64, 0, 0.0,
+                Duration.ofMinutes(5), 0.3, 0, VectorMetric.COSINE, VectorQuantization.NONE);
+    }
+
+    // 인덱스가 준비되기 전에는 pgvector(빈 결과)로 검색되므로 결과가 나올 때까지 대기
+    private List<SimilarChunk> awaitCategoryHits(HnswSearchBackend backend, float[] query) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            List<SimilarChunk> hits = backend.searchByCategories(query, Set.of(1L), 5, VectorSearchTuning.DEFAULT);
+            if (!hits.isEmpty()) {
+                return hits;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("HNSW index was not ready in time");
+    }
+
+    private VectorStoreScanner scannerOf(List<StoredVector> rows) {
+        VectorStoreScanner scanner = mock(VectorStoreScanner.class);
+        when(scanner.findPage(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return rows.stream().filter(row -> row.id() > afterId).limit(limit).toList();
+        });
+        List<DocumentFingerprint> fingerprints = new ArrayList<>();
+        for (long documentId = 1; documentId <= 3; documentId++) {
+            long id = documentId;
+            List<StoredVector> documentRows = rows.stream().filter(row -> row.documentId() == id).toList();
+            fingerprints.add(new DocumentFingerprint(id, documentRows.get(0).fileName(), documentRows.size(),
+                    documentRows.stream().mapToLong(StoredVector::id).sum(),
+                    documentRows.stream().mapToLong(StoredVector::chunkIndex).sum()));
+            when(scanner.findByDocumentId(eq(id))).thenReturn(documentRows);
+        }
+        when(scanner.findFingerprints()).thenReturn(fingerprints);
+        when(fallback.searchByCategories(any(), any(), anyInt(), any())).thenReturn(List.of());
+        return scanner;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
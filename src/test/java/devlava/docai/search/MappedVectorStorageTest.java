@@ -0,0 +1,49 @@
+package devlava.docai.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedVectorStorageTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesVectorsAndComputesDotProducts() throws IOException {
+        try (MappedVectorStorage storage = new MappedVectorStorage(directory.resolve("vectors.f32"), 3, true)) {
+            storage.set(0, new float[]{1f, 2f, 3f});
+            storage.set(1, new float[]{-1f, 0.5f, 2f});
+
+            assertThat(storage.dot(0, new float[]{1f, 1f, 1f})).isEqualTo(6f);
+            assertThat(storage.dot(0, 1)).isEqualTo(6f);
+            assertThat(storage.dot(1, 1)).isEqualTo(5.25f);
+        }
+    }
+
+    @Test
+    void reopeningKeepsStoredVectorsUnlessTruncated() throws IOException {
+        Path file = directory.resolve("vectors.f32");
+        try (MappedVectorStorage storage = new MappedVectorStorage(file, 4, true)) {
+            for (int slot = 0; slot < 100; slot++) {
+                storage.set(slot, new float[]{slot, 1f, 0f, 0f});
+            }
+            storage.force();
+        }
+
+        try (MappedVectorStorage storage = new MappedVectorStorage(file, 4, false)) {
+            storage.ensureSlots(100);
+            assertThat(storage.dot(57, new float[]{1f, 0f, 0f, 0f})).isEqualTo(57f);
+            assertThat(storage.dot(99, new float[]{0f, 1f, 0f, 0f})).isEqualTo(1f);
+        }
+
+        try (MappedVectorStorage storage = new MappedVectorStorage(file, 4, true)) {
+            storage.ensureSlots(100);
+            assertThat(storage.dot(57, new float[]{1f, 0f, 0f, 0f})).isEqualTo(0f);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package devlava.docai.search;
+
+import devlava.docai.repository.SimilarChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReciprocalRankFusionTest {
+
+    @Test
+    void chunksFoundByBothSearchesRankFirst() {
+        List<SimilarChunk> vector = List.of(chunk(1), chunk(2), chunk(3));
+        List<SimilarChunk> lexical = List.of(chunk(3), chunk(4), chunk(1));
+
+        // 1: 1/61 + 1/63, 3: 1/63 + 1/61, 2: 1/62, 4: 1/62 (같은 점수는 먼저 나온 순서)
+        assertThat(ids(ReciprocalRankFusion.fuse(List.of(vector, lexical), 60, 10)))
+                .containsExactly(1L, 3L, 2L, 4L);
+    }
+
+    @Test
+    void chunkRankedByBothBeatsTopOfOneList() {
+        List<SimilarChunk> vector = List.of(chunk(1), chunk(2), chunk(3), chunk(4));
+        List<SimilarChunk> lexical = List.of(chunk(5), chunk(4));
+
+        // 4: 1/64 + 1/62 > 1: 1/61 = 5: 1/61 > 2: 1/62
+        assertThat(ids(ReciprocalRankFusion.fuse(List.of(vector, lexical), 60, 4)))
+                .containsExactly(4L, 1L, 5L, 2L);
+    }
+
+    @Test
+    void keepsTheFirstSeenChunkAndHonoursLimit() {
+        SimilarChunk fromVector = new SimilarChunk(7L, 1L, "a.pdf", 0, "vector copy", 0.1);
+        SimilarChunk fromLexical = new SimilarChunk(7L, 1L, "a.pdf", 0, "lexical copy", 0.9);
+
+        List<SimilarChunk> fused = ReciprocalRankFusion.fuse(
+                List.of(List.of(fromVector, chunk(8)), List.of(fromLexical)), 60, 1);
+
+        assertThat(fused).containsExactly(fromVector);
+        assertThat(ReciprocalRankFusion.fuse(List.of(List.of(), List.of()), 60, 5)).isEmpty();
+    }
+
+    private static SimilarChunk chunk(long id) {
+        return new SimilarChunk(id, 1L, "doc.pdf", (int) id, "chunk " + id, 0.5);
+    }
+
+    private static List<Long> ids(List<SimilarChunk> chunks) {
+        return chunks.stream().map(SimilarChunk::id).toList();
+    }
+}
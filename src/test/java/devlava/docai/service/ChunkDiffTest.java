@@ -0,0 +1,75 @@
+package devlava.docai.service;
+
+import devlava.docai.repository.VectorStoreBulkWriter.StoredChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class ChunkDiffTest {
+
+    @Test
+    void unchangedChunksAreRenumberedAfterAnInsertInTheMiddle() {
+        ChunkDiff diff = new ChunkDiff(List.of(stored(1, 0, "alpha"), stored(2, 1, "beta"), stored(3, 2, "gamma")));
+
+        assertThat(diff.keep("alpha", 0)).isTrue();
+        assertThat(diff.keep("inserted", 1)).isFalse();
+        assertThat(diff.keep("beta", 2)).isTrue();
+        assertThat(diff.keep("gamma", 3)).isTrue();
+
+        assertThat(diff.keptIndexes()).containsExactly(entry(1L, 0), entry(2L, 2), entry(3L, 3));
+        assertThat(diff.removedIds()).isEmpty();
+        assertThat(diff.storedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void duplicateTextIsMatchedInStoredOrderOncePerChunk() {
+        ChunkDiff diff = new ChunkDiff(List.of(stored(1, 0, "same"), stored(2, 1, "other"), stored(3, 2, "same")));
+
+        // 같은 내용은 앞 순번의 기존 청크부터 하나씩만 대응
+        assertThat(diff.keep("same", 0)).isTrue();
+        assertThat(diff.keep("same", 1)).isTrue();
+        assertThat(diff.keep("same", 2)).isFalse();
+
+        assertThat(diff.keptIndexes()).containsExactly(entry(1L, 0), entry(3L, 1));
+        assertThat(diff.removedIds()).containsExactly(2L);
+    }
+
+    @Test
+    void storedTailChunksMissingFromTheNewDocumentAreRemoved() {
+        ChunkDiff diff = new ChunkDiff(List.of(stored(1, 0, "alpha"), stored(2, 1, "beta"),
+                stored(3, 2, "gamma"), stored(4, 3, "delta")));
+
+        assertThat(diff.keep("alpha", 0)).isTrue();
+        assertThat(diff.keep("beta", 1)).isTrue();
+
+        assertThat(diff.keptIndexes()).containsExactly(entry(1L, 0), entry(2L, 1));
+        assertThat(diff.removedIds()).containsExactlyInAnyOrder(3L, 4L);
+        assertThat(diff.storedCount()).isEqualTo(4);
+    }
+
+    @Test
+    void emptyStoredSetKeepsNothing() {
+        ChunkDiff diff = new ChunkDiff(List.of());
+
+        assertThat(diff.keep("alpha", 0)).isFalse();
+        assertThat(diff.keep("beta", 1)).isFalse();
+
+        assertThat(diff.keptIndexes()).isEmpty();
+        assertThat(diff.removedIds()).isEmpty();
+        assertThat(diff.storedCount()).isZero();
+    }
+
+    @Test
+    void contentHashIsUtf8Sha256Hex() {
+        // DB에서 encode(sha256(convert_to(content, 'UTF8')), 'hex')로 계산하는 값과 같아야 함
+        assertThat(ChunkDiff.contentHash("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    private static StoredChunk stored(long id, int chunkIndex, String content) {
+        return new StoredChunk(id, chunkIndex, ChunkDiff.contentHash(content));
+    }
+}
@@ -0,0 +1,109 @@
+package devlava.docai.service;
+
+import devlava.docai.repository.SimilarChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextPackerTest {
+
+    private final ContextPacker packer = new ContextPacker(3000, 300);
+
+    @Test
+    void adjacentChunksOfADocumentAreMergedInIndexOrder() {
+        String context = packer.pack(List.of(
+                chunk(2, 1, 1, "Beta paragraph text.", 0.9),
+                chunk(9, 2, 5, "Gamma paragraph text.", 0.8),
+                chunk(1, 1, 0, "Alpha paragraph text.", 0.7),
+                chunk(4, 1, 3, "Delta paragraph text.", 0.6)));
+
+        // 0-1은 하나의 구절(점수 0.9), 떨어진 3은 별도 구절
+        assertThat(context).isEqualTo("Alpha paragraph text.\nBeta paragraph text."
+                + "\n\nGamma paragraph text."
+                + "\n\nDelta paragraph text.");
+    }
+
+    @Test
+    void overlapBetweenAdjacentChunksIsKeptOnce() {
+        assertThat(packer.pack(List.of(
+                chunk(1, 1, 0, "The quick brown fox jumps over", 0.9),
+                chunk(2, 1, 1, "jumps over the lazy dog", 0.8))))
+                .isEqualTo("The quick brown fox jumps over the lazy dog");
+
+        // 너무 짧은 일치는 겹침으로 보지 않음
+        assertThat(packer.pack(List.of(
+                chunk(1, 1, 0, "Ends with the dog", 0.9),
+                chunk(2, 1, 1, "dog runs away", 0.8))))
+                .isEqualTo("Ends with the dog\ndog runs away");
+
+        // max-overlap-chars보다 긴 겹침은 찾지 않음
+        assertThat(new ContextPacker(3000, 5).pack(List.of(
+                chunk(1, 1, 0, "The quick brown fox jumps over", 0.9),
+                chunk(2, 1, 1, "jumps over the lazy dog", 0.8))))
+                .isEqualTo("The quick brown fox jumps over\njumps over the lazy dog");
+    }
+
+    @Test
+    void passageAlreadyInTheContextIsDropped() {
+        assertThat(packer.pack(List.of(
+                chunk(1, 1, 0, "Refunds are accepted within 30 days with a receipt.", 0.9),
+                chunk(7, 2, 4, "within 30 days with a receipt.", 0.6))))
+                .isEqualTo("Refunds are accepted within 30 days with a receipt.");
+    }
+
+    @Test
+    void passageOverTheRemainingBudgetIsSkippedForSmallerOnes() {
+        String first = "Short answer one.";
+        String second = "Short answer two.";
+        int budget = tokens(first) + tokens("\n\n") + tokens(second);
+        ContextPacker budgeted = new ContextPacker(budget, 300);
+
+        assertThat(budgeted.pack(List.of(
+                chunk(1, 1, 0, first, 0.9),
+                chunk(2, 2, 0, "lorem ipsum dolor sit amet ".repeat(50), 0.8),
+                chunk(3, 3, 0, second, 0.7))))
+                .isEqualTo(first + "\n\n" + second);
+    }
+
+    @Test
+    void firstPassageOverTheBudgetIsTruncated() {
+        String text = "lorem ipsum dolor sit amet ".repeat(50);
+        String context = new ContextPacker(10, 300).pack(List.of(
+                chunk(1, 1, 0, text, 0.9),
+                chunk(2, 2, 0, "Short answer.", 0.5)));
+
+        assertThat(context).isNotEmpty();
+        assertThat(text).startsWith(context);
+        assertThat(tokens(context)).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void chunksSharingAnIndexWithDifferentTextAreBothKept() {
+        // 재색인 전후 행이 함께 검색되어 같은 chunk_index에 다른 본문이 있는 경우
+        assertThat(packer.pack(List.of(
+                chunk(1, 1, 0, "Old wording of the first section.", 0.9),
+                chunk(2, 1, 0, "New wording of the first section.", 0.8),
+                chunk(3, 1, 1, "Second section body.", 0.7))))
+                .isEqualTo("Old wording of the first section."
+                        + "\n\nNew wording of the first section.\nSecond section body.");
+    }
+
+    @Test
+    void sameChunkRetrievedTwiceIsPackedOnceWithItsBestScore() {
+        assertThat(packer.pack(List.of(
+                chunk(9, 2, 0, "Other document text.", 0.5),
+                chunk(1, 1, 0, "Alpha paragraph text.", 0.3),
+                chunk(1, 1, 0, "Alpha paragraph text.", 0.9))))
+                .isEqualTo("Alpha paragraph text.\n\nOther document text.");
+    }
+
+    private static SimilarChunk chunk(long id, long documentId, int chunkIndex, String content, double similarity) {
+        return new SimilarChunk(id, documentId, "doc-" + documentId + ".pdf", chunkIndex, content, 1.0 - similarity);
+    }
+
+    private static int tokens(String text) {
+        return StreamingTokenTextSplitter.ENCODING.countTokens(text);
+    }
+}
@@ -0,0 +1,136 @@
+package devlava.docai.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmbeddingBatcherTest {
+
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+    private EmbeddingBatcher batcher;
+
+    @AfterEach
+    void shutdown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void failedBatchIsSplitAndResultsKeepInputOrder() {
+        // t5가 들어 있는 배치는 항상 실패 - 반씩 나눠 재시도하다 단건에서 해당 청크만 null
+        failOn("t5");
+        batcher = new EmbeddingBatcher(embeddingModel, 4, 2);
+        List<String> texts = texts(10);
+
+        List<Integer> offsets = new ArrayList<>();
+        float[][] results = new float[texts.size()][];
+        Thread caller = Thread.currentThread();
+        batcher.embedAll(texts, (offset, embeddings) -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            offsets.add(offset);
+            System.arraycopy(embeddings, 0, results, offset, embeddings.length);
+        });
+
+        assertThat(offsets).containsExactly(0, 4, 8);
+        for (int i = 0; i < texts.size(); i++) {
+            if (i == 5) {
+                assertThat(results[i]).isNull();
+            } else {
+                assertThat(results[i]).as("chunk %d", i).containsExactly(i);
+            }
+        }
+        // 4 → 2 + 2 → 1 + 1 순서로 나뉨
+        verify(embeddingModel).embed(List.of("t4", "t5", "t6", "t7"));
+        verify(embeddingModel).embed(List.of("t4", "t5"));
+        verify(embeddingModel).embed(List.of("t5"));
+        verify(embeddingModel).embed(List.of("t6", "t7"));
+    }
+
+    @Test
+    void failingBatchOfOneIsNotRetried() {
+        failOn("t1");
+        batcher = new EmbeddingBatcher(embeddingModel, 1, 2);
+
+        float[][] results = new float[3][];
+        batcher.embedAll(texts(3), (offset, embeddings) -> results[offset] = embeddings[0]);
+
+        assertThat(results[0]).containsExactly(0);
+        assertThat(results[1]).isNull();
+        assertThat(results[2]).containsExactly(2);
+        verify(embeddingModel, times(1)).embed(eq(List.of("t1")));
+    }
+
+    @Test
+    void wrongNumberOfEmbeddingsIsTreatedAsFailure() {
+        when(embeddingModel.embed(anyList())).thenAnswer(invocation -> {
+            List<String> batch = invocation.getArgument(0);
+            return batch.size() > 1 ? embeddingsOf(batch.subList(0, 1)) : embeddingsOf(batch);
+        });
+        batcher = new EmbeddingBatcher(embeddingModel, 2, 1);
+
+        float[][] results = new float[2][];
+        batcher.embedAll(texts(2), (offset, embeddings) ->
+                System.arraycopy(embeddings, 0, results, offset, embeddings.length));
+
+        assertThat(results[0]).containsExactly(0);
+        assertThat(results[1]).containsExactly(1);
+    }
+
+    @Test
+    void concurrentBatchesAreLimitedToThePoolSize() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(embeddingModel.embed(anyList())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(30);
+                return embeddingsOf(invocation.getArgument(0));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        batcher = new EmbeddingBatcher(embeddingModel, 1, 2);
+
+        AtomicInteger handled = new AtomicInteger();
+        batcher.embedAll(texts(8), (offset, embeddings) -> handled.incrementAndGet());
+
+        assertThat(handled).hasValue(8);
+        assertThat(maxInFlight).hasValue(2);
+    }
+
+    private void failOn(String poison) {
+        when(embeddingModel.embed(anyList())).thenAnswer(invocation -> {
+            List<String> batch = invocation.getArgument(0);
+            if (batch.contains(poison)) {
+                throw new IllegalStateException("embedding server error");
+            }
+            return embeddingsOf(batch);
+        });
+    }
+
+    // "tN"의 임베딩은 {N}
+    private static List<float[]> embeddingsOf(List<String> batch) {
+        return batch.stream()
+                .map(text -> new float[]{Integer.parseInt(text.substring(1))})
+                .toList();
+    }
+
+    private static List<String> texts(int count) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            texts.add("t" + i);
+        }
+        return texts;
+    }
+}
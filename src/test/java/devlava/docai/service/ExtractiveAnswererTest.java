@@ -0,0 +1,68 @@
+package devlava.docai.service;
+
+import devlava.docai.repository.SimilarChunk;
+import devlava.docai.service.ExtractiveAnswerer.Extract;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ExtractiveAnswererTest {
+
+    @Test
+    void splitsOnSentenceEndingsAndLineBreaks() {
+        // 질문과 겹치는 토큰이 없고 유사도 가중치가 0이면 모두 동점 - 본문 순서 유지
+        ExtractiveAnswerer answerer = new ExtractiveAnswerer(10, 5, 0.0);
+        SimilarChunk chunk = chunk(1L, 0, "Refund policy applies. Returns within thirty days!  Keep the receipt?\n"
+                + "Shipping is free。 배송은 이틀 걸립니다\n\n  Ok. Contact support", 0.2);
+
+        List<String> sentences = answerer.extract("xyz", List.of(chunk)).stream()
+                .map(Extract::sentence)
+                .toList();
+
+        // "Ok."는 최소 길이 미만이라 제외
+        assertThat(sentences).containsExactly("Refund policy applies.", "Returns within thirty days!",
+                "Keep the receipt?", "Shipping is free。", "배송은 이틀 걸립니다", "Contact support");
+    }
+
+    @Test
+    void sentenceSharedByOverlappingChunksIsUsedOnce() {
+        ExtractiveAnswerer answerer = new ExtractiveAnswerer(10, 5, 0.0);
+        // 청크 겹침 구간의 문장은 두 청크에 모두 들어 있음
+        SimilarChunk first = chunk(1L, 0, "Alpha sentence one. Shared sentence here.", 0.1);
+        SimilarChunk second = chunk(2L, 1, "  Shared sentence here.\nBeta sentence two.", 0.3);
+
+        List<Extract> extracts = answerer.extract("xyz", List.of(first, second));
+
+        assertThat(extracts).extracting(Extract::sentence)
+                .containsExactly("Alpha sentence one.", "Shared sentence here.", "Beta sentence two.");
+        assertThat(extracts.get(1).chunk()).isSameAs(first);
+    }
+
+    @Test
+    void ordersByScoreAndKeepsRetrievalOrderOnTies() {
+        ExtractiveAnswerer answerer = new ExtractiveAnswerer(4, 5, 0.3);
+        // 질문 토큰: refund, window, days
+        SimilarChunk far = chunk(1L, 0, "Shipping is free for members. Refund window is thirty days.", 0.5);
+        SimilarChunk near = chunk(2L, 3, "Refund requests need a receipt. Contact support for help.", 0.1);
+        SimilarChunk nearToo = chunk(3L, 7, "Opening hours are nine to six.", 0.1);
+
+        List<Extract> extracts = answerer.extract("refund window days", List.of(far, near, nearToo));
+
+        // 겹침 3/3 → 0.7 + 0.5 * 0.3, 겹침 1/3 → 0.7 / 3 + 0.9 * 0.3, 겹침 없음 → 0.9 * 0.3 (동점은 검색 순서)
+        assertThat(extracts).extracting(Extract::sentence).containsExactly("Refund window is thirty days.",
+                "Refund requests need a receipt.", "Contact support for help.", "Opening hours are nine to six.");
+        assertThat(extracts.get(0).score()).isCloseTo(0.85, within(1e-9));
+        assertThat(extracts.get(1).score()).isCloseTo(0.7 / 3 + 0.27, within(1e-9));
+        assertThat(extracts.get(2).score()).isCloseTo(0.27, within(1e-9));
+        assertThat(extracts.get(3).score()).isEqualTo(extracts.get(2).score());
+        // 최대 문장 수를 넘는 "Shipping is free for members." (0.15)는 제외
+        assertThat(extracts).extracting(Extract::chunk).containsExactly(far, near, near, nearToo);
+    }
+
+    private static SimilarChunk chunk(Long id, int chunkIndex, String content, double distance) {
+        return new SimilarChunk(id, 10L, "guide.pdf", chunkIndex, content, distance);
+    }
+}
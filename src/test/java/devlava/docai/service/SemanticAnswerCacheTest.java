@@ -0,0 +1,110 @@
+package devlava.docai.service;
+
+import devlava.docai.dto.SearchResponse;
+import devlava.docai.repository.CategoryRepository;
+import devlava.docai.service.SemanticAnswerCache.Lookup;
+import devlava.docai.service.SemanticAnswerCache.Scope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SemanticAnswerCacheTest {
+
+    private static final float[] QUESTION = {1.0f, 0.0f, 0.0f};
+    // QUESTION과의 코사인 거리 약 0.005
+    private static final float[] PARAPHRASE = {1.0f, 0.1f, 0.0f};
+    // QUESTION과의 코사인 거리 약 0.24
+    private static final float[] OTHER_QUESTION = {1.0f, 0.8f, 0.3f};
+
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final SemanticAnswerCache cache = new SemanticAnswerCache(categoryRepository, new SimpleMeterRegistry(),
+            true, 0.05, 200, Duration.ofHours(1));
+
+    @Test
+    void similarQuestionWithinMaxDistanceHits() {
+        Scope scope = Scope.category(1L, CategorySearchMode.EXACT, RetrievalMode.VECTOR, 5);
+        SearchResponse answer = answer("30일 이내 환불 가능");
+        cache.put(scope, cache.lookup(scope, QUESTION), QUESTION, answer);
+
+        assertThat(cache.lookup(scope, PARAPHRASE).response()).isSameAs(answer);
+        assertThat(cache.lookup(scope, OTHER_QUESTION).isHit()).isFalse();
+        // 같은 카테고리라도 topK나 검색 방식이 다르면 다른 범위
+        assertThat(cache.lookup(Scope.category(1L, CategorySearchMode.EXACT, RetrievalMode.VECTOR, 10), QUESTION)
+                .isHit()).isFalse();
+        assertThat(cache.lookup(Scope.category(1L, CategorySearchMode.EXACT, RetrievalMode.HYBRID, 5), QUESTION)
+                .isHit()).isFalse();
+    }
+
+    @Test
+    void changeInChildCategoryInvalidatesSubtreeScopeButNotExactParentScope() {
+        // 2는 1의 하위 카테고리
+        when(categoryRepository.findAncestorIds(2L)).thenReturn(List.of(2L, 1L));
+        Scope exactParent = Scope.category(1L, CategorySearchMode.EXACT, RetrievalMode.VECTOR, 5);
+        Scope subtreeParent = Scope.category(1L, CategorySearchMode.SUBTREE, RetrievalMode.VECTOR, 5);
+        Scope exactChild = Scope.category(2L, CategorySearchMode.EXACT, RetrievalMode.VECTOR, 5);
+        Scope subtreeSibling = Scope.category(3L, CategorySearchMode.SUBTREE, RetrievalMode.VECTOR, 5);
+        for (Scope scope : List.of(exactParent, subtreeParent, exactChild, subtreeSibling)) {
+            cache.put(scope, cache.lookup(scope, QUESTION), QUESTION, answer("answer"));
+        }
+
+        cache.onDocumentChanged(new DocumentChangedEvent(10L, 2L));
+
+        assertThat(cache.lookup(exactParent, QUESTION).isHit()).isTrue();
+        assertThat(cache.lookup(subtreeParent, QUESTION).isHit()).isFalse();
+        assertThat(cache.lookup(exactChild, QUESTION).isHit()).isFalse();
+        assertThat(cache.lookup(subtreeSibling, QUESTION).isHit()).isTrue();
+    }
+
+    @Test
+    void documentScopeIsInvalidatedOnlyByItsOwnDocument() {
+        Scope scope = Scope.document(10L, RetrievalMode.VECTOR, 5);
+        cache.put(scope, cache.lookup(scope, QUESTION), QUESTION, answer("answer"));
+
+        cache.onDocumentChanged(new DocumentChangedEvent(11L, 1L));
+        assertThat(cache.lookup(scope, QUESTION).isHit()).isTrue();
+
+        cache.onDocumentChanged(new DocumentChangedEvent(10L, 1L));
+        assertThat(cache.lookup(scope, QUESTION).isHit()).isFalse();
+    }
+
+    @Test
+    void putAfterAnInvalidationIsDropped() {
+        Scope scope = Scope.category(1L, CategorySearchMode.EXACT, RetrievalMode.VECTOR, 5);
+        Lookup lookup = cache.lookup(scope, QUESTION);
+
+        // 답변 생성 중 다른 카테고리 문서가 바뀌어도 세대가 달라지므로 저장하지 않음
+        cache.onDocumentChanged(new DocumentChangedEvent(20L, 9L));
+        cache.put(scope, lookup, QUESTION, answer("stale"));
+
+        assertThat(cache.lookup(scope, QUESTION).isHit()).isFalse();
+        assertThat(cache.size()).isZero();
+
+        Lookup fresh = cache.lookup(scope, QUESTION);
+        cache.put(scope, fresh, QUESTION, answer("fresh"));
+        assertThat(cache.lookup(scope, QUESTION).response().getAnswer()).isEqualTo("fresh");
+    }
+
+    @Test
+    void unknownCategoryPathInvalidatesEverySubtreeScope() {
+        when(categoryRepository.findAncestorIds(2L)).thenThrow(new IllegalStateException("db down"));
+        Scope subtree = Scope.category(5L, CategorySearchMode.SUBTREE, RetrievalMode.VECTOR, 5);
+        Scope exact = Scope.category(5L, CategorySearchMode.EXACT, RetrievalMode.VECTOR, 5);
+        cache.put(subtree, cache.lookup(subtree, QUESTION), QUESTION, answer("answer"));
+        cache.put(exact, cache.lookup(exact, QUESTION), QUESTION, answer("answer"));
+
+        cache.onDocumentChanged(new DocumentChangedEvent(10L, 2L));
+
+        assertThat(cache.lookup(subtree, QUESTION).isHit()).isFalse();
+        assertThat(cache.lookup(exact, QUESTION).isHit()).isTrue();
+    }
+
+    private static SearchResponse answer(String text) {
+        return SearchResponse.builder().answer(text).build();
+    }
+}
@@ -0,0 +1,101 @@
+package devlava.docai.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingTokenTextSplitterTest {
+
+    private static final String[] ENGLISH = {
+            "The ingestion pipeline streams text from the parser", "chunks are embedded in small groups",
+            "each batch is written with COPY", "search reads the latest committed rows",
+            "a retry starts from the embedding cache", "version 2.3.14 fixed the timeout"
+    };
+    private static final String[] KOREAN = {
+            "문서를 업로드하면 벡터화 작업이 대기열에 등록됩니다", "검색 결과는 유사도 순으로 정렬됩니다",
+            "재색인 중에는 이전 청크로 검색합니다", "답변 생성 요청이 많으면 잠시 후 다시 시도해주세요",
+            "환불은 영수증 지참 시 30일 이내에 가능합니다"
+    };
+    private static final String[] ENDINGS = {". ", "? ", "! ", ".\n", "\n\n", ", ", " - "};
+
+    private final Random random = new Random(42);
+
+    @Test
+    void matchesTokenTextSplitterForWholeAndSegmentedInput() {
+        String text = sampleText(400);
+
+        List<String> expected = tokenTextSplitter(text);
+        assertThat(expected).hasSizeGreaterThan(3);
+
+        assertThat(streamed(List.of(text))).isEqualTo(expected);
+        for (int run = 0; run < 20; run++) {
+            assertThat(streamed(randomSegments(text))).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void matchesTokenTextSplitterForKoreanOnlyText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            text.append(KOREAN[random.nextInt(KOREAN.length)]).append(ENDINGS[random.nextInt(ENDINGS.length)]);
+        }
+
+        List<String> expected = tokenTextSplitter(text.toString());
+        assertThat(expected).hasSizeGreaterThan(1);
+        assertThat(streamed(randomSegments(text.toString()))).isEqualTo(expected);
+    }
+
+    @Test
+    void textShorterThanTheMinimumChunkSize() {
+        // 한 청크도 채우지 못하는 텍스트는 남은 토큰으로 한 청크, 최소 길이 이하면 버림
+        for (String text : List.of("짧은 문장입니다.", "Short note\nwith two lines", "abc", " \n ")) {
+            assertThat(streamed(randomSegments(text))).isEqualTo(tokenTextSplitter(text));
+        }
+        assertThat(streamed(List.of("짧은 문장입니다."))).containsExactly("짧은 문장입니다.");
+        assertThat(streamed(List.of("abc"))).isEmpty();
+    }
+
+    private List<String> streamed(List<String> segments) {
+        List<String> chunks = new ArrayList<>();
+        StreamingTokenTextSplitter splitter = new StreamingTokenTextSplitter(500, 50, 5, 10000, true, chunks::add);
+        segments.forEach(splitter::accept);
+        splitter.finish();
+        return chunks;
+    }
+
+    private static List<String> tokenTextSplitter(String text) {
+        return new TokenTextSplitter(500, 50, 5, 10000, true).apply(List.of(new Document(text))).stream()
+                .map(Document::getContent)
+                .toList();
+    }
+
+    // 단어·음절·줄바꿈 중간을 가리지 않고 임의 위치에서 자름
+    private List<String> randomSegments(String text) {
+        List<String> segments = new ArrayList<>();
+        int position = 0;
+        while (position < text.length()) {
+            int next = Math.min(text.length(), position + 1 + random.nextInt(200));
+            segments.add(text.substring(position, next));
+            position = next;
+        }
+        return segments;
+    }
+
+    private String sampleText(int sentences) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            String[] source = random.nextBoolean() ? ENGLISH : KOREAN;
+            text.append(source[random.nextInt(source.length)]).append(ENDINGS[random.nextInt(ENDINGS.length)]);
+            if (random.nextInt(10) == 0) {
+                text.append("    indented line ").append(random.nextInt(100_000)).append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package devlava.docai.vector;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.PGobject;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PgVectorTest {
+
+    private final Random random = new Random(3);
+
+    @Test
+    void binaryRoundTripFor768Dimensions() {
+        float[] values = randomVector(768);
+        ByteBuffer buffer = ByteBuffer.allocate(PgVector.binaryLength(values));
+        PgVector.writeBinary(values, buffer);
+
+        assertThat(buffer.remaining()).isZero();
+        assertThat(buffer.getShort(0)).isEqualTo((short) 768);
+        assertThat(buffer.getShort(2)).isZero();
+        buffer.flip();
+        assertThat(PgVector.readBinary(buffer)).containsExactly(values);
+        assertThat(buffer.remaining()).isZero();
+    }
+
+    @Test
+    void binaryRoundTripForZeroDimensions() {
+        ByteBuffer buffer = ByteBuffer.allocate(PgVector.binaryLength(new float[0]));
+        PgVector.writeBinary(new float[0], buffer);
+
+        assertThat(buffer.array()).containsExactly(0, 0, 0, 0);
+        buffer.flip();
+        assertThat(PgVector.readBinary(buffer)).isEmpty();
+
+        PgVector vector = new PgVector(new float[0]);
+        byte[] bytes = new byte[vector.lengthInBytes()];
+        vector.toBytes(bytes, 0);
+        PgVector decoded = new PgVector();
+        decoded.setByteValue(bytes, 0);
+        assertThat(decoded.toArray()).isEmpty();
+    }
+
+    @Test
+    void driverByteMethodsHonourTheOffset() {
+        float[] values = randomVector(768);
+        PgVector vector = new PgVector(values);
+        int offset = 5;
+        // 드라이버는 더 큰 버퍼의 중간 위치에 값을 쓰고 읽음 - 앞뒤 바이트는 건드리지 않아야 함
+        byte[] bytes = new byte[offset + vector.lengthInBytes() + 3];
+        bytes[offset - 1] = 0x7F;
+        bytes[bytes.length - 1] = 0x7F;
+
+        vector.toBytes(bytes, offset);
+        assertThat(bytes[offset - 1]).isEqualTo((byte) 0x7F);
+        assertThat(bytes[bytes.length - 1]).isEqualTo((byte) 0x7F);
+        assertThat(ByteBuffer.wrap(bytes, offset, 2).getShort()).isEqualTo((short) 768);
+
+        PgVector decoded = new PgVector();
+        decoded.setByteValue(bytes, offset);
+        assertThat(decoded.toArray()).containsExactly(values);
+        assertThat(decoded).isEqualTo(vector);
+    }
+
+    @Test
+    void textLiteralFallback() throws SQLException {
+        PgVector vector = new PgVector();
+        vector.setValue(" [1, 2.5,-3e-2] ");
+        assertThat(vector.toArray()).containsExactly(1.0f, 2.5f, -0.03f);
+        assertThat(vector.getValue()).isEqualTo("[1.0,2.5,-0.03]");
+
+        PGobject object = new PGobject();
+        object.setType(PgVector.TYPE_NAME);
+        object.setValue(vector.getValue());
+        assertThat(PgVector.toFloatArray(object)).containsExactly(1.0f, 2.5f, -0.03f);
+        assertThat(PgVector.toFloatArray("[]")).isEmpty();
+        assertThat(PgVector.toFloatArray(vector)).isSameAs(vector.toArray());
+        assertThat(PgVector.toFloatArray(null)).isNull();
+
+        assertThatThrownBy(() -> PgVector.toFloatArray("1,2,3")).isInstanceOf(SQLException.class);
+    }
+
+    private float[] randomVector(int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}